@@ -0,0 +1,102 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging.agent;
+
+import org.apache.log4j.helpers.LogLog;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.security.ProtectionDomain;
+
+/**
+ * Guards the calls classes make to the {@code *f} methods of {@link com.mogwee.logging.Logger} as they're loaded (see
+ * {@link LoggingCallRewriter#guard(byte[], ClassLoader)}).
+ */
+final class CallSiteGuards implements ClassFileTransformer
+{
+    private static final byte[] LOGGER_BYTES = "com/mogwee/logging/Logger".getBytes();
+
+    // internal names, e.g., "com/example/"
+    private final String[] prefixes;
+
+    /**
+     * @param packages the packages (and their subpackages) whose classes are rewritten; every package if none
+     */
+    CallSiteGuards(String... packages)
+    {
+        prefixes = new String[packages.length];
+
+        for (int i = 0; i < packages.length; ++i) {
+            prefixes[i] = packages[i].replace('.', '/') + "/";
+        }
+    }
+
+    @Override
+    public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer)
+    {
+        if (loader == null || className == null || !isIncluded(className) || !mentionsLogger(classfileBuffer)) {
+            return null;
+        }
+
+        try {
+            return LoggingCallRewriter.guard(classfileBuffer, loader);
+        }
+        catch (RuntimeException e) {
+            LogLog.warn("Couldn't guard the logging calls in " + className.replace('/', '.'), e);
+
+            return null;
+        }
+    }
+
+    boolean isIncluded(String className)
+    {
+        // the library itself (but not, e.g., the benchmarks)
+        if (className.startsWith("com/mogwee/logging/") &&
+            (className.indexOf('/', "com/mogwee/logging/".length()) < 0 || className.startsWith("com/mogwee/logging/agent/"))) {
+            return false;
+        }
+
+        if (prefixes.length == 0) {
+            return true;
+        }
+
+        for (String prefix : prefixes) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // cheaper than parsing every class that's loaded: a class that calls Logger has its name in the constant pool
+    private static boolean mentionsLogger(byte[] classfile)
+    {
+        outer:
+        for (int i = 0; i <= classfile.length - LOGGER_BYTES.length; ++i) {
+            for (int j = 0; j < LOGGER_BYTES.length; ++j) {
+                if (classfile[i + j] != LOGGER_BYTES[j]) {
+                    continue outer;
+                }
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging.agent;
+
+import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Java agent that keeps disabled logging calls from evaluating their arguments.
+ * <p/>
+ * As classes are loaded, calls to the {@code *f} methods of {@link com.mogwee.logging.Logger} are wrapped in the
+ * matching level check (e.g., {@link com.mogwee.logging.Logger#isDebugEnabled()}), so a disabled call costs a read of
+ * the logger's cached level instead of building its arguments and the varargs array.  Arguments with side effects
+ * are, of course, skipped along with the call.  Start the JVM with, e.g.,
+ * <pre>
+ * java -javaagent:mogwee-logging-agent.jar=com.example,org.example.util ...
+ * </pre>
+ * to rewrite the classes in those packages and their subpackages, or without {@code =...} to rewrite every class
+ * that isn't loaded by the bootstrap class loader.
+ */
+public final class LoggingAgent
+{
+    private LoggingAgent()
+    {
+    }
+
+    /**
+     * @param options         the comma-separated packages to rewrite, or null or empty for all of them
+     * @param instrumentation supplied by the JVM
+     */
+    public static void premain(String options, Instrumentation instrumentation)
+    {
+        instrumentation.addTransformer(new CallSiteGuards(parsePackages(options)));
+    }
+
+    static String[] parsePackages(String options)
+    {
+        List<String> packages = new ArrayList<String>();
+
+        if (options != null) {
+            for (String option : options.split(",")) {
+                String name = option.trim();
+
+                if (name.length() > 0) {
+                    packages.add(name);
+                }
+            }
+        }
+
+        return packages.toArray(new String[packages.size()]);
+    }
+}
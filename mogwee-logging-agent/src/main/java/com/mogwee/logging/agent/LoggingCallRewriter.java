@@ -0,0 +1,464 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging.agent;
+
+import org.apache.log4j.Level;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.objectweb.asm.tree.analysis.SourceInterpreter;
+import org.objectweb.asm.tree.analysis.SourceValue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rewrites the calls a class file makes to {@link com.mogwee.logging.Logger}'s logging methods, either guarding them
+ * so their arguments are only evaluated if the logger's level is enabled, i.e., {@code LOG.debugf("x=%s", x.dump())}
+ * becomes {@code if (LOG.isDebugEnabled()) LOG.debugf("x=%s", x.dump())}, or removing them (arguments and all).
+ * <p/>
+ * A call is only rewritten if its logger can be loaded again without side effects (a static field, a local variable
+ * or a field of {@code this}) and its arguments don't assign local variables; other calls are left as they are.
+ */
+public final class LoggingCallRewriter
+{
+    private static final String LOGGER = "com/mogwee/logging/Logger";
+    // the level each family of logging methods logs at
+    private static final Map<String, Level> LEVELS = new HashMap<String, Level>();
+    private static final Map<Level, String> GUARDS = new HashMap<Level, String>();
+
+    static {
+        for (Level level : new Level[]{Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR}) {
+            String name = level.toString().toLowerCase();
+
+            LEVELS.put(name, level);
+            LEVELS.put(name + "f", level);
+
+            if (level != Level.DEBUG) {
+                LEVELS.put(name + "Debug", level);
+                LEVELS.put(name + "Debugf", level);
+            }
+
+            GUARDS.put(level, "is" + name.substring(0, 1).toUpperCase() + name.substring(1) + "Enabled");
+        }
+    }
+
+    private LoggingCallRewriter()
+    {
+    }
+
+    /**
+     * Guards the calls to the {@code *f} methods that have arguments after the format string.
+     *
+     * @param classfile a class file
+     * @param loader    the class loader that's loading it, used to look up its superclasses
+     * @return the rewritten class file, or null if it has no calls to guard
+     */
+    public static byte[] guard(byte[] classfile, ClassLoader loader)
+    {
+        return rewrite(classfile, loader, null);
+    }
+
+    /**
+     * Removes the calls to the logging methods that log below a level, along with the evaluation of their arguments.
+     *
+     * @param classfile a class file
+     * @param loader    a class loader that can find its superclasses
+     * @param threshold the lowest level to keep, e.g., INFO to remove {@code debug()} and {@code debugf()}
+     * @return the rewritten class file, or null if it has no calls to remove
+     */
+    public static byte[] strip(byte[] classfile, ClassLoader loader, Level threshold)
+    {
+        return rewrite(classfile, loader, threshold);
+    }
+
+    // strips below the threshold if there is one, otherwise guards
+    private static byte[] rewrite(byte[] classfile, ClassLoader loader, Level threshold)
+    {
+        ClassReader reader = new ClassReader(classfile);
+        ClassNode node = new ClassNode();
+
+        reader.accept(node, 0);
+
+        int rewritten = 0;
+
+        for (MethodNode method : node.methods) {
+            rewritten += rewrite(node.name, method, threshold);
+        }
+
+        if (rewritten == 0) {
+            return null;
+        }
+
+        ClassWriter writer = new HierarchyClassWriter(reader, loader);
+
+        node.accept(writer);
+
+        return writer.toByteArray();
+    }
+
+    private static boolean isCandidate(MethodInsnNode call, Level threshold)
+    {
+        Level level = LEVELS.get(call.name);
+
+        if (call.getOpcode() != Opcodes.INVOKEVIRTUAL || !LOGGER.equals(call.owner) || level == null) {
+            return false;
+        }
+
+        if (threshold != null) {
+            return !level.isGreaterOrEqual(threshold);
+        }
+
+        return call.name.endsWith("f") && formatArgumentCount(call.desc) > 0;
+    }
+
+    /**
+     * @return how many calls were rewritten
+     */
+    private static int rewrite(String owner, MethodNode method, Level threshold)
+    {
+        List<MethodInsnNode> calls = new ArrayList<MethodInsnNode>();
+
+        for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            if (insn instanceof MethodInsnNode && isCandidate((MethodInsnNode) insn, threshold)) {
+                calls.add((MethodInsnNode) insn);
+            }
+        }
+
+        if (calls.isEmpty()) {
+            return 0;
+        }
+
+        Frame<SourceValue>[] frames;
+
+        try {
+            frames = new Analyzer<SourceValue>(new SourceInterpreter()).analyze(owner, method);
+        }
+        catch (AnalyzerException e) {
+            return 0;
+        }
+
+        // decide everything before changing the instructions, which would invalidate the frames' indexes
+        List<AbstractInsnNode[]> loads = new ArrayList<AbstractInsnNode[]>();
+        List<MethodInsnNode> rewrittenCalls = new ArrayList<MethodInsnNode>();
+
+        for (MethodInsnNode call : calls) {
+            AbstractInsnNode[] load = findLoggerLoad(method, frames, call);
+
+            if (load != null && isPlainExpression(method, load[0], call)) {
+                loads.add(load);
+                rewrittenCalls.add(call);
+            }
+        }
+
+        for (int i = 0; i < rewrittenCalls.size(); ++i) {
+            if (threshold == null) {
+                insertGuard(method, loads.get(i), rewrittenCalls.get(i));
+            }
+            else {
+                remove(method, loads.get(i)[0], rewrittenCalls.get(i));
+            }
+        }
+
+        if (threshold != null) {
+            removeEmptyTryBlocks(method);
+        }
+
+        return rewrittenCalls.size();
+    }
+
+    private static void insertGuard(MethodNode method, AbstractInsnNode[] load, MethodInsnNode call)
+    {
+        LabelNode skip = new LabelNode();
+        InsnList guard = new InsnList();
+
+        for (AbstractInsnNode insn : load) {
+            guard.add(insn.clone(Collections.<LabelNode, LabelNode>emptyMap()));
+        }
+
+        guard.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, LOGGER, GUARDS.get(LEVELS.get(call.name)), "()Z", false));
+        guard.add(new JumpInsnNode(Opcodes.IFEQ, skip));
+        method.instructions.insertBefore(load[0], guard);
+        method.instructions.insert(call, skip);
+    }
+
+    private static void remove(MethodNode method, AbstractInsnNode first, MethodInsnNode call)
+    {
+        AbstractInsnNode insn = first;
+        AbstractInsnNode end = call.getNext();
+
+        while (insn != end) {
+            AbstractInsnNode next = insn.getNext();
+
+            // labels may still be referred to by line numbers and local variable scopes
+            if (!(insn instanceof LabelNode) && !(insn instanceof LineNumberNode)) {
+                method.instructions.remove(insn);
+            }
+
+            insn = next;
+        }
+    }
+
+    // a try block around nothing but removed calls would cover nothing, which isn't allowed; its handler is left unreachable
+    private static void removeEmptyTryBlocks(MethodNode method)
+    {
+        Iterator<TryCatchBlockNode> blocks = method.tryCatchBlocks.iterator();
+
+        while (blocks.hasNext()) {
+            TryCatchBlockNode block = blocks.next();
+            AbstractInsnNode insn = block.start;
+
+            while (insn != block.end && insn.getOpcode() < 0) {
+                insn = insn.getNext();
+            }
+
+            if (insn == block.end) {
+                blocks.remove();
+            }
+        }
+    }
+
+    // how many of the call's arguments come after the format string
+    private static int formatArgumentCount(String descriptor)
+    {
+        Type[] parameters = Type.getArgumentTypes(descriptor);
+
+        for (int i = 0; i < parameters.length; ++i) {
+            if (parameters[i].getSort() == Type.OBJECT && "java/lang/String".equals(parameters[i].getInternalName())) {
+                return parameters.length - i - 1;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return the instructions that load the logger the call is made on, or null if they can't be repeated safely
+     */
+    private static AbstractInsnNode[] findLoggerLoad(MethodNode method, Frame<SourceValue>[] frames, MethodInsnNode call)
+    {
+        Frame<SourceValue> frame = frames[method.instructions.indexOf(call)];
+
+        if (frame == null) {
+            // unreachable
+            return null;
+        }
+
+        SourceValue receiver = frame.getStack(frame.getStackSize() - Type.getArgumentTypes(call.desc).length - 1);
+
+        if (receiver.insns.size() != 1) {
+            return null;
+        }
+
+        AbstractInsnNode source = receiver.insns.iterator().next();
+        AbstractInsnNode[] load;
+
+        switch (source.getOpcode()) {
+            case Opcodes.GETSTATIC:
+            case Opcodes.ALOAD:
+                load = new AbstractInsnNode[]{source};
+                break;
+            case Opcodes.GETFIELD:
+                Frame<SourceValue> fieldFrame = frames[method.instructions.indexOf(source)];
+                Set<AbstractInsnNode> objects = fieldFrame.getStack(fieldFrame.getStackSize() - 1).insns;
+                AbstractInsnNode object = source.getPrevious();
+
+                if (objects.size() != 1 || !objects.contains(object) || object.getOpcode() != Opcodes.ALOAD) {
+                    return null;
+                }
+
+                load = new AbstractInsnNode[]{object, source};
+                break;
+            default:
+                return null;
+        }
+
+        // only whole statements: the guard can't leave anything on the stack
+        if (frames[method.instructions.indexOf(load[0])].getStackSize() != 0) {
+            return null;
+        }
+
+        return load;
+    }
+
+    /**
+     * @return whether the instructions from {@code first} to {@code call} can be skipped without the rest of the method
+     *         noticing: nothing outside jumps into them and they don't store local variables
+     */
+    private static boolean isPlainExpression(MethodNode method, AbstractInsnNode first, MethodInsnNode call)
+    {
+        Set<AbstractInsnNode> region = new HashSet<AbstractInsnNode>();
+
+        for (AbstractInsnNode insn = first; insn != call.getNext(); insn = insn.getNext()) {
+            int opcode = insn.getOpcode();
+
+            if ((opcode >= Opcodes.ISTORE && opcode <= Opcodes.ASTORE) ||
+                opcode == Opcodes.JSR ||
+                opcode == Opcodes.RET ||
+                opcode == Opcodes.MONITORENTER ||
+                opcode == Opcodes.MONITOREXIT) {
+                return false;
+            }
+
+            region.add(insn);
+        }
+
+        for (TryCatchBlockNode block : method.tryCatchBlocks) {
+            if (region.contains(block.start) || region.contains(block.end) || region.contains(block.handler)) {
+                return false;
+            }
+        }
+
+        for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            if (!region.contains(insn) && jumpsInto(insn, region)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean jumpsInto(AbstractInsnNode insn, Set<AbstractInsnNode> region)
+    {
+        if (insn instanceof JumpInsnNode) {
+            return region.contains(((JumpInsnNode) insn).label);
+        }
+
+        List<LabelNode> targets;
+
+        if (insn instanceof TableSwitchInsnNode) {
+            targets = new ArrayList<LabelNode>(((TableSwitchInsnNode) insn).labels);
+            targets.add(((TableSwitchInsnNode) insn).dflt);
+        }
+        else if (insn instanceof LookupSwitchInsnNode) {
+            targets = new ArrayList<LabelNode>(((LookupSwitchInsnNode) insn).labels);
+            targets.add(((LookupSwitchInsnNode) insn).dflt);
+        }
+        else {
+            return false;
+        }
+
+        for (LabelNode target : targets) {
+            if (region.contains(target)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Computes stack map frames by reading superclasses' class files through the loader, rather than loading them
+     * (which a transformer mustn't do to the classes it might be asked to transform).
+     */
+    private static final class HierarchyClassWriter extends ClassWriter
+    {
+        private final ClassLoader loader;
+        private final Map<String, ClassReader> headers = new HashMap<String, ClassReader>();
+
+        private HierarchyClassWriter(ClassReader reader, ClassLoader loader)
+        {
+            super(ClassWriter.COMPUTE_FRAMES);
+            this.loader = loader;
+            headers.put(reader.getClassName(), reader);
+        }
+
+        @Override
+        protected String getCommonSuperClass(String type1, String type2)
+        {
+            // the verifier treats interfaces as Object
+            if (isInterface(type1) || isInterface(type2)) {
+                return "java/lang/Object";
+            }
+
+            Set<String> ancestors = new HashSet<String>();
+
+            for (String type = type1; type != null; type = header(type).getSuperName()) {
+                ancestors.add(type);
+            }
+
+            for (String type = type2; type != null; type = header(type).getSuperName()) {
+                if (ancestors.contains(type)) {
+                    return type;
+                }
+            }
+
+            return "java/lang/Object";
+        }
+
+        private boolean isInterface(String type)
+        {
+            return (header(type).getAccess() & Opcodes.ACC_INTERFACE) != 0;
+        }
+
+        private ClassReader header(String type)
+        {
+            ClassReader header = headers.get(type);
+
+            if (header == null) {
+                InputStream in = loader.getResourceAsStream(type + ".class");
+
+                if (in == null) {
+                    throw new TypeNotPresentException(type.replace('/', '.'), null);
+                }
+
+                try {
+                    header = new ClassReader(in);
+                }
+                catch (IOException e) {
+                    throw new TypeNotPresentException(type.replace('/', '.'), e);
+                }
+                finally {
+                    try {
+                        in.close();
+                    }
+                    catch (IOException e) {
+                        // nothing more to read anyway
+                    }
+                }
+
+                headers.put(type, header);
+            }
+
+            return header;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging.agent;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class TestCallSiteGuards
+{
+    private static byte[] read(Class<?> clazz) throws IOException
+    {
+        InputStream in = clazz.getResourceAsStream(clazz.getName().substring(clazz.getName().lastIndexOf('.') + 1) + ".class");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try {
+            byte[] buffer = new byte[4096];
+            int length;
+
+            while ((length = in.read(buffer)) >= 0) {
+                bytes.write(buffer, 0, length);
+            }
+        }
+        finally {
+            in.close();
+        }
+
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testIncludedClasses() throws Exception
+    {
+        CallSiteGuards everything = new CallSiteGuards(LoggingAgent.parsePackages(null));
+        CallSiteGuards some = new CallSiteGuards(LoggingAgent.parsePackages(" com.example, ,org.example.util"));
+
+        Assert.assertTrue(everything.isIncluded("com/example/Foo"));
+        Assert.assertTrue(everything.isIncluded("com/mogwee/logging/benchmarks/LevelCheckBenchmark"));
+        Assert.assertFalse(everything.isIncluded("com/mogwee/logging/Logger"));
+        Assert.assertFalse(everything.isIncluded("com/mogwee/logging/agent/CallSiteGuards"));
+        Assert.assertTrue(some.isIncluded("com/example/Foo"));
+        Assert.assertTrue(some.isIncluded("org/example/util/sub/Bar"));
+        Assert.assertFalse(some.isIncluded("com/examples/Foo"));
+        Assert.assertFalse(some.isIncluded("org/example/Bar"));
+
+        String name = TestLoggingCallRewriter.class.getName().replace('.', '/') + "$Example";
+        byte[] classfile = read(TestLoggingCallRewriter.Example.class);
+
+        Assert.assertNull(everything.transform(getClass().getClassLoader(), name, null, null, classfile));
+        Assert.assertNull(everything.transform(null, "com/example/Foo", null, null, classfile));
+        Assert.assertNotNull(some.transform(getClass().getClassLoader(), "com/example/Foo", null, null, classfile));
+        Assert.assertNull(some.transform(getClass().getClassLoader(), "com/example/Foo", null, null, read(TestLoggingCallRewriter.Unguarded.class)));
+    }
+}
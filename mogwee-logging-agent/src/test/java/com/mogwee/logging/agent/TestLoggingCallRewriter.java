@@ -0,0 +1,263 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging.agent;
+
+import com.mogwee.logging.Logger;
+import org.apache.log4j.Level;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.WriterAppender;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+public class TestLoggingCallRewriter
+{
+    public static final String LOGGER_NAME = TestLoggingCallRewriter.class.getName() + ".guarded";
+
+    private final StringWriter output = new StringWriter();
+
+    // only public members: a copy loaded by another class loader is in a different runtime package
+    public static class Example implements Callable<List<String>>
+    {
+        private static final Logger LOG = Logger.getLogger(LOGGER_NAME);
+
+        private final List<String> evaluated = new ArrayList<String>();
+        private final Logger log = LOG;
+
+        @Override
+        public List<String> call()
+        {
+            Logger local = LOG;
+            int count;
+
+            LOG.debugf("static %s", evaluate("static"));
+            log.infof("field %s %d", evaluate("field"), 5);
+            local.warnf(new IllegalStateException(evaluate("cause")), "local %s", evaluate("local"));
+            LOG.warnDebugf(null, "wide %d", evaluate("wide").length() + 5L);
+            LOG.infoDebugf(null, "branch %s", evaluated.isEmpty() ? evaluate("empty") : evaluate("nonempty"));
+            LOG.errorf("varargs %s %s %s %s %s", evaluate("varargs"), 2, 3, 4, 5);
+            // neither of these can be guarded
+            LOG.debugf("stored %d", count = evaluate("stored").length());
+            self().log.debugf("call %s", evaluate("call"));
+            LOG.debugf("count %d", count);
+            LOG.infof("no arguments");
+
+            try {
+                LOG.debugf("try %s", evaluate("try"));
+            }
+            catch (IllegalStateException e) {
+                evaluate("catch");
+            }
+
+            return evaluated;
+        }
+
+        public Example self()
+        {
+            return this;
+        }
+
+        public String evaluate(String name)
+        {
+            evaluated.add(name);
+
+            return name;
+        }
+    }
+
+    public static class Unguarded
+    {
+        private static final Logger LOG = Logger.getLogger(LOGGER_NAME);
+
+        public void run(Logger[] loggers)
+        {
+            LOG.info("plain");
+            LOG.infof("no arguments");
+            loggers[0].infof("array element %s", loggers.length);
+        }
+    }
+
+    private static class ChildFirstLoader extends ClassLoader
+    {
+        private final String name;
+        private final byte[] classfile;
+
+        private ChildFirstLoader(String name, byte[] classfile)
+        {
+            super(TestLoggingCallRewriter.class.getClassLoader());
+            this.name = name;
+            this.classfile = classfile;
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String className, boolean resolve) throws ClassNotFoundException
+        {
+            if (!className.equals(name)) {
+                return super.loadClass(className, resolve);
+            }
+
+            Class<?> loaded = findLoadedClass(className);
+
+            if (loaded == null) {
+                loaded = defineClass(className, classfile, 0, classfile.length);
+            }
+
+            return loaded;
+        }
+    }
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup()
+    {
+        org.apache.log4j.Logger log4j = org.apache.log4j.Logger.getLogger(LOGGER_NAME);
+
+        output.getBuffer().setLength(0);
+        log4j.setAdditivity(false);
+        log4j.addAppender(new WriterAppender(new PatternLayout("%p %m%n"), output));
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        org.apache.log4j.Logger.getLogger(LOGGER_NAME).removeAllAppenders();
+    }
+
+    private static byte[] read(Class<?> clazz) throws IOException
+    {
+        InputStream in = clazz.getResourceAsStream(clazz.getName().substring(clazz.getName().lastIndexOf('.') + 1) + ".class");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try {
+            byte[] buffer = new byte[4096];
+            int length;
+
+            while ((length = in.read(buffer)) >= 0) {
+                bytes.write(buffer, 0, length);
+            }
+        }
+        finally {
+            in.close();
+        }
+
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> run(byte[] classfile) throws Exception
+    {
+        Class<?> clazz = new ChildFirstLoader(Example.class.getName(), classfile).loadClass(Example.class.getName());
+
+        Assert.assertFalse(clazz == Example.class);
+
+        return ((Callable<List<String>>) clazz.newInstance()).call();
+    }
+
+    private static void setLevel(Level level)
+    {
+        org.apache.log4j.Logger.getLogger(LOGGER_NAME).setLevel(level);
+        Logger.refreshLevels();
+    }
+
+    @Test
+    public void testDisabledArgumentsSkipped() throws Exception
+    {
+        byte[] original = read(Example.class);
+        byte[] guarded = LoggingCallRewriter.guard(original, getClass().getClassLoader());
+
+        Assert.assertNotNull(guarded);
+        setLevel(Level.ERROR);
+
+        Assert.assertEquals(run(original), Arrays.asList("static", "field", "cause", "local", "wide", "nonempty", "varargs", "stored", "call", "try"));
+        Assert.assertEquals(run(guarded), Arrays.asList("varargs", "stored", "call"));
+        Assert.assertEquals(output.toString(), "ERROR varargs varargs 2 3 4 5\nERROR varargs varargs 2 3 4 5\n");
+    }
+
+    @Test
+    public void testEnabledCallsUnchanged() throws Exception
+    {
+        byte[] original = read(Example.class);
+        byte[] guarded = LoggingCallRewriter.guard(original, getClass().getClassLoader());
+
+        for (Level level : new Level[]{Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR, Level.OFF}) {
+            setLevel(level);
+
+            List<List<String>> evaluated = new ArrayList<List<String>>();
+            List<String> outputs = new ArrayList<String>();
+
+            // from the same line, so stack traces match
+            for (byte[] classfile : new byte[][]{original, guarded}) {
+                output.getBuffer().setLength(0);
+                evaluated.add(run(classfile));
+                outputs.add(output.toString());
+            }
+
+            Assert.assertEquals(outputs.get(1), outputs.get(0), level.toString());
+            Assert.assertTrue(evaluated.get(0).containsAll(evaluated.get(1)), level.toString());
+
+            if (level == Level.DEBUG) {
+                Assert.assertEquals(evaluated.get(1), evaluated.get(0));
+            }
+        }
+    }
+
+    @Test
+    public void testNothingToGuard() throws Exception
+    {
+        Assert.assertNull(LoggingCallRewriter.guard(read(Unguarded.class), getClass().getClassLoader()));
+        Assert.assertNull(LoggingCallRewriter.guard(read(TestLoggingCallRewriter.class), getClass().getClassLoader()));
+        Assert.assertNull(LoggingCallRewriter.strip(read(Example.class), getClass().getClassLoader(), Level.DEBUG));
+    }
+
+    @Test
+    public void testStripped() throws Exception
+    {
+        byte[] original = read(Example.class);
+        byte[] belowInfo = LoggingCallRewriter.strip(original, getClass().getClassLoader(), Level.INFO);
+        byte[] belowError = LoggingCallRewriter.strip(original, getClass().getClassLoader(), Level.ERROR);
+
+        Assert.assertTrue(belowInfo.length < original.length);
+        Assert.assertTrue(belowError.length < belowInfo.length);
+        setLevel(Level.DEBUG);
+
+        Assert.assertEquals(run(belowInfo), Arrays.asList("field", "cause", "local", "wide", "nonempty", "varargs", "stored", "call"));
+        Assert.assertFalse(output.toString().contains("DEBUG static"), output.toString());
+        Assert.assertFalse(output.toString().contains("DEBUG count"), output.toString());
+        Assert.assertTrue(output.toString().contains("INFO field field 5\n"), output.toString());
+
+        output.getBuffer().setLength(0);
+
+        Assert.assertEquals(run(belowError), Arrays.asList("varargs", "stored", "call"));
+        Assert.assertEquals(output.toString(), "ERROR varargs varargs 2 3 4 5\nDEBUG stored 6\nDEBUG call call\n");
+
+        // stripping and then guarding what's left
+        output.getBuffer().setLength(0);
+        setLevel(Level.WARN);
+
+        Assert.assertEquals(run(LoggingCallRewriter.guard(belowInfo, getClass().getClassLoader())), Arrays.asList("cause", "local", "wide", "varargs", "stored", "call"));
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks at 1, 4 and 16 threads with the GC profiler attached, so every result includes an allocation rate.
+ * <p/>
+ * Usage: {@code java -cp mogwee-logging-benchmarks/target/benchmarks.jar com.mogwee.logging.benchmarks.BenchmarkRunner [JMH options]},
+ * e.g., pass {@code LoggerBenchmark.debugf} to run just that benchmark.
+ */
+public class BenchmarkRunner
+{
+    private static final int[] THREAD_COUNTS = {1, 4, 16};
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException
+    {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+
+        for (int threads : THREAD_COUNTS) {
+            OptionsBuilder options = new OptionsBuilder();
+
+            options.parent(commandLine).threads(threads).addProfiler(GCProfiler.class);
+
+            if (commandLine.getIncludes().isEmpty()) {
+                options.include(LoggerBenchmark.class.getSimpleName());
+            }
+
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import com.mogwee.logging.Logger;
+import org.apache.log4j.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a disabled call through {@link Logger}, with and without cached levels, with Log4J's own level check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelCheckBenchmark
+{
+    private static final String LOGGER_NAME = "com.mogwee.logging.benchmarks.LevelCheckBenchmark";
+    private static final String CACHED_LEVELS = "-Dcom.mogwee.logging.levelRefreshMillis=1000";
+
+    private org.apache.log4j.Logger log4j;
+    private Logger logger;
+    private int elapsed = 1234;
+
+    @Setup
+    public void setup()
+    {
+        // a few configured ancestors, as in a typical log4j.xml, so the Log4J walk isn't artificially short
+        org.apache.log4j.Logger.getLogger("com").setLevel(Level.INFO);
+        org.apache.log4j.Logger.getLogger("com.mogwee").setLevel(null);
+        org.apache.log4j.Logger.getLogger("com.mogwee.logging").setLevel(null);
+        Logger.refreshLevels();
+
+        log4j = org.apache.log4j.Logger.getLogger(LOGGER_NAME);
+        logger = Logger.getLogger(LOGGER_NAME);
+    }
+
+    @Benchmark
+    public boolean log4jIsEnabledFor()
+    {
+        return log4j.isEnabledFor(Level.DEBUG);
+    }
+
+    @Benchmark
+    public void log4jDebug()
+    {
+        log4j.debug("disabled");
+    }
+
+    @Benchmark
+    public void debug()
+    {
+        logger.debug("disabled");
+    }
+
+    @Benchmark
+    public void debugf()
+    {
+        logger.debugf("took %d ms", elapsed);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = CACHED_LEVELS)
+    public void debugCached()
+    {
+        logger.debug("disabled");
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = CACHED_LEVELS)
+    public void debugfCached()
+    {
+        logger.debugf("took %d ms", elapsed);
+    }
+}
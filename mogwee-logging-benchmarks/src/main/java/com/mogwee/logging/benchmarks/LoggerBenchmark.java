@@ -0,0 +1,78 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One benchmark per public method family of {@link com.mogwee.logging.Logger}, each run in every {@link LoggerState} mode.
+ * <p/>
+ * Run everything (with allocation rates, at 1, 4 and 16 threads) with {@link BenchmarkRunner}, or pick and choose with
+ * {@code java -jar mogwee-logging-benchmarks/target/benchmarks.jar LoggerBenchmark -prof gc -t 4}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggerBenchmark
+{
+    @Benchmark
+    public void debug(LoggerState state)
+    {
+        // a constant message can't be bogus, so that mode measures the same thing as enabled
+        state.logger.debug("Handled request");
+    }
+
+    @Benchmark
+    public void debugf(LoggerState state)
+    {
+        state.logger.debugf(state.format, state.name, state.elapsed);
+    }
+
+    @Benchmark
+    public void infoDebug(LoggerState state)
+    {
+        state.logger.infoDebug(state.cause, "Request failed");
+    }
+
+    @Benchmark
+    public void infoDebugf(LoggerState state)
+    {
+        state.logger.infoDebugf(state.cause, state.format, state.name, state.elapsed);
+    }
+
+    @Benchmark
+    public void warnDebugf(LoggerState state)
+    {
+        state.logger.warnDebugf(state.cause, state.format, state.name, state.elapsed);
+    }
+
+    @Benchmark
+    public void errorfWithCause(LoggerState state)
+    {
+        state.logger.errorf(state.cause, state.format, state.name, state.elapsed);
+    }
+}
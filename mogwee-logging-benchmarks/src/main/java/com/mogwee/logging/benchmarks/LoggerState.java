@@ -0,0 +1,135 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging.benchmarks;
+
+import com.mogwee.logging.BinaryLog;
+import com.mogwee.logging.Logger;
+import com.mogwee.logging.LoggerMetrics;
+import com.mogwee.logging.LoggingBackends;
+import com.mogwee.logging.SimpleBackend;
+import org.apache.log4j.Level;
+import org.apache.log4j.varia.NullAppender;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.BrokenBarrierException;
+
+/**
+ * The logger under test, configured for one of the states each entry point is measured in.
+ */
+@State(Scope.Benchmark)
+public class LoggerState
+{
+    static final String LOGGER_NAME = LoggerState.class.getName();
+
+    /**
+     * <ul>
+     * <li>{@code disabled}: the logger is off, so nothing should get past the level check</li>
+     * <li>{@code enabled}: everything is enabled and goes to a {@link NullAppender}</li>
+     * <li>{@code summarized}: INFO is enabled but DEBUG isn't, so the *Debug methods log a one-line cause summary</li>
+     * <li>{@code bogus}: as {@code enabled}, but format strings don't match their arguments</li>
+     * <li>{@code binary}: as {@code enabled}, but events are written unformatted to a {@link BinaryLog}</li>
+     * <li>{@code metrics}: as {@code summarized}, but with {@link LoggerMetrics} enabled</li>
+     * <li>{@code simple}: as {@code enabled}, but with the {@link SimpleBackend} (buffered) instead of Log4J</li>
+     * </ul>
+     */
+    @Param({"disabled", "enabled", "summarized", "bogus", "binary", "metrics", "simple"})
+    public String mode;
+
+    public Logger logger;
+    public Throwable cause;
+    public String format;
+    public String name;
+    public long elapsed;
+
+    private File binaryLogFile;
+    private File simpleLogFile;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        // each mode runs in its own fork, so this is set before anything touches the loggers
+        if ("metrics".equals(mode)) {
+            System.setProperty(LoggerMetrics.ENABLED_PROPERTY, "true");
+
+            if (!LoggerMetrics.isEnabled()) {
+                throw new IllegalStateException("Metrics were initialized before they could be enabled");
+            }
+        }
+        else if ("simple".equals(mode)) {
+            simpleLogFile = File.createTempFile("benchmark", ".log");
+            System.setProperty(SimpleBackend.FILE_PROPERTY, simpleLogFile.getPath());
+            System.setProperty(SimpleBackend.LEVEL_PROPERTY, "ALL");
+            System.setProperty(SimpleBackend.IMMEDIATE_FLUSH_PROPERTY, "false");
+            System.setProperty(LoggingBackends.BACKEND_PROPERTY, "simple");
+
+            if (!(LoggingBackends.get() instanceof SimpleBackend)) {
+                throw new IllegalStateException("The backend was chosen before it could be set");
+            }
+        }
+
+        org.apache.log4j.Logger log4j = org.apache.log4j.Logger.getLogger(LOGGER_NAME);
+
+        log4j.removeAllAppenders();
+        log4j.setAdditivity(false);
+        log4j.addAppender(new NullAppender());
+
+        if ("disabled".equals(mode)) {
+            log4j.setLevel(Level.OFF);
+        }
+        else if ("summarized".equals(mode) || "metrics".equals(mode)) {
+            log4j.setLevel(Level.INFO);
+        }
+        else {
+            log4j.setLevel(Level.ALL);
+        }
+
+        Logger.refreshLevels();
+
+        if ("binary".equals(mode)) {
+            binaryLogFile = File.createTempFile("benchmark", ".binlog");
+            BinaryLog.install(binaryLogFile);
+        }
+
+        logger = Logger.getLogger(LOGGER_NAME);
+        cause = new BrokenBarrierException("Uh oh!\nSecond line");
+        format = "bogus".equals(mode) ? "Handled %d in %s ms" : "Handled %s in %d ms";
+        name = "request";
+        elapsed = 1234L;
+    }
+
+    @TearDown
+    public void teardown()
+    {
+        org.apache.log4j.Logger.getLogger(LOGGER_NAME).removeAllAppenders();
+
+        if (binaryLogFile != null) {
+            BinaryLog.uninstall();
+            binaryLogFile.delete();
+        }
+
+        if (simpleLogFile != null) {
+            ((SimpleBackend) LoggingBackends.get()).close();
+            simpleLogFile.delete();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging.maven;
+
+import com.mogwee.logging.agent.LoggingCallRewriter;
+import org.apache.log4j.Level;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Removes the calls that compiled classes make to {@link com.mogwee.logging.Logger}'s logging methods below a level,
+ * along with the evaluation of their arguments, so code that never logs at that level in production doesn't carry the
+ * bytecode (or spend the JIT's inlining budget on it).  Runs after compilation, rewriting the classes in place, e.g.,
+ * <pre>
+ * &lt;plugin&gt;
+ *     &lt;groupId&gt;com.mogwee&lt;/groupId&gt;
+ *     &lt;artifactId&gt;mogwee-logging-maven-plugin&lt;/artifactId&gt;
+ *     &lt;configuration&gt;
+ *         &lt;level&gt;INFO&lt;/level&gt;
+ *     &lt;/configuration&gt;
+ *     &lt;executions&gt;
+ *         &lt;execution&gt;
+ *             &lt;goals&gt;
+ *                 &lt;goal&gt;strip&lt;/goal&gt;
+ *             &lt;/goals&gt;
+ *         &lt;/execution&gt;
+ *     &lt;/executions&gt;
+ * &lt;/plugin&gt;
+ * </pre>
+ * Calls are left in place where removing them isn't safe (see {@link LoggingCallRewriter}).
+ */
+@Mojo(name = "strip", defaultPhase = LifecyclePhase.PROCESS_CLASSES, requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
+public class StripMojo extends AbstractMojo
+{
+    /**
+     * The lowest level whose calls are kept, e.g., INFO to remove {@code debug()} and {@code debugf()}.
+     */
+    @Parameter(property = "mogwee.logging.strip.level", defaultValue = "INFO")
+    private String level;
+
+    /**
+     * The classes to rewrite.
+     */
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    private File classesDirectory;
+
+    /**
+     * Where the classes' superclasses are found.
+     */
+    @Parameter(defaultValue = "${project.compileClasspathElements}", readonly = true, required = true)
+    private List<String> classpathElements;
+
+    /**
+     * Whether to leave the classes alone.
+     */
+    @Parameter(property = "mogwee.logging.strip.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException
+    {
+        if (skip) {
+            getLog().info("Not stripping logging calls");
+            return;
+        }
+
+        Level threshold = Level.toLevel(level, null);
+
+        if (threshold == null) {
+            throw new MojoExecutionException("Unknown level " + level);
+        }
+
+        if (!classesDirectory.isDirectory()) {
+            getLog().info("No classes to strip logging calls from");
+            return;
+        }
+
+        List<File> classFiles = new ArrayList<File>();
+
+        findClassFiles(classesDirectory, classFiles);
+
+        ClassLoader loader = createLoader();
+        int stripped = 0;
+
+        for (File classFile : classFiles) {
+            try {
+                byte[] rewritten = strip(classFile, loader, threshold);
+
+                if (rewritten != null) {
+                    write(classFile, rewritten);
+                    ++stripped;
+                }
+            }
+            catch (IOException e) {
+                throw new MojoExecutionException("Couldn't rewrite " + classFile, e);
+            }
+        }
+
+        getLog().info(String.format("Stripped logging calls below %s from %d of %d classes", threshold, stripped, classFiles.size()));
+    }
+
+    private byte[] strip(File classFile, ClassLoader loader, Level threshold) throws IOException
+    {
+        try {
+            return LoggingCallRewriter.strip(read(classFile), loader, threshold);
+        }
+        catch (RuntimeException e) {
+            // e.g., a superclass that isn't on the classpath
+            getLog().warn("Couldn't strip logging calls from " + classFile + "; leaving it as it is", e);
+
+            return null;
+        }
+    }
+
+    private static void findClassFiles(File directory, List<File> classFiles)
+    {
+        File[] files = directory.listFiles();
+
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            if (file.isDirectory()) {
+                findClassFiles(file, classFiles);
+            }
+            else if (file.getName().endsWith(".class")) {
+                classFiles.add(file);
+            }
+        }
+    }
+
+    // only for reading class files: its parent is the bootstrap class loader, not the plugin's
+    private ClassLoader createLoader() throws MojoExecutionException
+    {
+        List<URL> urls = new ArrayList<URL>();
+
+        try {
+            urls.add(classesDirectory.toURI().toURL());
+
+            for (String element : classpathElements) {
+                urls.add(new File(element).toURI().toURL());
+            }
+        }
+        catch (MalformedURLException e) {
+            throw new MojoExecutionException("Bad classpath element", e);
+        }
+
+        return new URLClassLoader(urls.toArray(new URL[urls.size()]), null);
+    }
+
+    private static byte[] read(File file) throws IOException
+    {
+        InputStream in = new FileInputStream(file);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) file.length());
+
+        try {
+            byte[] buffer = new byte[4096];
+            int length;
+
+            while ((length = in.read(buffer)) >= 0) {
+                bytes.write(buffer, 0, length);
+            }
+        }
+        finally {
+            in.close();
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static void write(File file, byte[] bytes) throws IOException
+    {
+        OutputStream out = new FileOutputStream(file);
+
+        try {
+            out.write(bytes);
+        }
+        finally {
+            out.close();
+        }
+    }
+}
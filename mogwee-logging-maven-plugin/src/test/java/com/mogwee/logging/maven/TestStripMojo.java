@@ -0,0 +1,250 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging.maven;
+
+import com.mogwee.logging.Logger;
+import org.apache.log4j.Level;
+import org.apache.log4j.varia.NullAppender;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+public class TestStripMojo
+{
+    public static final String LOGGER_NAME = TestStripMojo.class.getName() + ".stripped";
+    private static final String EXAMPLE_PATH = Example.class.getName().replace('.', '/') + ".class";
+
+    private File directory;
+
+    // only public members: a copy loaded by another class loader is in a different runtime package
+    public static class Example implements Callable<List<String>>
+    {
+        private static final Logger LOG = Logger.getLogger(LOGGER_NAME);
+
+        private final List<String> evaluated = new ArrayList<String>();
+
+        @Override
+        public List<String> call()
+        {
+            LOG.debugf("debugf %s", evaluate("debugf"));
+            LOG.debug("debug " + evaluate("debug"));
+            LOG.infof("infof %s", evaluate("infof"));
+            LOG.infoDebug(new IllegalStateException(evaluate("infoDebug")), "infoDebug");
+            LOG.warn(evaluate("warn"));
+            LOG.errorf("errorf %d", evaluate("errorf").length());
+
+            return evaluated;
+        }
+
+        public String evaluate(String name)
+        {
+            evaluated.add(name);
+
+            return name;
+        }
+    }
+
+    private static class DirectoryLoader extends ClassLoader
+    {
+        private final File directory;
+
+        private DirectoryLoader(File directory)
+        {
+            super(TestStripMojo.class.getClassLoader());
+            this.directory = directory;
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String className, boolean resolve) throws ClassNotFoundException
+        {
+            if (!className.equals(Example.class.getName())) {
+                return super.loadClass(className, resolve);
+            }
+
+            Class<?> loaded = findLoadedClass(className);
+
+            if (loaded == null) {
+                byte[] classfile = read(new File(directory, EXAMPLE_PATH));
+
+                loaded = defineClass(className, classfile, 0, classfile.length);
+            }
+
+            return loaded;
+        }
+    }
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup() throws IOException
+    {
+        directory = File.createTempFile("classes", "");
+        Assert.assertTrue(directory.delete());
+
+        File classFile = new File(directory, EXAMPLE_PATH);
+
+        Assert.assertTrue(classFile.getParentFile().mkdirs());
+        write(classFile, read(Example.class.getResourceAsStream("TestStripMojo$Example.class")));
+
+        org.apache.log4j.Logger log4j = org.apache.log4j.Logger.getLogger(LOGGER_NAME);
+
+        log4j.setAdditivity(false);
+        log4j.addAppender(new NullAppender());
+        log4j.setLevel(Level.DEBUG);
+        Logger.refreshLevels();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        org.apache.log4j.Logger.getLogger(LOGGER_NAME).removeAllAppenders();
+        delete(directory);
+    }
+
+    private static void delete(File file)
+    {
+        File[] children = file.listFiles();
+
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+
+    private static byte[] read(File file)
+    {
+        try {
+            return read(new java.io.FileInputStream(file));
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] read(InputStream in) throws IOException
+    {
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+
+        try {
+            byte[] buffer = new byte[4096];
+            int length;
+
+            while ((length = in.read(buffer)) >= 0) {
+                bytes.write(buffer, 0, length);
+            }
+        }
+        finally {
+            in.close();
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static void write(File file, byte[] bytes) throws IOException
+    {
+        OutputStream out = new FileOutputStream(file);
+
+        try {
+            out.write(bytes);
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    private StripMojo createMojo(String level, boolean skip) throws Exception
+    {
+        StripMojo mojo = new StripMojo();
+
+        set(mojo, "level", level);
+        set(mojo, "classesDirectory", directory);
+        set(mojo, "classpathElements", Collections.<String>emptyList());
+        set(mojo, "skip", skip);
+
+        return mojo;
+    }
+
+    private static void set(StripMojo mojo, String name, Object value) throws Exception
+    {
+        Field field = StripMojo.class.getDeclaredField(name);
+
+        field.setAccessible(true);
+        field.set(mojo, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> run() throws Exception
+    {
+        return ((Callable<List<String>>) new DirectoryLoader(directory).loadClass(Example.class.getName()).newInstance()).call();
+    }
+
+    @Test
+    public void testStripBelowInfo() throws Exception
+    {
+        long length = new File(directory, EXAMPLE_PATH).length();
+
+        createMojo("INFO", false).execute();
+
+        Assert.assertTrue(new File(directory, EXAMPLE_PATH).length() < length);
+        Assert.assertEquals(run(), Arrays.asList("infof", "infoDebug", "warn", "errorf"));
+
+        // nothing left to strip
+        byte[] stripped = read(new File(directory, EXAMPLE_PATH));
+
+        createMojo("info", false).execute();
+
+        Assert.assertEquals(read(new File(directory, EXAMPLE_PATH)), stripped);
+    }
+
+    @Test
+    public void testStripBelowError() throws Exception
+    {
+        createMojo("ERROR", false).execute();
+
+        Assert.assertEquals(run(), Arrays.asList("errorf"));
+    }
+
+    @Test
+    public void testSkip() throws Exception
+    {
+        createMojo("ERROR", true).execute();
+
+        Assert.assertEquals(run(), Arrays.asList("debugf", "debug", "infof", "infoDebug", "warn", "errorf"));
+    }
+
+    @Test(expectedExceptions = MojoExecutionException.class)
+    public void testUnknownLevel() throws Exception
+    {
+        createMojo("LOUD", false).execute();
+    }
+}
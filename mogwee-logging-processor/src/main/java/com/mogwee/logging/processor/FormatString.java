@@ -0,0 +1,180 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging.processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Formatter;
+import java.util.IllegalFormatException;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A format string, checked the way {@code java.util.Formatter} checks it.
+ */
+final class FormatString
+{
+    // what java.util.Formatter accepts after a '%'
+    private static final Pattern SPECIFIER = Pattern.compile("%(\\d+\\$)?([-#+ 0,(<]*)?(\\d+)?(\\.\\d+)?([tT])?([a-zA-Z%])");
+
+    private final String template;
+    private final List<Specifier> specifiers;
+    private final int argumentsUsed;
+
+    private FormatString(String template, List<Specifier> specifiers, int argumentsUsed)
+    {
+        this.template = template;
+        this.specifiers = specifiers;
+        this.argumentsUsed = argumentsUsed;
+    }
+
+    /**
+     * @param template      a format string
+     * @param argumentCount how many arguments are passed with it, or -1 if that isn't known
+     * @return the parsed format string
+     * @throws IllegalFormatException if {@code String.format()} would throw it, whatever the arguments' values
+     */
+    static FormatString parse(String template, int argumentCount)
+    {
+        List<Specifier> specifiers = new ArrayList<Specifier>();
+        Matcher matcher = SPECIFIER.matcher(template);
+        int required = 0;
+        int ordinary = 0;
+        int previous = -1;
+
+        for (int i = template.indexOf('%'); i != -1; i = template.indexOf('%', matcher.end())) {
+            matcher.region(i, template.length());
+
+            // leave describing the problem to Formatter
+            if (!matcher.lookingAt()) {
+                break;
+            }
+
+            String flags = matcher.group(2);
+            char conversion = matcher.group(5) == null ? matcher.group(6).charAt(0) : 't';
+            int index;
+
+            if (conversion == '%' || conversion == 'n') {
+                continue;
+            }
+
+            if (matcher.group(1) != null) {
+                index = Integer.parseInt(matcher.group(1).substring(0, matcher.group(1).length() - 1)) - 1;
+            }
+            else if (flags != null && flags.indexOf('<') != -1) {
+                index = previous;
+            }
+            else {
+                index = ordinary++;
+            }
+
+            specifiers.add(new Specifier(matcher.group(), Character.toLowerCase(conversion), index));
+            required = Math.max(required, index + 1);
+            previous = index;
+        }
+
+        // with null arguments, Formatter only checks the specifiers and the argument count
+        new Formatter(new StringBuilder(), Locale.ROOT).format(template, new Object[argumentCount < 0 ? required : argumentCount]);
+
+        return new FormatString(template, Collections.unmodifiableList(specifiers), required);
+    }
+
+    String getTemplate()
+    {
+        return template;
+    }
+
+    /**
+     * @return the specifiers that take arguments, in order
+     */
+    List<Specifier> getSpecifiers()
+    {
+        return specifiers;
+    }
+
+    /**
+     * @return how many arguments the specifiers reach (one more than the highest index of any of them)
+     */
+    int getArgumentsUsed()
+    {
+        return argumentsUsed;
+    }
+
+    /**
+     * @return whether {@code CompiledFormat} can render the template, i.e., it has only {@code %s}, {@code %d},
+     * {@code %%} and {@code %n} specifiers, with no flags, width, precision or index
+     */
+    static boolean isRenderable(String template)
+    {
+        for (int i = 0; i < template.length(); ++i) {
+            if (template.charAt(i) == '%') {
+                if (i + 1 == template.length()) {
+                    return false;
+                }
+
+                char c = template.charAt(++i);
+
+                if (c != 's' && c != 'd' && c != '%' && c != 'n') {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    static final class Specifier
+    {
+        private final String text;
+        private final char conversion;
+        private final int index;
+
+        private Specifier(String text, char conversion, int index)
+        {
+            this.text = text;
+            this.conversion = conversion;
+            this.index = index;
+        }
+
+        /**
+         * @return the specifier as written, e.g., {@code %-8s}
+         */
+        String getText()
+        {
+            return text;
+        }
+
+        /**
+         * @return the conversion, in lower case ({@code 't'} for dates and times)
+         */
+        char getConversion()
+        {
+            return conversion;
+        }
+
+        /**
+         * @return the index of the argument it formats, or -1 if it refers to a previous argument that doesn't exist
+         */
+        int getIndex()
+        {
+            return index;
+        }
+    }
+}
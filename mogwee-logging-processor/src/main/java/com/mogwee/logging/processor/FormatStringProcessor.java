@@ -0,0 +1,546 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging.processor;
+
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.ParenthesizedTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.IllegalFormatException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Checks the constant format strings passed to {@code Logger}'s {@code *f} methods at compile time, and generates
+ * renderers for them so they're never parsed at run time.
+ * <p/>
+ * Once javac has attributed a class, each call to a {@code *f} method whose format string is a constant is checked
+ * the way {@code String.format()} would check it: malformed specifiers, too few arguments and arguments whose types
+ * can't match their conversions (e.g., a {@code String} for {@code %d}) are errors; extra arguments are warnings.
+ * Calls in a class, method or field annotated with {@code @SuppressWarnings("mogwee-logging-format")} aren't checked.
+ * <p/>
+ * For every class with {@code *f} calls whose format strings are literals that {@code CompiledFormat} can render
+ * ({@code %s}, {@code %d}, {@code %%} and {@code %n}), a {@code <Class>_MogweeLoggingFormats} subclass of
+ * {@code com.mogwee.logging.GeneratedFormats} is generated and listed in
+ * {@code META-INF/services/com.mogwee.logging.GeneratedFormats}.  Pass {@code -Amogwee.logging.renderers=false} to
+ * only check format strings.
+ * <p/>
+ * Needs javac 8 or later, since it relies on the compiler tree API; with other compilers it does nothing.
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions(FormatStringProcessor.RENDERERS_OPTION)
+public class FormatStringProcessor extends AbstractProcessor
+{
+    static final String RENDERERS_OPTION = "mogwee.logging.renderers";
+    static final String SUPPRESSION = "mogwee-logging-format";
+    static final String SERVICES_FILE = "META-INF/services/com.mogwee.logging.GeneratedFormats";
+
+    private static final String LOGGER = "com.mogwee.logging.Logger";
+    private static final Set<String> FORMAT_METHODS = new HashSet<String>(
+        Arrays.asList("debugf", "infof", "warnf", "errorf", "infoDebugf", "warnDebugf", "errorDebugf")
+    );
+    // the types each conversion accepts, besides null; the rest accept anything
+    private static final Map<Character, List<String>> CONVERSION_TYPES = new HashMap<Character, List<String>>();
+
+    static {
+        List<String> integral = Arrays.asList("java.lang.Byte", "java.lang.Short", "java.lang.Integer", "java.lang.Long", "java.math.BigInteger");
+        List<String> floatingPoint = Arrays.asList("java.lang.Float", "java.lang.Double", "java.math.BigDecimal");
+
+        CONVERSION_TYPES.put('c', Arrays.asList("java.lang.Character", "java.lang.Byte", "java.lang.Short", "java.lang.Integer"));
+        CONVERSION_TYPES.put('d', integral);
+        CONVERSION_TYPES.put('o', integral);
+        CONVERSION_TYPES.put('x', integral);
+        CONVERSION_TYPES.put('e', floatingPoint);
+        CONVERSION_TYPES.put('f', floatingPoint);
+        CONVERSION_TYPES.put('g', floatingPoint);
+        CONVERSION_TYPES.put('a', Arrays.asList("java.lang.Float", "java.lang.Double"));
+        CONVERSION_TYPES.put('t', Arrays.asList("java.lang.Long", "java.util.Calendar", "java.util.Date", "java.time.temporal.TemporalAccessor"));
+    }
+
+    private final Set<Tree> checkedCalls = Collections.newSetFromMap(new IdentityHashMap<Tree, Boolean>());
+    private final Set<String> generatedClasses = new TreeSet<String>();
+    private Trees trees = null;
+    private boolean generateRenderers = true;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv)
+    {
+        super.init(processingEnv);
+        generateRenderers = !"false".equals(processingEnv.getOptions().get(RENDERERS_OPTION));
+
+        try {
+            trees = Trees.instance(processingEnv);
+            JavacTask.instance(processingEnv).addTaskListener(
+                new TaskListener()
+                {
+                    @Override
+                    public void started(TaskEvent event)
+                    {
+                    }
+
+                    @Override
+                    public void finished(TaskEvent event)
+                    {
+                        if (event.getKind() == TaskEvent.Kind.ANALYZE) {
+                            checkCalls(event.getCompilationUnit(), event.getTypeElement());
+                        }
+                    }
+                }
+            );
+        }
+        catch (IllegalArgumentException e) {
+            disable();
+        }
+        catch (LinkageError e) {
+            disable();
+        }
+    }
+
+    private void disable()
+    {
+        trees = null;
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "Not compiling with javac 8 or later, so format strings won't be checked");
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+    {
+        if (trees != null && generateRenderers) {
+            for (Element element : roundEnv.getRootElements()) {
+                TreePath path = element instanceof TypeElement ? trees.getPath(element) : null;
+
+                if (path != null) {
+                    Set<String> templates = new LinkedHashSet<String>();
+
+                    new TemplateCollector(templates).scan(path.getLeaf(), null);
+
+                    if (!templates.isEmpty()) {
+                        generateRenderers((TypeElement) element, new ArrayList<String>(templates));
+                    }
+                }
+            }
+        }
+
+        if (roundEnv.processingOver() && !generatedClasses.isEmpty()) {
+            writeServicesFile();
+        }
+
+        return false;
+    }
+
+    private void generateRenderers(TypeElement type, List<String> templates)
+    {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String simpleName = type.getSimpleName() + "_MogweeLoggingFormats";
+        String className = packageName.length() == 0 ? simpleName : packageName + "." + simpleName;
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(className, type);
+            Writer writer = file.openWriter();
+
+            try {
+                writer.write(RendererWriter.write(packageName, simpleName, type.getQualifiedName().toString(), templates));
+            }
+            finally {
+                writer.close();
+            }
+
+            generatedClasses.add(className);
+        }
+        catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Couldn't generate format renderers: " + e, type);
+        }
+    }
+
+    // keeps the classes generated by earlier (incremental) compilations
+    private void writeServicesFile()
+    {
+        Set<String> classes = new TreeSet<String>(generatedClasses);
+
+        try {
+            FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", SERVICES_FILE);
+            BufferedReader reader = new BufferedReader(existing.openReader(true));
+
+            try {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    // as ServiceLoader reads it
+                    String className = line.replaceFirst("#.*", "").trim();
+
+                    if (className.length() > 0) {
+                        classes.add(className);
+                    }
+                }
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (IOException e) {
+            // there isn't one yet
+        }
+
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICES_FILE);
+            Writer writer = file.openWriter();
+
+            try {
+                for (String className : classes) {
+                    writer.write(className);
+                    writer.write('\n');
+                }
+            }
+            finally {
+                writer.close();
+            }
+        }
+        catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Couldn't write " + SERVICES_FILE + ": " + e);
+        }
+    }
+
+    private void checkCalls(CompilationUnitTree unit, TypeElement type)
+    {
+        TreePath path = type == null ? null : trees.getPath(type);
+
+        if (path != null) {
+            new CallChecker(unit).scan(path, null);
+        }
+    }
+
+    private static String methodName(MethodInvocationTree call)
+    {
+        ExpressionTree select = call.getMethodSelect();
+
+        if (select instanceof IdentifierTree) {
+            return ((IdentifierTree) select).getName().toString();
+        }
+
+        if (select instanceof MemberSelectTree) {
+            return ((MemberSelectTree) select).getIdentifier().toString();
+        }
+
+        return null;
+    }
+
+    /**
+     * Finds the literal format strings of calls that look like they're to {@code *f} methods, before attribution.
+     * Sources can only be generated before javac attributes method bodies, so some may turn out to be calls to other
+     * classes' methods; {@code CompiledFormat} only caches the renderers that end up being used.
+     */
+    private static final class TemplateCollector extends TreeScanner<Void, Void>
+    {
+        private final Set<String> templates;
+
+        private TemplateCollector(Set<String> templates)
+        {
+            this.templates = templates;
+        }
+
+        @Override
+        public Void visitMethodInvocation(MethodInvocationTree call, Void unused)
+        {
+            List<? extends ExpressionTree> args = call.getArguments();
+
+            if (FORMAT_METHODS.contains(methodName(call))) {
+                // the format string is first, or second after the cause; unformatted overloads have no arguments
+                for (int i = 0; i < 2 && i + 1 < args.size(); ++i) {
+                    String template = literal(args.get(i));
+
+                    if (template != null) {
+                        if (FormatString.isRenderable(template)) {
+                            templates.add(template);
+                        }
+
+                        break;
+                    }
+                }
+            }
+
+            return super.visitMethodInvocation(call, unused);
+        }
+
+        private static String literal(ExpressionTree tree)
+        {
+            if (tree instanceof LiteralTree) {
+                Object value = ((LiteralTree) tree).getValue();
+
+                return value instanceof String ? (String) value : null;
+            }
+
+            if (tree instanceof ParenthesizedTree) {
+                return literal(((ParenthesizedTree) tree).getExpression());
+            }
+
+            if (tree.getKind() == Tree.Kind.PLUS) {
+                String left = literal(((BinaryTree) tree).getLeftOperand());
+                String right = literal(((BinaryTree) tree).getRightOperand());
+
+                return left == null || right == null ? null : left + right;
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Checks the calls to {@code *f} methods in an attributed class.
+     */
+    private final class CallChecker extends TreePathScanner<Void, Void>
+    {
+        private final CompilationUnitTree unit;
+        private final Types types = processingEnv.getTypeUtils();
+
+        private CallChecker(CompilationUnitTree unit)
+        {
+            this.unit = unit;
+        }
+
+        @Override
+        public Void visitClass(ClassTree tree, Void unused)
+        {
+            return isSuppressed() ? null : super.visitClass(tree, unused);
+        }
+
+        @Override
+        public Void visitMethod(MethodTree tree, Void unused)
+        {
+            return isSuppressed() ? null : super.visitMethod(tree, unused);
+        }
+
+        @Override
+        public Void visitVariable(VariableTree tree, Void unused)
+        {
+            return isSuppressed() ? null : super.visitVariable(tree, unused);
+        }
+
+        @Override
+        public Void visitMethodInvocation(MethodInvocationTree call, Void unused)
+        {
+            Element element = trees.getElement(getCurrentPath());
+
+            if (element instanceof ExecutableElement &&
+                FORMAT_METHODS.contains(element.getSimpleName().toString()) &&
+                element.getEnclosingElement() instanceof TypeElement &&
+                ((TypeElement) element.getEnclosingElement()).getQualifiedName().contentEquals(LOGGER) &&
+                checkedCalls.add(call)) {
+                check(call, (ExecutableElement) element);
+            }
+
+            return super.visitMethodInvocation(call, unused);
+        }
+
+        private boolean isSuppressed()
+        {
+            Element element = trees.getElement(getCurrentPath());
+            SuppressWarnings suppressed = element == null ? null : element.getAnnotation(SuppressWarnings.class);
+
+            return suppressed != null && Arrays.asList(suppressed.value()).contains(SUPPRESSION);
+        }
+
+        private void check(MethodInvocationTree call, ExecutableElement method)
+        {
+            List<? extends VariableElement> parameters = method.getParameters();
+            List<? extends ExpressionTree> args = call.getArguments();
+            int formatIndex = -1;
+
+            for (int i = 0; i < parameters.size() && formatIndex == -1; ++i) {
+                if (parameters.get(i).asType().toString().equals("java.lang.String")) {
+                    formatIndex = i;
+                }
+            }
+
+            // unformatted overloads have no arguments
+            if (formatIndex == -1 || args.size() <= formatIndex + 1) {
+                return;
+            }
+
+            ExpressionTree formatTree = args.get(formatIndex);
+            Object template = constantValue(formatTree);
+
+            if (!(template instanceof String)) {
+                return;
+            }
+
+            List<? extends ExpressionTree> formatArgs = args.subList(formatIndex + 1, args.size());
+            TypeMirror lastType = typeOf(formatArgs.get(formatArgs.size() - 1));
+            // unless an array is passed as the varargs parameter itself
+            boolean argsKnown = !(method.isVarArgs() && args.size() == parameters.size() && (lastType == null || lastType.getKind() == TypeKind.ARRAY));
+            FormatString format;
+
+            try {
+                format = FormatString.parse((String) template, argsKnown ? formatArgs.size() : -1);
+            }
+            catch (IllegalFormatException e) {
+                report(Diagnostic.Kind.ERROR, formatTree, "Bad format string " + RendererWriter.quote((String) template) + ": " + describe(e));
+                return;
+            }
+
+            if (!argsKnown) {
+                return;
+            }
+
+            String quoted = RendererWriter.quote(format.getTemplate());
+
+            for (FormatString.Specifier specifier : format.getSpecifiers()) {
+                // older Formatters treat %0$s like %s
+                if (specifier.getIndex() < 0 || specifier.getIndex() >= formatArgs.size()) {
+                    continue;
+                }
+
+                ExpressionTree arg = formatArgs.get(specifier.getIndex());
+                TypeMirror type = typeOf(arg);
+
+                if (type != null && !accepts(specifier.getConversion(), type)) {
+                    String argument = "Argument " + (specifier.getIndex() + 1) + " (" + type + ")";
+
+                    report(Diagnostic.Kind.ERROR, arg, argument + " doesn't match " + specifier.getText() + " in format string " + quoted);
+                }
+            }
+
+            if (formatArgs.size() > format.getArgumentsUsed()) {
+                int extra = formatArgs.size() - format.getArgumentsUsed();
+
+                report(Diagnostic.Kind.WARNING, formatArgs.get(format.getArgumentsUsed()), extra + " more arguments than format string " + quoted + " uses");
+            }
+        }
+
+        private TypeMirror typeOf(ExpressionTree tree)
+        {
+            return trees.getTypeMirror(new TreePath(getCurrentPath(), tree));
+        }
+
+        // a compile-time constant
+        private Object constantValue(ExpressionTree tree)
+        {
+            if (tree instanceof LiteralTree) {
+                return ((LiteralTree) tree).getValue();
+            }
+
+            if (tree instanceof ParenthesizedTree) {
+                return constantValue(((ParenthesizedTree) tree).getExpression());
+            }
+
+            if (tree instanceof IdentifierTree || tree instanceof MemberSelectTree) {
+                Element element = trees.getElement(new TreePath(getCurrentPath(), tree));
+
+                return element instanceof VariableElement ? ((VariableElement) element).getConstantValue() : null;
+            }
+
+            if (tree.getKind() == Tree.Kind.PLUS) {
+                Object left = constantValue(((BinaryTree) tree).getLeftOperand());
+                Object right = constantValue(((BinaryTree) tree).getRightOperand());
+
+                if (left != null && right != null && (left instanceof String || right instanceof String)) {
+                    return String.valueOf(left) + right;
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * @return false if no value of {@code type} can be formatted with {@code conversion}
+         */
+        private boolean accepts(char conversion, TypeMirror type)
+        {
+            List<String> accepted = CONVERSION_TYPES.get(conversion);
+
+            if (accepted == null || type.getKind() == TypeKind.NULL || type.getKind() == TypeKind.ERROR) {
+                return true;
+            }
+
+            TypeMirror argType = type.getKind().isPrimitive() ? types.boxedClass(types.getPrimitiveType(type.getKind())).asType() : types.erasure(type);
+
+            for (String name : accepted) {
+                TypeElement acceptedElement = processingEnv.getElementUtils().getTypeElement(name);
+
+                if (acceptedElement != null) {
+                    TypeMirror acceptedType = acceptedElement.asType();
+
+                    // a supertype (e.g., Object or Number) may hold an accepted value
+                    if (types.isAssignable(argType, acceptedType) || types.isAssignable(acceptedType, argType)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        private void report(Diagnostic.Kind kind, Tree tree, String message)
+        {
+            trees.printMessage(kind, message, tree, unit);
+        }
+    }
+
+    private static String describe(IllegalFormatException e)
+    {
+        return e.getMessage() == null ? e.getClass().getSimpleName() : e.getClass().getSimpleName() + " (" + e.getMessage() + ")";
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the source of a {@code com.mogwee.logging.GeneratedFormats} subclass, with a method for each template that
+ * renders it the way {@code CompiledFormat} does, with the template's literals and conversions unrolled.
+ */
+final class RendererWriter
+{
+    private final StringBuilder source = new StringBuilder();
+
+    private RendererWriter()
+    {
+    }
+
+    /**
+     * @param packageName the package of the generated class, or an empty string
+     * @param simpleName  the name of the generated class
+     * @param origin      the name of the class the templates were found in
+     * @param templates   templates that {@link FormatString#isRenderable(String) can be rendered}
+     * @return the source of the generated class
+     */
+    static String write(String packageName, String simpleName, String origin, List<String> templates)
+    {
+        RendererWriter writer = new RendererWriter();
+
+        writer.writeClass(packageName, simpleName, origin, templates);
+
+        return writer.source.toString();
+    }
+
+    private void writeClass(String packageName, String simpleName, String origin, List<String> templates)
+    {
+        line("// Generated by " + FormatStringProcessor.class.getName() + " from " + origin + "; don't edit.");
+
+        if (packageName.length() > 0) {
+            line("package " + packageName + ";");
+        }
+
+        line("");
+        line("public final class " + simpleName + " extends com.mogwee.logging.GeneratedFormats");
+        line("{");
+        line("    public " + simpleName + "()");
+        line("    {");
+        line("        super(");
+
+        for (int i = 0; i < templates.size(); ++i) {
+            line("            " + quote(templates.get(i)) + (i + 1 < templates.size() ? "," : ""));
+        }
+
+        line("        );");
+        line("    }");
+        line("");
+        line("    @Override");
+        line("    protected String render(int index, StringBuilder result, Object[] args)");
+        line("    {");
+        line("        switch (index) {");
+
+        for (int i = 0; i < templates.size(); ++i) {
+            line("            case " + i + ":");
+            line("                return render" + i + "(result, args);");
+        }
+
+        line("            default:");
+        line("                return null;");
+        line("        }");
+        line("    }");
+
+        for (int i = 0; i < templates.size(); ++i) {
+            writeRenderMethod(i, templates.get(i));
+        }
+
+        line("}");
+    }
+
+    private void writeRenderMethod(int index, String template)
+    {
+        List<String> statements = new ArrayList<String>();
+        StringBuilder checks = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        int arg = 0;
+
+        for (int i = 0; i < template.length(); ++i) {
+            char c = template.charAt(i);
+
+            if (c != '%') {
+                literal.append(c);
+                continue;
+            }
+
+            c = template.charAt(++i);
+
+            if (c == '%') {
+                literal.append('%');
+                continue;
+            }
+
+            if (literal.length() > 0) {
+                statements.add("result.append(" + quote(literal.toString()) + ");");
+                literal.setLength(0);
+            }
+
+            if (c == 'n') {
+                statements.add("result.append(LINE_SEPARATOR);");
+            }
+            else if (c == 's') {
+                checks.append(" || !isPlainString(args[").append(arg).append("])");
+                statements.add("result.append(String.valueOf(args[" + arg + "]));");
+                ++arg;
+            }
+            else {
+                checks.append(" || !isPlainInteger(args[").append(arg).append("])");
+                statements.add("appendInteger(result, args[" + arg + "]);");
+                ++arg;
+            }
+        }
+
+        if (literal.length() > 0) {
+            statements.add("result.append(" + quote(literal.toString()) + ");");
+        }
+
+        line("");
+        line("    // " + quote(template));
+        line("    private static String render" + index + "(StringBuilder result, Object[] args)");
+        line("    {");
+
+        // check every argument before calling any toString() so a fallback never calls toString() twice
+        if (arg > 0) {
+            line("        if (args.length < " + arg + checks + ") {");
+            line("            return null;");
+            line("        }");
+            line("");
+        }
+
+        for (String statement : statements) {
+            line("        " + statement);
+        }
+
+        if (!statements.isEmpty()) {
+            line("");
+        }
+
+        line("        return result.toString();");
+        line("    }");
+    }
+
+    private void line(String text)
+    {
+        source.append(text).append('\n');
+    }
+
+    static String quote(String value)
+    {
+        StringBuilder result = new StringBuilder(value.length() + 2);
+
+        result.append('"');
+
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"':
+                    result.append("\\\"");
+                    break;
+                case '\\':
+                    result.append("\\\\");
+                    break;
+                case '\n':
+                    result.append("\\n");
+                    break;
+                case '\r':
+                    result.append("\\r");
+                    break;
+                case '\t':
+                    result.append("\\t");
+                    break;
+                default:
+                    // unicode escapes are translated before anything else, so control characters need octal escapes
+                    if (c < 0x20 || c == 0x7F) {
+                        result.append(String.format("\\%03o", (int) c));
+                    }
+                    else if (c > 0x7E) {
+                        result.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        result.append(c);
+                    }
+                    break;
+            }
+        }
+
+        return result.append('"').toString();
+    }
+}
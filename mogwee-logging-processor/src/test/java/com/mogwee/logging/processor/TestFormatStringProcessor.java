@@ -0,0 +1,311 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging.processor;
+
+import com.mogwee.logging.GeneratedFormats;
+import com.mogwee.logging.Logger;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Formattable;
+import java.util.Formatter;
+import java.util.List;
+
+public class TestFormatStringProcessor
+{
+    private File output;
+    private final List<Diagnostic<? extends JavaFileObject>> diagnostics = new ArrayList<Diagnostic<? extends JavaFileObject>>();
+
+    private static class Source extends SimpleJavaFileObject
+    {
+        private final String code;
+
+        private Source(String className, String code)
+        {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors)
+        {
+            return code;
+        }
+    }
+
+    private static class FormattableArgument implements Formattable
+    {
+        @Override
+        public void formatTo(Formatter formatter, int flags, int width, int precision)
+        {
+            formatter.format("formatted");
+        }
+    }
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup() throws IOException
+    {
+        output = File.createTempFile("processor", "");
+        Assert.assertTrue(output.delete());
+        Assert.assertTrue(output.mkdir());
+        diagnostics.clear();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        delete(output);
+    }
+
+    private static void delete(File file)
+    {
+        File[] children = file.listFiles();
+
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+
+    private static String location(Class<?> clazz)
+    {
+        return new File(clazz.getProtectionDomain().getCodeSource().getLocation().getPath()).getPath();
+    }
+
+    /**
+     * @param body the body of a method of a class that has a logger named LOG
+     * @return whether it compiled
+     */
+    private boolean compile(String body, String... options)
+    {
+        String code = "package com.example;\n" +
+            "import com.mogwee.logging.Logger;\n" +
+            "import java.util.*;\n" +
+            "public class Example\n" +
+            "{\n" +
+            "    private static final Logger LOG = Logger.getLogger(Example.class);\n" +
+            "    private static final String FORMAT = \"Handled %s in %d ms\";\n" +
+            body +
+            "}\n";
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<JavaFileObject>();
+        List<String> arguments = new ArrayList<String>(Arrays.asList(
+            "-classpath", location(Logger.class) + File.pathSeparator + location(org.apache.log4j.Logger.class),
+            "-d", output.getPath(),
+            "-s", output.getPath()
+        ));
+
+        arguments.addAll(Arrays.asList(options));
+
+        JavaCompiler.CompilationTask task = compiler.getTask(
+            null,
+            null,
+            collector,
+            arguments,
+            null,
+            Collections.singletonList(new Source("com.example.Example", code))
+        );
+
+        task.setProcessors(Collections.singletonList(new FormatStringProcessor()));
+
+        boolean success = task.call();
+
+        diagnostics.addAll(collector.getDiagnostics());
+
+        return success;
+    }
+
+    private List<String> messages(Diagnostic.Kind kind)
+    {
+        List<String> messages = new ArrayList<String>();
+
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+            if (diagnostic.getKind() == kind && diagnostic.getSource() != null) {
+                messages.add(diagnostic.getLineNumber() + ": " + diagnostic.getMessage(null));
+            }
+        }
+
+        return messages;
+    }
+
+    @Test
+    public void testValidCalls()
+    {
+        Assert.assertTrue(compile(
+            "    void run(Object request, long elapsed, Integer count, Number number, Object unknown, Object[] args, Throwable cause)\n" +
+                "    {\n" +
+                "        LOG.infof(\"Handled %s in %d ms\", request, elapsed);\n" +
+                "        LOG.warnf(cause, \"Handled %s in %d ms\", request, count);\n" +
+                "        LOG.errorDebugf(cause, FORMAT, request, number);\n" +
+                "        LOG.debugf(\"%d%% of %s (%x, %c, %.2f, %tY)\", 5, null, 255L, 'c', 1.5, new Date());\n" +
+                "        LOG.infof(\"Took %d ms\", unknown);\n" +
+                "        LOG.infof(\"%2$s %1$s %<s\", \"a\", \"b\");\n" +
+                "        LOG.infof(\"Handled %s in %d ms\" + \"%n\", args);\n" +
+                "        LOG.infof(\"Not checked %q\");\n" +
+                "    }\n"
+        ), diagnostics.toString());
+        Assert.assertEquals(messages(Diagnostic.Kind.ERROR), Collections.<String>emptyList());
+        Assert.assertEquals(messages(Diagnostic.Kind.WARNING), Collections.<String>emptyList());
+    }
+
+    @Test
+    public void testBadCalls()
+    {
+        Assert.assertFalse(compile(
+            "    void run(String request, long elapsed, Object[] args)\n" +
+                "    {\n" +
+                "        LOG.infof(\"Handled %s in %d ms\", request, request);\n" +
+                "        LOG.warnf(new RuntimeException(), FORMAT, request);\n" +
+                "        LOG.debugf(\"Handled %q\", request);\n" +
+                "        LOG.infof(\"Took %.2d ms\", elapsed);\n" +
+                "        LOG.infof(\"Took %f ms\", elapsed);\n" +
+                "        LOG.infof(\"Handled %\" + \"s in %c\", request, 1.5);\n" +
+                "        LOG.infof(\"%-s\", args);\n" +
+                "        LOG.infof(\"Took %d ms\", elapsed, request);\n" +
+                "    }\n"
+        ));
+
+        List<String> errors = messages(Diagnostic.Kind.ERROR);
+
+        Assert.assertEquals(errors.size(), 7, errors.toString());
+        Assert.assertEquals(errors.get(0), "10: Argument 2 (java.lang.String) doesn't match %d in format string \"Handled %s in %d ms\"");
+        Assert.assertTrue(errors.get(1).startsWith("11: Bad format string \"Handled %s in %d ms\": MissingFormatArgumentException"), errors.get(1));
+        Assert.assertTrue(errors.get(2).startsWith("12: Bad format string \"Handled %q\": UnknownFormatConversionException"), errors.get(2));
+        Assert.assertTrue(errors.get(3).startsWith("13: Bad format string \"Took %.2d ms\": IllegalFormatPrecisionException"), errors.get(3));
+        Assert.assertEquals(errors.get(4), "14: Argument 1 (long) doesn't match %f in format string \"Took %f ms\"");
+        Assert.assertEquals(errors.get(5), "15: Argument 2 (double) doesn't match %c in format string \"Handled %s in %c\"");
+        Assert.assertTrue(errors.get(6).startsWith("16: Bad format string \"%-s\": MissingFormatWidthException"), errors.get(6));
+        Assert.assertEquals(messages(Diagnostic.Kind.WARNING), Arrays.asList("17: 1 more arguments than format string \"Took %d ms\" uses"));
+    }
+
+    @Test
+    public void testSuppression()
+    {
+        Assert.assertTrue(compile(
+            "    @SuppressWarnings(\"" + FormatStringProcessor.SUPPRESSION + "\")\n" +
+                "    void run(String request)\n" +
+                "    {\n" +
+                "        LOG.infof(\"Handled %d\", request);\n" +
+                "    }\n"
+        ), diagnostics.toString());
+    }
+
+    @Test
+    public void testGeneratedRenderers() throws Exception
+    {
+        Assert.assertTrue(compile(
+            "    void run(String request, long elapsed, Throwable cause)\n" +
+                "    {\n" +
+                "        LOG.infof(\"Handled %s in %d ms%n\", request, elapsed);\n" +
+                "        LOG.warnf(cause, \"100%% \\\"done\\\"\\t\\u00e9\\u0001 %s\", request);\n" +
+                "        LOG.infof(\"Handled %s in %d ms%n\", request, elapsed);\n" +
+                "        LOG.infof(FORMAT, request, elapsed);\n" +
+                "        LOG.infof(\"Took %5d ms\", elapsed);\n" +
+                "    }\n"
+        ), diagnostics.toString());
+
+        Assert.assertEquals(read(new File(output, FormatStringProcessor.SERVICES_FILE)), "com.example.Example_MogweeLoggingFormats\n");
+
+        URLClassLoader loader = new URLClassLoader(new URL[]{output.toURI().toURL()}, getClass().getClassLoader());
+        GeneratedFormats formats = (GeneratedFormats) loader.loadClass("com.example.Example_MogweeLoggingFormats").newInstance();
+        Method getTemplates = GeneratedFormats.class.getDeclaredMethod("getTemplates");
+        Method render = GeneratedFormats.class.getDeclaredMethod("render", int.class, StringBuilder.class, Object[].class);
+
+        getTemplates.setAccessible(true);
+        render.setAccessible(true);
+
+        // only literals with the specifiers CompiledFormat handles, once each
+        String[] templates = (String[]) getTemplates.invoke(formats);
+
+        Assert.assertEquals(Arrays.asList(templates), Arrays.asList("Handled %s in %d ms%n", "100%% \"done\"\té\u0001 %s"));
+
+        Object[][] argLists = {
+            {"request", 12L},
+            {null, null},
+            {"request", (byte) 12, "extra"},
+            {new FormattableArgument(), 12},
+            {"request", "bogus"},
+            {"request"},
+        };
+
+        for (int i = 0; i < templates.length; ++i) {
+            for (Object[] args : argLists) {
+                String rendered = (String) render.invoke(formats, i, new StringBuilder(), args);
+
+                if (rendered != null) {
+                    Assert.assertEquals(rendered, String.format(templates[i], args));
+                }
+                else {
+                    // only where String.format() does something special
+                    Assert.assertTrue(args.length < 2 || args[0] instanceof Formattable || args[1] instanceof String, Arrays.toString(args));
+                }
+            }
+        }
+
+        Assert.assertNull(render.invoke(formats, 2, new StringBuilder(), new Object[0]));
+    }
+
+    @Test
+    public void testRenderersDisabled()
+    {
+        Assert.assertTrue(compile(
+            "    void run(String request)\n" +
+                "    {\n" +
+                "        LOG.infof(\"Handled %s\", request);\n" +
+                "    }\n",
+            "-A" + FormatStringProcessor.RENDERERS_OPTION + "=false"
+        ), diagnostics.toString());
+        Assert.assertFalse(new File(output, FormatStringProcessor.SERVICES_FILE).exists());
+    }
+
+    private static String read(File file) throws IOException
+    {
+        byte[] bytes = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+
+        try {
+            Assert.assertEquals(in.read(bytes), bytes.length);
+        }
+        finally {
+            in.close();
+        }
+
+        return new String(bytes, "UTF-8");
+    }
+}
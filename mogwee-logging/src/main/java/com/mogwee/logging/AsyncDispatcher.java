@@ -0,0 +1,431 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Category;
+import org.apache.log4j.Level;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands logging events off to a dedicated thread that calls the Log4J appenders.
+ * <p/>
+ * By default, {@link Logger} calls the Log4J appenders on the logging thread, which means every thread logging to
+ * the same appender queues up behind Log4J's locks while the appender does its I/O.  Once a dispatcher is
+ * {@link #install(int, OverflowPolicy) installed}, the logging thread only puts the event on a bounded, lock-free
+ * ring buffer and a single consumer thread drains it into the appenders.
+ * <p/>
+ * Location information (e.g., {@code %L} in a {@code PatternLayout}) isn't available for dispatched events, since
+ * it's computed from the stack of whichever thread asks for it.
+ * <p/>
+ * Log4J's appenders run inside its monitors ({@code Category.callAppenders()} and {@code AppenderSkeleton.doAppend()}
+ * are synchronized), so a virtual thread that calls them directly pins its carrier thread for the duration of the
+ * appender's I/O.  Installed with {@code captureNdc} false, a dispatcher keeps logging threads out of every monitor
+ * and away from all I/O: they only enqueue the event (parking, which releases the carrier, if the policy is
+ * {@link OverflowPolicy#BLOCK BLOCK} and the queue is full), and the appenders run on the consumer, a platform thread.
+ */
+public final class AsyncDispatcher
+{
+    /**
+     * What a logging thread does when the ring buffer is full.
+     */
+    public enum OverflowPolicy
+    {
+        /**
+         * Wait for the consumer thread to make space.
+         */
+        BLOCK,
+        /**
+         * Discard the event.
+         */
+        DROP,
+        /**
+         * Discard DEBUG and INFO events once the ring buffer is three-quarters full; wait for space for anything else.
+         */
+        DROP_DEBUG_AND_INFO
+    }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private static volatile AsyncDispatcher installed = null;
+
+    private final int capacity;
+    private final int mask;
+    private final int lowPriorityLimit;
+    private final OverflowPolicy policy;
+    private final boolean captureNdc;
+    // slot i is free for the producer claiming position p when sequences[i] == p, and full once sequences[i] == p + 1
+    private final AtomicLongArray sequences;
+    private final AtomicReferenceArray<LoggingEvent> events;
+    private final AtomicReferenceArray<Category> categories;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLongArray dropped = new AtomicLongArray(5);
+    private final Thread consumer;
+    private final Thread shutdownHook;
+    private volatile boolean consumerParked = false;
+    private volatile boolean running = true;
+
+    /**
+     * Starts a dispatcher and routes all subsequent logging through it.
+     * Any previously installed dispatcher is drained and stopped first.
+     *
+     * @param capacity maximum number of queued events; rounded up to a power of two
+     * @param policy   what to do when the queue is full
+     * @return the installed dispatcher
+     */
+    public static AsyncDispatcher install(int capacity, OverflowPolicy policy)
+    {
+        return install(capacity, policy, true);
+    }
+
+    /**
+     * Starts a dispatcher and routes all subsequent logging through it.
+     * Any previously installed dispatcher is drained and stopped first.
+     *
+     * @param capacity   maximum number of queued events; rounded up to a power of two
+     * @param policy     what to do when the queue is full
+     * @param captureNdc whether to look up each event's NDC on the logging thread.  Log4J keeps every thread's NDC in
+     *                   one synchronized table, so pass false (and the NDC isn't logged) to keep virtual threads from
+     *                   contending for it
+     * @return the installed dispatcher
+     */
+    public static synchronized AsyncDispatcher install(int capacity, OverflowPolicy policy, boolean captureNdc)
+    {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(String.format("capacity must be positive (was %s)", capacity));
+        }
+
+        if (policy == null) {
+            throw new IllegalArgumentException("policy must not be null");
+        }
+
+        uninstall();
+
+        AsyncDispatcher dispatcher = new AsyncDispatcher(capacity, policy, captureNdc);
+
+        dispatcher.consumer.start();
+        Runtime.getRuntime().addShutdownHook(dispatcher.shutdownHook);
+        installed = dispatcher;
+
+        return dispatcher;
+    }
+
+    /**
+     * Stops routing logging through the installed dispatcher (if any), then waits for it to drain its queue.
+     */
+    public static synchronized void uninstall()
+    {
+        AsyncDispatcher dispatcher = installed;
+
+        if (dispatcher != null) {
+            installed = null;
+            dispatcher.stop();
+
+            try {
+                Runtime.getRuntime().removeShutdownHook(dispatcher.shutdownHook);
+            }
+            catch (IllegalStateException e) {
+                // already shutting down
+            }
+        }
+    }
+
+    /**
+     * @return the installed dispatcher, or null if logging is synchronous
+     */
+    public static AsyncDispatcher installed()
+    {
+        return installed;
+    }
+
+    private AsyncDispatcher(int capacity, OverflowPolicy policy, boolean captureNdc)
+    {
+        int size = Integer.highestOneBit(capacity);
+
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        this.capacity = size;
+        this.mask = size - 1;
+        this.lowPriorityLimit = size - size / 4;
+        this.policy = policy;
+        this.captureNdc = captureNdc;
+        this.sequences = new AtomicLongArray(size);
+        this.events = new AtomicReferenceArray<LoggingEvent>(size);
+        this.categories = new AtomicReferenceArray<Category>(size);
+
+        for (int i = 0; i < size; ++i) {
+            sequences.set(i, i);
+        }
+
+        this.consumer = new Thread(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    consume();
+                }
+            },
+            "mogwee-logging-dispatcher"
+        );
+        this.consumer.setDaemon(true);
+        this.shutdownHook = new Thread(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    stop();
+                }
+            },
+            "mogwee-logging-dispatcher-shutdown"
+        );
+    }
+
+    /**
+     * @return the maximum number of queued events
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * @return the overflow policy
+     */
+    public OverflowPolicy getPolicy()
+    {
+        return policy;
+    }
+
+    /**
+     * @return whether each event's NDC is looked up on the logging thread
+     */
+    public boolean isCapturingNdc()
+    {
+        return captureNdc;
+    }
+
+    /**
+     * @return the number of events currently queued
+     */
+    public int getQueuedCount()
+    {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * @return the total number of events discarded because the queue was full
+     */
+    public long getDroppedCount()
+    {
+        long total = 0;
+
+        for (int i = 0; i < dropped.length(); ++i) {
+            total += dropped.get(i);
+        }
+
+        return total;
+    }
+
+    /**
+     * @param level a logging level
+     * @return the number of events at the given level discarded because the queue was full
+     */
+    public long getDroppedCount(Level level)
+    {
+        return dropped.get(levelIndex(level));
+    }
+
+    void dispatch(Category category, LoggingEvent event)
+    {
+        // these are looked up lazily from the current thread, which won't be the right one by the time an appender asks
+        event.getThreadName();
+        // the MDC is a per-thread table, so copying it never waits on another thread
+        event.getMDCCopy();
+
+        if (captureNdc) {
+            event.getNDC();
+        }
+
+        // an appender that logs would otherwise wait on itself once the queue filled up
+        if (!running || Thread.currentThread() == consumer) {
+            category.callAppenders(event);
+            return;
+        }
+
+        boolean lowPriority = event.getLevel().toInt() < Level.WARN_INT;
+
+        if (policy == OverflowPolicy.DROP_DEBUG_AND_INFO && lowPriority && getQueuedCount() >= lowPriorityLimit) {
+            dropped.incrementAndGet(levelIndex(event.getLevel()));
+            return;
+        }
+
+        while (!offer(category, event)) {
+            if (policy == OverflowPolicy.DROP) {
+                dropped.incrementAndGet(levelIndex(event.getLevel()));
+                return;
+            }
+
+            if (!running) {
+                category.callAppenders(event);
+                return;
+            }
+
+            wakeConsumer();
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+
+        if (!running) {
+            drainStragglers();
+        }
+        else if (consumerParked) {
+            wakeConsumer();
+        }
+    }
+
+    private boolean offer(Category category, LoggingEvent event)
+    {
+        long position = tail.get();
+
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    events.lazySet(index, event);
+                    categories.lazySet(index, category);
+                    sequences.set(index, position + 1);
+
+                    return true;
+                }
+
+                position = tail.get();
+            }
+            else if (difference < 0) {
+                return false;
+            }
+            else {
+                position = tail.get();
+            }
+        }
+    }
+
+    private void wakeConsumer()
+    {
+        consumerParked = false;
+        LockSupport.unpark(consumer);
+    }
+
+    // returns false if the queue was empty
+    private boolean drainOne()
+    {
+        long position = head.get();
+        int index = (int) position & mask;
+
+        if (sequences.get(index) != position + 1) {
+            return false;
+        }
+
+        LoggingEvent event = events.get(index);
+        Category category = categories.get(index);
+
+        events.lazySet(index, null);
+        categories.lazySet(index, null);
+        sequences.set(index, position + capacity);
+        head.lazySet(position + 1);
+
+        try {
+            category.callAppenders(event);
+        }
+        catch (RuntimeException e) {
+            LogLog.error("Appender failed while dispatching asynchronously", e);
+        }
+
+        return true;
+    }
+
+    private void consume()
+    {
+        while (running) {
+            if (!drainOne()) {
+                consumerParked = true;
+
+                // re-check after advertising that we're parked so an event offered in between isn't stranded
+                if (!drainOne()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+
+                consumerParked = false;
+            }
+        }
+
+        while (drainOne()) {
+            // flush whatever was queued before we were stopped
+        }
+    }
+
+    private void stop()
+    {
+        running = false;
+        LockSupport.unpark(consumer);
+        drainStragglers();
+    }
+
+    // an event offered while we were stopping may have missed the consumer's final drain
+    private synchronized void drainStragglers()
+    {
+        try {
+            consumer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        while (drainOne()) {
+            // the consumer is gone, so this thread is now the only one draining
+        }
+    }
+
+    static int levelIndex(Level level)
+    {
+        switch (level.toInt()) {
+            case Level.DEBUG_INT:
+                return 0;
+            case Level.INFO_INT:
+                return 1;
+            case Level.WARN_INT:
+                return 2;
+            case Level.ERROR_INT:
+                return 3;
+            default:
+                return 4;
+        }
+    }
+}
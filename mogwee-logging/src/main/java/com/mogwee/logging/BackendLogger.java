@@ -0,0 +1,51 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+
+/**
+ * One of a {@link LoggingBackend}'s loggers.
+ */
+public interface BackendLogger
+{
+    String getName();
+
+    /**
+     * Called on every level check, unless {@link Logger} caches levels (see {@link Logger#refreshLevels()}), in which
+     * case it's only called whenever the configuration may have changed.
+     *
+     * @return the lowest level logged
+     */
+    Level getThreshold();
+
+    /**
+     * @param level   the message's level, at or above the threshold
+     * @param message the rendered message
+     * @param cause   an exception whose stack trace is logged, or null
+     * @param format  how to render the stack trace of {@code cause}
+     */
+    void log(Level level, String message, Throwable cause, StackTraceFormat format);
+
+    /**
+     * Like {@link #log(Level, String, Throwable, StackTraceFormat)}, but doesn't return until the message is as durable
+     * as the backend can make it (e.g., committed to disk).
+     *
+     * @throws DurableLogException if the message couldn't be made durable
+     */
+    void logDurably(Level level, String message, Throwable cause, StackTraceFormat format);
+}
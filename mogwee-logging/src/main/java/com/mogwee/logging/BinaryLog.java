@@ -0,0 +1,577 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.helpers.LogLog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Writes logging events to a compact binary file instead of calling the Log4J appenders, deferring formatting
+ * until the file is read.
+ * <p/>
+ * Once a binary log is {@link #install(File) installed}, each distinct format string passed to the {@link Logger}
+ * {@code *f} methods is written to the file once, with an integer ID.  Each event is then written as its time stamp,
+ * level, logger ID, format string ID and raw arguments, so the logging thread never calls {@code String.format()}.
+ * {@link BinaryLogDecoder} turns the file back into the messages that would have been logged.  Messages that don't
+ * need formatting, and formatted messages with arguments other than primitives (boxed), strings and nulls, are
+ * formatted as usual and written as text, as are messages whose format string is built dynamically once the log has
+ * assigned 64K format string IDs.
+ * <p/>
+ * Levels are still checked against the Log4J configuration, but Log4J's appenders (and additivity) are bypassed
+ * entirely.  Locale-sensitive conversions are formatted with the decoder's default locale.
+ * <p/>
+ * Events are buffered, and the buffer is written out when it fills up, once a second, and when the log is
+ * uninstalled (including at JVM shutdown).
+ */
+public final class BinaryLog
+{
+    static final int MAGIC = 0x4D4F4742;
+    static final int VERSION = 1;
+
+    static final int TEMPLATE_RECORD = 1;
+    static final int LOGGER_RECORD = 2;
+    static final int EVENT_RECORD = 3;
+    static final int MESSAGE_RECORD = 4;
+
+    static final int NULL_ARG = 0;
+    static final int BOOLEAN_ARG = 1;
+    static final int CHAR_ARG = 2;
+    static final int BYTE_ARG = 3;
+    static final int SHORT_ARG = 4;
+    static final int INT_ARG = 5;
+    static final int LONG_ARG = 6;
+    static final int FLOAT_ARG = 7;
+    static final int DOUBLE_ARG = 8;
+    static final int STRING_ARG = 9;
+
+    // format strings (or loggers) after this many are written as text (or to Log4J), since IDs are kept until closed
+    static final int MAX_IDS = 64 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long FLUSH_MILLIS = 1000;
+    private static final ThreadLocal<Encoder> ENCODERS = new ThreadLocal<Encoder>()
+    {
+        @Override
+        protected Encoder initialValue()
+        {
+            return new Encoder();
+        }
+    };
+
+    private static volatile BinaryLog installed = null;
+
+    private final File file;
+    private final OutputStream out;
+    private final ConcurrentMap<String, Integer> templates = new ConcurrentHashMap<String, Integer>();
+    private final ConcurrentMap<String, Integer> loggers = new ConcurrentHashMap<String, Integer>();
+    // guarded by this
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position = 0;
+    private boolean closed = false;
+    private final Thread flusher;
+    private final Thread shutdownHook;
+
+    /**
+     * Creates (or truncates) a binary log file and routes all subsequent logging to it.
+     * Any previously installed binary log is flushed and closed first.
+     *
+     * @param file the file to write
+     * @return the installed binary log
+     * @throws IOException if the file can't be created
+     */
+    public static synchronized BinaryLog install(File file) throws IOException
+    {
+        uninstall();
+
+        BinaryLog binaryLog = new BinaryLog(file);
+
+        binaryLog.flusher.start();
+        Runtime.getRuntime().addShutdownHook(binaryLog.shutdownHook);
+        installed = binaryLog;
+
+        return binaryLog;
+    }
+
+    /**
+     * Stops routing logging to the installed binary log (if any), then flushes and closes it.
+     */
+    public static synchronized void uninstall()
+    {
+        BinaryLog binaryLog = installed;
+
+        if (binaryLog != null) {
+            installed = null;
+            binaryLog.close();
+
+            try {
+                Runtime.getRuntime().removeShutdownHook(binaryLog.shutdownHook);
+            }
+            catch (IllegalStateException e) {
+                // already shutting down
+            }
+        }
+    }
+
+    /**
+     * @return the installed binary log, or null if logging goes to the Log4J appenders
+     */
+    public static BinaryLog installed()
+    {
+        return installed;
+    }
+
+    private BinaryLog(File file) throws IOException
+    {
+        this.file = file;
+        this.out = new FileOutputStream(file);
+
+        Encoder header = new Encoder();
+
+        header.writeFixedInt(MAGIC);
+        header.writeVarint(VERSION);
+        out.write(header.bytes, 0, header.length);
+
+        this.flusher = new Thread("mogwee-logging-binary-flusher")
+        {
+            @Override
+            public void run()
+            {
+                while (true) {
+                    try {
+                        Thread.sleep(FLUSH_MILLIS);
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+
+                    flush();
+                }
+            }
+        };
+        this.flusher.setDaemon(true);
+        this.shutdownHook = new Thread(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    close();
+                }
+            },
+            "mogwee-logging-binary-shutdown"
+        );
+    }
+
+    /**
+     * @return the file being written
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Writes out any buffered events.
+     */
+    public synchronized void flush()
+    {
+        if (position > 0 && !closed) {
+            try {
+                out.write(buffer, 0, position);
+            }
+            catch (IOException e) {
+                LogLog.error("Failed to write binary log " + file, e);
+            }
+
+            position = 0;
+        }
+    }
+
+    /**
+     * Writes an event with an unformatted message.
+     *
+     * @param level      the event's level (after any level check)
+     * @param loggerName the name of the Log4J logger
+     * @param template   the format string
+     * @param args       the format arguments, with any lazy arguments already resolved
+     * @param trailer    text to append to the formatted message, or null
+     * @param cause      the exception whose stack trace is logged, or null
+     * @param format     how to render the stack trace of {@code cause}
+     * @return false if the event wasn't written (because an argument can't be written exactly, or the log has been
+     * closed), in which case it should be formatted as usual
+     */
+    boolean writeEvent(
+        Level level,
+        String loggerName,
+        String template,
+        Object[] args,
+        String trailer,
+        Throwable cause,
+        StackTraceFormat format
+    )
+    {
+        if (template == null) {
+            return false;
+        }
+
+        int loggerId = id(loggers, LOGGER_RECORD, loggerName);
+        int templateId = id(templates, TEMPLATE_RECORD, template);
+
+        if (loggerId < 0 || templateId < 0) {
+            return false;
+        }
+
+        Encoder encoder = ENCODERS.get();
+
+        encoder.reset();
+        encoder.writeByte(EVENT_RECORD);
+        encoder.writeFixedLong(System.currentTimeMillis());
+        encoder.writeVarint(level.toInt());
+        encoder.writeVarint(loggerId);
+        encoder.writeVarint(templateId);
+
+        if (args == null) {
+            encoder.writeVarint(0);
+        }
+        else {
+            encoder.writeVarint(args.length + 1);
+
+            for (Object arg : args) {
+                if (!encoder.writeArg(arg)) {
+                    return false;
+                }
+            }
+        }
+
+        encoder.writeString(trailer);
+        encoder.writeThrowable(cause, format);
+
+        return append(encoder);
+    }
+
+    /**
+     * Writes an event with an already formatted message.
+     *
+     * @param level      the event's level
+     * @param loggerName the name of the Log4J logger
+     * @param message    the message
+     * @param cause      the exception whose stack trace is logged, or null
+     * @param format     how to render the stack trace of {@code cause}
+     * @return false if the event wasn't written because the log has been closed (or has run out of logger IDs)
+     */
+    boolean writeMessage(Level level, String loggerName, String message, Throwable cause, StackTraceFormat format)
+    {
+        int loggerId = id(loggers, LOGGER_RECORD, loggerName);
+
+        if (loggerId < 0) {
+            return false;
+        }
+
+        Encoder encoder = ENCODERS.get();
+
+        encoder.reset();
+        encoder.writeByte(MESSAGE_RECORD);
+        encoder.writeFixedLong(System.currentTimeMillis());
+        encoder.writeVarint(level.toInt());
+        encoder.writeVarint(loggerId);
+        encoder.writeString(message);
+        encoder.writeThrowable(cause, format);
+
+        return append(encoder);
+    }
+
+    /**
+     * @return the number of format strings that have been assigned IDs
+     */
+    int getTemplateCount()
+    {
+        return templates.size();
+    }
+
+    // the definition is written before the ID is published, so it always precedes the first event that uses it;
+    // returns -1 once MAX_IDS have been assigned
+    private int id(ConcurrentMap<String, Integer> ids, int recordType, String name)
+    {
+        Integer id = ids.get(name);
+
+        if (id == null) {
+            synchronized (this) {
+                id = ids.get(name);
+
+                if (closed) {
+                    // the event won't be written either
+                    return 0;
+                }
+
+                if (id == null) {
+                    if (ids.size() >= MAX_IDS) {
+                        return -1;
+                    }
+
+                    Encoder encoder = new Encoder();
+
+                    id = ids.size();
+                    encoder.writeByte(recordType);
+                    encoder.writeVarint(id);
+                    encoder.writeString(name);
+                    appendLocked(encoder);
+                    ids.put(name, id);
+                }
+            }
+        }
+
+        return id;
+    }
+
+    private synchronized boolean append(Encoder encoder)
+    {
+        if (closed) {
+            return false;
+        }
+
+        appendLocked(encoder);
+
+        return true;
+    }
+
+    private void appendLocked(Encoder encoder)
+    {
+        if (position + encoder.length > buffer.length) {
+            flush();
+        }
+
+        if (encoder.length > buffer.length) {
+            try {
+                out.write(encoder.bytes, 0, encoder.length);
+            }
+            catch (IOException e) {
+                LogLog.error("Failed to write binary log " + file, e);
+            }
+        }
+        else {
+            System.arraycopy(encoder.bytes, 0, buffer, position, encoder.length);
+            position += encoder.length;
+        }
+    }
+
+    private synchronized void close()
+    {
+        if (!closed) {
+            flush();
+            closed = true;
+            flusher.interrupt();
+
+            try {
+                out.close();
+            }
+            catch (IOException e) {
+                LogLog.error("Failed to close binary log " + file, e);
+            }
+        }
+    }
+
+    private static final class Encoder
+    {
+        // don't hang on to the buffer an unusually large event needed
+        private static final int MAX_RETAINED = 16 * 1024;
+
+        private byte[] bytes = new byte[256];
+        private int length = 0;
+
+        void reset()
+        {
+            if (bytes.length > MAX_RETAINED) {
+                bytes = new byte[256];
+            }
+
+            length = 0;
+        }
+
+        private void ensure(int count)
+        {
+            if (length + count > bytes.length) {
+                byte[] newBytes = new byte[Math.max(length + count, 2 * bytes.length)];
+
+                System.arraycopy(bytes, 0, newBytes, 0, length);
+                bytes = newBytes;
+            }
+        }
+
+        void writeByte(int value)
+        {
+            ensure(1);
+            bytes[length++] = (byte) value;
+        }
+
+        void writeVarint(int value)
+        {
+            ensure(5);
+
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+
+            bytes[length++] = (byte) value;
+        }
+
+        void writeVarlong(long value)
+        {
+            ensure(10);
+
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+
+            bytes[length++] = (byte) value;
+        }
+
+        void writeFixedInt(int value)
+        {
+            ensure(4);
+
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeFixedLong(long value)
+        {
+            ensure(8);
+
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        // each char as a varint: exact for any string (even unpaired surrogates), and one byte per ASCII char
+        void writeString(String value)
+        {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+
+            int count = value.length();
+
+            writeVarint(count + 1);
+            ensure(3 * count);
+
+            for (int i = 0; i < count; ++i) {
+                char c = value.charAt(i);
+
+                if (c < 0x80) {
+                    bytes[length++] = (byte) c;
+                }
+                else if (c < 0x4000) {
+                    bytes[length++] = (byte) ((c & 0x7F) | 0x80);
+                    bytes[length++] = (byte) (c >>> 7);
+                }
+                else {
+                    bytes[length++] = (byte) ((c & 0x7F) | 0x80);
+                    bytes[length++] = (byte) (((c >>> 7) & 0x7F) | 0x80);
+                    bytes[length++] = (byte) (c >>> 14);
+                }
+            }
+        }
+
+        void writeThrowable(Throwable cause, StackTraceFormat format)
+        {
+            if (cause == null) {
+                writeVarint(0);
+                return;
+            }
+
+            String[] lines = format.toLines(cause);
+
+            writeVarint(lines.length + 1);
+
+            for (String line : lines) {
+                writeString(line);
+            }
+        }
+
+        /**
+         * @return false if the argument's type can't be written exactly
+         */
+        boolean writeArg(Object arg)
+        {
+            if (arg == null) {
+                writeByte(NULL_ARG);
+            }
+            else if (arg instanceof String) {
+                writeByte(STRING_ARG);
+                writeString((String) arg);
+            }
+            else if (arg instanceof Integer) {
+                writeByte(INT_ARG);
+                writeVarint(zigZag((Integer) arg));
+            }
+            else if (arg instanceof Long) {
+                writeByte(LONG_ARG);
+                writeVarlong(zigZag((Long) arg));
+            }
+            else if (arg instanceof Double) {
+                writeByte(DOUBLE_ARG);
+                writeFixedLong(Double.doubleToRawLongBits((Double) arg));
+            }
+            else if (arg instanceof Boolean) {
+                writeByte(BOOLEAN_ARG);
+                writeByte((Boolean) arg ? 1 : 0);
+            }
+            else if (arg instanceof Character) {
+                writeByte(CHAR_ARG);
+                writeVarint((Character) arg);
+            }
+            else if (arg instanceof Byte) {
+                writeByte(BYTE_ARG);
+                writeByte((Byte) arg);
+            }
+            else if (arg instanceof Short) {
+                writeByte(SHORT_ARG);
+                writeVarint(zigZag((Short) arg));
+            }
+            else if (arg instanceof Float) {
+                writeByte(FLOAT_ARG);
+                writeFixedInt(Float.floatToRawIntBits((Float) arg));
+            }
+            else {
+                return false;
+            }
+
+            return true;
+        }
+
+        private static int zigZag(int value)
+        {
+            return (value << 1) ^ (value >> 31);
+        }
+
+        private static long zigZag(long value)
+        {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Reads the files written by {@link BinaryLog}, formatting each message exactly as {@link Logger} would have.
+ * <p/>
+ * To print a binary log as text: {@code java -cp mogwee-logging.jar com.mogwee.logging.BinaryLogDecoder FILE...}
+ */
+public final class BinaryLogDecoder implements Closeable
+{
+    /**
+     * A decoded logging event.
+     */
+    public static final class Event
+    {
+        private final long timeStamp;
+        private final Level level;
+        private final String loggerName;
+        private final String message;
+        private final String[] throwableStrRep;
+
+        private Event(long timeStamp, Level level, String loggerName, String message, String[] throwableStrRep)
+        {
+            this.timeStamp = timeStamp;
+            this.level = level;
+            this.loggerName = loggerName;
+            this.message = message;
+            this.throwableStrRep = throwableStrRep;
+        }
+
+        /**
+         * @return when the event was logged, in milliseconds since the epoch
+         */
+        public long getTimeStamp()
+        {
+            return timeStamp;
+        }
+
+        public Level getLevel()
+        {
+            return level;
+        }
+
+        public String getLoggerName()
+        {
+            return loggerName;
+        }
+
+        /**
+         * @return the formatted message
+         */
+        public String getMessage()
+        {
+            return message;
+        }
+
+        /**
+         * @return the lines of the cause's stack trace, as Log4J would print them, or null if there was no cause
+         */
+        public String[] getThrowableStrRep()
+        {
+            return throwableStrRep == null ? null : throwableStrRep.clone();
+        }
+    }
+
+    private final InputStream in;
+    private final List<String> templates = new ArrayList<String>();
+    private final List<String> loggers = new ArrayList<String>();
+
+    /**
+     * Prints binary logs as text.
+     *
+     * @param args the files to print
+     * @throws IOException if a file can't be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
+        PrintStream out = System.out;
+
+        for (String fileName : args) {
+            BinaryLogDecoder decoder = new BinaryLogDecoder(new FileInputStream(fileName));
+
+            try {
+                Event event;
+
+                while ((event = decoder.next()) != null) {
+                    out.printf(
+                        "%s %-5s %s - %s%n",
+                        dateFormat.format(new Date(event.getTimeStamp())),
+                        event.getLevel(),
+                        event.getLoggerName(),
+                        event.getMessage()
+                    );
+
+                    if (event.throwableStrRep != null) {
+                        for (String line : event.throwableStrRep) {
+                            out.println(line);
+                        }
+                    }
+                }
+            }
+            finally {
+                decoder.close();
+            }
+        }
+
+        out.flush();
+    }
+
+    /**
+     * @param in a binary log
+     * @throws IOException if {@code in} can't be read or isn't a binary log
+     */
+    public BinaryLogDecoder(InputStream in) throws IOException
+    {
+        this.in = new BufferedInputStream(in);
+
+        int magic = 0;
+
+        for (int i = 0; i < 4; ++i) {
+            magic = (magic << 8) | readByte();
+        }
+
+        if (magic != BinaryLog.MAGIC) {
+            throw new IOException("Not a binary log");
+        }
+
+        int version = readVarint();
+
+        if (version != BinaryLog.VERSION) {
+            throw new IOException(String.format("Unsupported binary log version %s", version));
+        }
+    }
+
+    /**
+     * @return the next event, or null at the end of the log (including a final event cut off by a crash)
+     * @throws IOException if the log can't be read or is corrupt
+     */
+    public Event next() throws IOException
+    {
+        try {
+            while (true) {
+                int recordType = in.read();
+
+                switch (recordType) {
+                    case -1:
+                        return null;
+                    case BinaryLog.TEMPLATE_RECORD:
+                        define(templates);
+                        break;
+                    case BinaryLog.LOGGER_RECORD:
+                        define(loggers);
+                        break;
+                    case BinaryLog.EVENT_RECORD:
+                        return readEvent();
+                    case BinaryLog.MESSAGE_RECORD:
+                        return readMessage();
+                    default:
+                        throw new IOException(String.format("Corrupt binary log: unknown record type %s", recordType));
+                }
+            }
+        }
+        catch (EOFException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        in.close();
+    }
+
+    private void define(List<String> names) throws IOException
+    {
+        int id = readVarint();
+
+        if (id != names.size()) {
+            throw new IOException(String.format("Corrupt binary log: expected ID %s, got %s", names.size(), id));
+        }
+
+        names.add(readString());
+    }
+
+    private Event readEvent() throws IOException
+    {
+        long timeStamp = readFixedLong();
+        Level level = Level.toLevel(readVarint());
+        String loggerName = lookup(loggers, readVarint());
+        String template = lookup(templates, readVarint());
+        int argCount = readVarint();
+        Object[] args = null;
+
+        if (argCount > 0) {
+            args = new Object[argCount - 1];
+
+            for (int i = 0; i < args.length; ++i) {
+                args[i] = readArg();
+            }
+        }
+
+        String trailer = readString();
+        String[] throwableStrRep = readThrowable();
+        String message;
+
+        try {
+            message = CompiledFormat.format(template, args);
+        }
+        catch (RuntimeException e) {
+            message = Logger.bogusFormatMessage(level, template, args, e);
+            level = Logger.bogusFormatLevel(level);
+        }
+
+        if (trailer != null) {
+            message += trailer;
+        }
+
+        return new Event(timeStamp, level, loggerName, message, throwableStrRep);
+    }
+
+    private Event readMessage() throws IOException
+    {
+        long timeStamp = readFixedLong();
+        Level level = Level.toLevel(readVarint());
+        String loggerName = lookup(loggers, readVarint());
+        String message = readString();
+
+        return new Event(timeStamp, level, loggerName, message, readThrowable());
+    }
+
+    private String lookup(List<String> names, int id) throws IOException
+    {
+        if (id >= names.size()) {
+            throw new IOException(String.format("Corrupt binary log: undefined ID %s", id));
+        }
+
+        return names.get(id);
+    }
+
+    private Object readArg() throws IOException
+    {
+        int type = readByte();
+
+        switch (type) {
+            case BinaryLog.NULL_ARG:
+                return null;
+            case BinaryLog.BOOLEAN_ARG:
+                return readByte() != 0;
+            case BinaryLog.CHAR_ARG:
+                return (char) readVarint();
+            case BinaryLog.BYTE_ARG:
+                return (byte) readByte();
+            case BinaryLog.SHORT_ARG:
+                return (short) unZigZag(readVarint());
+            case BinaryLog.INT_ARG:
+                return unZigZag(readVarint());
+            case BinaryLog.LONG_ARG:
+                long value = readVarlong();
+
+                return (value >>> 1) ^ -(value & 1);
+            case BinaryLog.FLOAT_ARG:
+                return Float.intBitsToFloat(readFixedInt());
+            case BinaryLog.DOUBLE_ARG:
+                return Double.longBitsToDouble(readFixedLong());
+            case BinaryLog.STRING_ARG:
+                return readString();
+            default:
+                throw new IOException(String.format("Corrupt binary log: unknown argument type %s", type));
+        }
+    }
+
+    private String[] readThrowable() throws IOException
+    {
+        int count = readVarint();
+
+        if (count == 0) {
+            return null;
+        }
+
+        String[] lines = new String[count - 1];
+
+        for (int i = 0; i < lines.length; ++i) {
+            lines[i] = readString();
+        }
+
+        return lines;
+    }
+
+    private String readString() throws IOException
+    {
+        int count = readVarint();
+
+        if (count == 0) {
+            return null;
+        }
+
+        char[] chars = new char[count - 1];
+
+        for (int i = 0; i < chars.length; ++i) {
+            chars[i] = (char) readVarint();
+        }
+
+        return new String(chars);
+    }
+
+    private int readByte() throws IOException
+    {
+        int value = in.read();
+
+        if (value == -1) {
+            throw new EOFException();
+        }
+
+        return value;
+    }
+
+    private int readVarint() throws IOException
+    {
+        int result = 0;
+
+        for (int shift = 0; shift < 35; shift += 7) {
+            int value = readByte();
+
+            result |= (value & 0x7F) << shift;
+
+            if ((value & 0x80) == 0) {
+                return result;
+            }
+        }
+
+        throw new IOException("Corrupt binary log: varint too long");
+    }
+
+    private long readVarlong() throws IOException
+    {
+        long result = 0;
+
+        for (int shift = 0; shift < 70; shift += 7) {
+            int value = readByte();
+
+            result |= (long) (value & 0x7F) << shift;
+
+            if ((value & 0x80) == 0) {
+                return result;
+            }
+        }
+
+        throw new IOException("Corrupt binary log: varint too long");
+    }
+
+    private int readFixedInt() throws IOException
+    {
+        int result = 0;
+
+        for (int i = 0; i < 4; ++i) {
+            result = (result << 8) | readByte();
+        }
+
+        return result;
+    }
+
+    private long readFixedLong() throws IOException
+    {
+        long result = 0;
+
+        for (int i = 0; i < 8; ++i) {
+            result = (result << 8) | readByte();
+        }
+
+        return result;
+    }
+
+    private static int unZigZag(int value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
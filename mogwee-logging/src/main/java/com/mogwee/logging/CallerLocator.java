@@ -0,0 +1,257 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+
+/**
+ * Finds the stack frame that called a given method without materializing the rest of the stack.
+ * <p/>
+ * Uses {@code java.lang.StackWalker} where available (Java 9 and later), {@code sun.misc.JavaLangAccess} on older
+ * JVMs that have it, and falls back to {@link Throwable#getStackTrace()} otherwise.  The first two are looked up
+ * reflectively so this still compiles (and runs) on Java 6.
+ */
+abstract class CallerLocator
+{
+    private static final CallerLocator INSTANCE = create();
+
+    /**
+     * @param className  the class declaring the method whose caller is wanted
+     * @param methodName the method whose caller is wanted
+     * @return the frame that called the most recent invocation of the given method, or null if it isn't on the stack
+     */
+    static StackTraceElement callerOf(String className, String methodName)
+    {
+        return INSTANCE.locate(className, methodName);
+    }
+
+    abstract StackTraceElement locate(String className, String methodName);
+
+    private static CallerLocator create()
+    {
+        for (CallerLocator locator : new CallerLocator[]{StackWalkerLocator.create(), JavaLangAccessLocator.create()}) {
+            // make sure it actually works before committing to it
+            if (locator != null && locator.locate(CallerLocator.class.getName(), "create") != null) {
+                return locator;
+            }
+        }
+
+        return new StackTraceLocator();
+    }
+
+    static class StackTraceLocator extends CallerLocator
+    {
+        @Override
+        StackTraceElement locate(String className, String methodName)
+        {
+            StackTraceElement[] stacktrace = new Throwable().getStackTrace();
+            boolean found = false;
+
+            for (StackTraceElement element : stacktrace) {
+                if (className.equals(element.getClassName()) && methodName.equals(element.getMethodName())) {
+                    found = true;
+                }
+                else if (found) {
+                    return element;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    static class JavaLangAccessLocator extends CallerLocator
+    {
+        private final Object javaLangAccess;
+        private final Method getStackTraceDepth;
+        private final Method getStackTraceElement;
+
+        static JavaLangAccessLocator create()
+        {
+            try {
+                Object javaLangAccess = Class.forName("sun.misc.SharedSecrets").getMethod("getJavaLangAccess").invoke(null);
+                Class<?> accessClass = Class.forName("sun.misc.JavaLangAccess");
+
+                return new JavaLangAccessLocator(
+                    javaLangAccess,
+                    accessClass.getMethod("getStackTraceDepth", Throwable.class),
+                    accessClass.getMethod("getStackTraceElement", Throwable.class, int.class)
+                );
+            }
+            catch (Exception e) {
+                return null;
+            }
+            catch (LinkageError e) {
+                return null;
+            }
+        }
+
+        private JavaLangAccessLocator(Object javaLangAccess, Method getStackTraceDepth, Method getStackTraceElement)
+        {
+            this.javaLangAccess = javaLangAccess;
+            this.getStackTraceDepth = getStackTraceDepth;
+            this.getStackTraceElement = getStackTraceElement;
+        }
+
+        @Override
+        StackTraceElement locate(String className, String methodName)
+        {
+            // the backtrace is captured natively; only the frames we look at become StackTraceElements
+            Throwable throwable = new Throwable();
+
+            try {
+                int depth = (Integer) getStackTraceDepth.invoke(javaLangAccess, throwable);
+                boolean found = false;
+
+                for (int i = 0; i < depth; ++i) {
+                    StackTraceElement element = (StackTraceElement) getStackTraceElement.invoke(javaLangAccess, throwable, i);
+
+                    if (className.equals(element.getClassName()) && methodName.equals(element.getMethodName())) {
+                        found = true;
+                    }
+                    else if (found) {
+                        return element;
+                    }
+                }
+
+                return null;
+            }
+            catch (Exception e) {
+                return null;
+            }
+        }
+    }
+
+    static class StackWalkerLocator extends CallerLocator
+    {
+        // the method whose caller is being located on this thread
+        private final ThreadLocal<String[]> targets = new ThreadLocal<String[]>()
+        {
+            @Override
+            protected String[] initialValue()
+            {
+                return new String[2];
+            }
+        };
+        private final Object walker;
+        private final Method walk;
+        private final Method iterator;
+        private final Method getClassName;
+        private final Method getMethodName;
+        private final Method toStackTraceElement;
+        // built once; equivalent to frames -> ... with a loop over frames.iterator() that stops at the caller
+        private final Object function;
+
+        static StackWalkerLocator create()
+        {
+            try {
+                Class<?> walkerClass = Class.forName("java.lang.StackWalker");
+                Class<?> frameClass = Class.forName("java.lang.StackWalker$StackFrame");
+
+                return new StackWalkerLocator(
+                    walkerClass.getMethod("getInstance").invoke(null),
+                    walkerClass.getMethod("walk", Class.forName("java.util.function.Function")),
+                    Class.forName("java.util.stream.BaseStream").getMethod("iterator"),
+                    frameClass.getMethod("getClassName"),
+                    frameClass.getMethod("getMethodName"),
+                    frameClass.getMethod("toStackTraceElement")
+                );
+            }
+            catch (Exception e) {
+                return null;
+            }
+            catch (LinkageError e) {
+                return null;
+            }
+        }
+
+        private StackWalkerLocator(
+            Object walker,
+            Method walk,
+            Method iterator,
+            Method getClassName,
+            Method getMethodName,
+            Method toStackTraceElement
+        )
+        {
+            this.walker = walker;
+            this.walk = walk;
+            this.iterator = iterator;
+            this.getClassName = getClassName;
+            this.getMethodName = getMethodName;
+            this.toStackTraceElement = toStackTraceElement;
+
+            Class<?> functionClass = walk.getParameterTypes()[0];
+
+            this.function = Proxy.newProxyInstance(
+                functionClass.getClassLoader(),
+                new Class<?>[]{functionClass},
+                new InvocationHandler()
+                {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+                    {
+                        if (!"apply".equals(method.getName())) {
+                            return method.invoke(this, args);
+                        }
+
+                        return find((Iterator<?>) StackWalkerLocator.this.iterator.invoke(args[0]));
+                    }
+                }
+            );
+        }
+
+        // only the caller's frame becomes a StackTraceElement
+        private Object find(Iterator<?> frames) throws Exception
+        {
+            String[] target = targets.get();
+            boolean found = false;
+
+            while (frames.hasNext()) {
+                Object frame = frames.next();
+
+                if (target[0].equals(getClassName.invoke(frame)) && target[1].equals(getMethodName.invoke(frame))) {
+                    found = true;
+                }
+                else if (found) {
+                    return toStackTraceElement.invoke(frame);
+                }
+            }
+
+            return null;
+        }
+
+        @Override
+        StackTraceElement locate(String className, String methodName)
+        {
+            String[] target = targets.get();
+
+            target[0] = className;
+            target[1] = methodName;
+
+            try {
+                return (StackTraceElement) walk.invoke(walker, function);
+            }
+            catch (Exception e) {
+                return null;
+            }
+        }
+    }
+}
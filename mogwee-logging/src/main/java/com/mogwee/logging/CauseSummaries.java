@@ -0,0 +1,110 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+/**
+ * Builds the messages the {@code *Debug} methods log when DEBUG is disabled, which replace the stack trace with the
+ * first line of the cause's message.
+ * <p/>
+ * During an incident the same exception tends to recur thousands of times, so the rendered summaries are kept in a
+ * small direct-mapped cache keyed by class name and message.  Collisions just overwrite each other.  Keying by name
+ * rather than by class keeps the cache from pinning class loaders; classes with the same name summarize the same way.
+ */
+final class CauseSummaries
+{
+    private static final String SWITCH_TO_DEBUG = " (Switch to DEBUG for full stack trace): ";
+    private static final int SIZE = 256;
+    // entries are immutable, so racy reads and writes are harmless: at worst a summary is computed again
+    private static final Entry[] CACHE = new Entry[SIZE];
+
+    private CauseSummaries()
+    {
+    }
+
+    /**
+     * @param message the message being logged
+     * @param cause   the exception whose stack trace is being left out
+     * @return {@code message}, followed by a summary of {@code cause}
+     */
+    static String summarize(String message, Throwable cause)
+    {
+        String suffix = suffix(cause);
+        String prefix = String.valueOf(message);
+
+        return new StringBuilder(prefix.length() + suffix.length()).append(prefix).append(suffix).toString();
+    }
+
+    /**
+     * @param cause the exception whose stack trace is being left out
+     * @return the summary of {@code cause} that {@link #summarize(String, Throwable)} appends to the message
+     */
+    static String suffix(Throwable cause)
+    {
+        String className = cause.getClass().getName();
+        String causeMessage = cause.getMessage();
+        int hash = 31 * className.hashCode() + (causeMessage == null ? 0 : causeMessage.hashCode());
+        int index = (hash ^ (hash >>> 16)) & (SIZE - 1);
+        Entry entry = CACHE[index];
+
+        if (entry != null && entry.matches(className, causeMessage)) {
+            return entry.suffix;
+        }
+
+        entry = new Entry(className, causeMessage, render(className, causeMessage));
+        CACHE[index] = entry;
+
+        return entry.suffix;
+    }
+
+    private static String render(String className, String causeMessage)
+    {
+        if (causeMessage == null) {
+            return SWITCH_TO_DEBUG + className;
+        }
+
+        int index = causeMessage.indexOf('\n');
+        int length = index == -1 ? causeMessage.length() : index;
+
+        return new StringBuilder(SWITCH_TO_DEBUG.length() + className.length() + 2 + length)
+            .append(SWITCH_TO_DEBUG)
+            .append(className)
+            .append(": ")
+            .append(causeMessage, 0, length)
+            .toString();
+    }
+
+    private static final class Entry
+    {
+        private final String className;
+        private final String causeMessage;
+        private final String suffix;
+
+        private Entry(String className, String causeMessage, String suffix)
+        {
+            this.className = className;
+            this.causeMessage = causeMessage;
+            this.suffix = suffix;
+        }
+
+        private boolean matches(String className, String causeMessage)
+        {
+            // names of loaded classes are usually the same instance, so check identity first
+            return (this.className == className || this.className.equals(className)) &&
+                (this.causeMessage == null ? causeMessage == null : this.causeMessage.equals(causeMessage));
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.helpers.LogLog;
+
+import java.lang.ref.WeakReference;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collapses repeated messages for a coalescing {@link Logger}.
+ * <p/>
+ * Messages are considered repeats if they have the same level, format string (or message) and cause class, so
+ * checking doesn't require rendering anything.  The first message of each window is logged as usual; repeats within
+ * the window are only counted, and once the window closes a single summary line reports how many there were and when
+ * the first and last happened.  Summaries are logged by a shared daemon thread, or by the first message after the
+ * window closes if that comes sooner.  The thread only holds a weak reference to each coalescer, so one that's no
+ * longer used (along with its logger) can still be garbage collected; summaries it was still waiting to log are lost.
+ */
+abstract class Coalescer
+{
+    // keeps a logger that formats messages itself (rather than using *f methods) from growing the map forever
+    private static final int MAX_KEYS = 1024;
+    private static final Timer TIMER = new Timer("mogwee-logging-coalescer", true);
+    // returned for messages that can't be tracked; they're logged as usual
+    static final Window UNTRACKED = new Window(0);
+
+    private final long windowMillis;
+    private final ConcurrentMap<Key, Window> windows = new ConcurrentHashMap<Key, Window>();
+
+    Coalescer(long windowMillis)
+    {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("window must be positive: " + windowMillis + " ms");
+        }
+
+        this.windowMillis = windowMillis;
+
+        TIMER.schedule(new FlushTask(this), windowMillis, windowMillis);
+    }
+
+    /**
+     * Logs a summary of repeated messages.
+     *
+     * @param level   the level the messages were logged at
+     * @param message the summary
+     */
+    abstract void summarize(Level level, String message);
+
+    /**
+     * Called before a message is rendered.
+     *
+     * @param level    the message's level
+     * @param template the format string or message
+     * @param cause    the message's cause, if any
+     * @return null if the message is a repeat and should be suppressed, otherwise the window to
+     * {@link Window#setMessage(String) report} the rendered message to
+     */
+    Window open(Level level, String template, Throwable cause)
+    {
+        Key key = new Key(level, template, cause == null ? null : cause.getClass());
+        long now = System.currentTimeMillis();
+
+        while (true) {
+            Window window = windows.get(key);
+
+            if (window == null) {
+                if (windows.size() >= MAX_KEYS) {
+                    return UNTRACKED;
+                }
+
+                Window newWindow = new Window(now);
+
+                if (windows.putIfAbsent(key, newWindow) == null) {
+                    return newWindow;
+                }
+            }
+            else if (now - window.first < windowMillis) {
+                if (window.repeat(now)) {
+                    return null;
+                }
+                // otherwise it was just closed, and is about to be (or just was) replaced
+            }
+            else if (windows.remove(key, window)) {
+                close(key, window);
+            }
+        }
+    }
+
+    void flushExpired(long now)
+    {
+        for (Map.Entry<Key, Window> entry : windows.entrySet()) {
+            Window window = entry.getValue();
+
+            if (now - window.first >= windowMillis && windows.remove(entry.getKey(), window)) {
+                close(entry.getKey(), window);
+            }
+        }
+    }
+
+    private void close(Key key, Window window)
+    {
+        long repeats = window.close();
+
+        if (repeats > 0) {
+            // the first message might not have been logged after all (e.g., if it was rate limited)
+            String message = window.message == null ? key.template : window.message;
+            // not shared: summaries are rare, and SimpleDateFormat isn't thread-safe
+            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
+
+            summarize(
+                key.level,
+                String.format(
+                    "%s [repeated %d more times between %s and %s]",
+                    message,
+                    repeats,
+                    dateFormat.format(new Date(window.first)),
+                    dateFormat.format(new Date(window.last.get()))
+                )
+            );
+        }
+    }
+
+    // static, so the timer doesn't keep the coalescer reachable
+    private static final class FlushTask extends TimerTask
+    {
+        private final WeakReference<Coalescer> coalescer;
+
+        private FlushTask(Coalescer coalescer)
+        {
+            this.coalescer = new WeakReference<Coalescer>(coalescer);
+        }
+
+        @Override
+        public void run()
+        {
+            Coalescer target = coalescer.get();
+
+            if (target == null) {
+                cancel();
+                return;
+            }
+
+            try {
+                target.flushExpired(System.currentTimeMillis());
+            }
+            catch (RuntimeException e) {
+                // thrown out of here, it would kill the timer thread for every coalescing logger
+                LogLog.warn("Failed to log summaries of repeated messages", e);
+            }
+        }
+    }
+
+    static final class Window
+    {
+        // added to the count when the window closes, so later repeat() calls see a negative count
+        private static final long CLOSED = Long.MIN_VALUE / 2;
+
+        private final long first;
+        private final AtomicLong last;
+        private final AtomicLong repeats = new AtomicLong();
+        private volatile String message;
+
+        private Window(long first)
+        {
+            this.first = first;
+            this.last = new AtomicLong(first);
+        }
+
+        /**
+         * @param message the rendered message that opened this window, which is what the summary repeats
+         */
+        void setMessage(String message)
+        {
+            if (this != UNTRACKED) {
+                this.message = message;
+            }
+        }
+
+        private boolean repeat(long now)
+        {
+            if (repeats.incrementAndGet() < 0) {
+                return false;
+            }
+
+            last.set(now);
+
+            return true;
+        }
+
+        private long close()
+        {
+            return repeats.getAndAdd(CLOSED);
+        }
+    }
+
+    private static final class Key
+    {
+        private final Level level;
+        private final String template;
+        private final Class<?> causeClass;
+
+        private Key(Level level, String template, Class<?> causeClass)
+        {
+            this.level = level;
+            this.template = template;
+            this.causeClass = causeClass;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+
+            return level.equals(other.level) &&
+                (template == null ? other.template == null : template.equals(other.template)) &&
+                causeClass == other.causeClass;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = level.toInt();
+
+            result = 31 * result + (template == null ? 0 : template.hashCode());
+            result = 31 * result + (causeClass == null ? 0 : causeClass.hashCode());
+
+            return result;
+        }
+    }
+}
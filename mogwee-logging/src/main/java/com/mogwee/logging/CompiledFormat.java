@@ -0,0 +1,300 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.helpers.LogLog;
+
+import java.util.Formattable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A pre-parsed format string.
+ * <p/>
+ * Only the specifiers that make up the overwhelming majority of log messages ({@code %s}, {@code %d}, {@code %%}
+ * and {@code %n}, with no flags, width, precision or argument index) are compiled.  Anything else, and any
+ * argument that {@code String.format()} would treat specially, falls back to {@code String.format()}, so the
+ * rendered text (or the exception thrown) is always exactly what {@code String.format()} produces.  Formats with
+ * renderers generated at compile time (see {@link GeneratedFormats}) are never parsed.
+ */
+final class CompiledFormat
+{
+    private static final int MAX_CACHED_FORMATS = 1024;
+    private static final ConcurrentMap<String, CompiledFormat> CACHE = new ConcurrentHashMap<String, CompiledFormat>();
+    // filled in once by the static initializer, so safe to read without locking; the renderers are generated for
+    // every call that looks like a logging call, and a template only takes a CACHE entry once a message uses it
+    private static final Map<String, CompiledFormat> GENERATED = new HashMap<String, CompiledFormat>();
+    private static final CompiledFormat UNCOMPILABLE = new CompiledFormat(null, null, 0);
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    private static volatile LocaleDigits localeDigits = new LocaleDigits(null, false);
+
+    static {
+        loadGeneratedFormats();
+    }
+
+    // literals[i] precedes conversions[i]; the final literal follows the last conversion
+    private final String[] literals;
+    private final char[] conversions;
+    private final int literalLength;
+    // if set, renders the format instead
+    private final GeneratedFormats generated;
+    private final int generatedIndex;
+
+    private CompiledFormat(String[] literals, char[] conversions, int literalLength)
+    {
+        this.literals = literals;
+        this.conversions = conversions;
+        this.literalLength = literalLength;
+        this.generated = null;
+        this.generatedIndex = -1;
+    }
+
+    private CompiledFormat(GeneratedFormats generated, int generatedIndex)
+    {
+        this.literals = null;
+        this.conversions = null;
+        this.literalLength = 0;
+        this.generated = generated;
+        this.generatedIndex = generatedIndex;
+    }
+
+    /**
+     * Equivalent to {@code String.format(format, args)}, but without reparsing formats that have been seen before.
+     *
+     * @param format a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args   arguments referenced by the format specifiers in the format string
+     * @return the formatted string
+     */
+    static String format(String format, Object... args)
+    {
+        RenderBuffer buffer = RenderBuffer.acquire();
+
+        try {
+            if (format == null || args == null) {
+                return buffer.format(format, args);
+            }
+
+            CompiledFormat compiled = CACHE.get(format);
+
+            if (compiled == null) {
+                compiled = GENERATED.get(format);
+
+                if (compiled == null) {
+                    compiled = compile(format);
+                }
+
+                // once full, keep compiling on the fly rather than evicting: parsing is still cheaper than a Formatter
+                if (CACHE.size() < MAX_CACHED_FORMATS) {
+                    CACHE.putIfAbsent(format, compiled);
+                }
+            }
+
+            String result = compiled == UNCOMPILABLE ? null : compiled.render(buffer.builder(), args);
+
+            if (result == null) {
+                result = buffer.format(format, args);
+            }
+
+            return result;
+        }
+        finally {
+            buffer.release();
+        }
+    }
+
+    static CompiledFormat compile(String format)
+    {
+        int conversionCount = 0;
+
+        for (int i = 0; i < format.length(); ++i) {
+            if (format.charAt(i) == '%') {
+                if (i + 1 == format.length()) {
+                    return UNCOMPILABLE;
+                }
+
+                char c = format.charAt(++i);
+
+                if (c == 's' || c == 'd') {
+                    ++conversionCount;
+                }
+                else if (c != '%' && c != 'n') {
+                    return UNCOMPILABLE;
+                }
+            }
+        }
+
+        String[] literals = new String[conversionCount + 1];
+        char[] conversions = new char[conversionCount];
+        StringBuilder literal = new StringBuilder(format.length());
+        int literalLength = 0;
+        int index = 0;
+
+        for (int i = 0; i < format.length(); ++i) {
+            char c = format.charAt(i);
+
+            if (c != '%') {
+                literal.append(c);
+                continue;
+            }
+
+            c = format.charAt(++i);
+
+            if (c == '%') {
+                literal.append('%');
+            }
+            else if (c == 'n') {
+                literal.append(LINE_SEPARATOR);
+            }
+            else {
+                literals[index] = literal.toString();
+                conversions[index] = c;
+                literalLength += literal.length();
+                literal.setLength(0);
+                ++index;
+            }
+        }
+
+        literals[index] = literal.toString();
+        literalLength += literal.length();
+
+        return new CompiledFormat(literals, conversions, literalLength);
+    }
+
+    /**
+     * @param result an empty builder to render into
+     * @return the rendered string, or null if {@code String.format()} must be used instead
+     */
+    String render(StringBuilder result, Object... args)
+    {
+        if (generated != null) {
+            return generated.render(generatedIndex, result, args);
+        }
+
+        if (args.length < conversions.length) {
+            return null;
+        }
+
+        boolean digitsChecked = false;
+
+        // check every argument before calling any toString() so a fallback never calls toString() twice
+        for (int i = 0; i < conversions.length; ++i) {
+            Object arg = args[i];
+
+            if (arg == null) {
+                continue;
+            }
+
+            if (conversions[i] == 's') {
+                if (arg instanceof Formattable) {
+                    return null;
+                }
+            }
+            else if (!(arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte)) {
+                return null;
+            }
+            else if (!digitsChecked) {
+                // the locale lookup is reflective, so it's done once per message rather than once per argument
+                if (!hasAsciiDigits()) {
+                    return null;
+                }
+
+                digitsChecked = true;
+            }
+        }
+
+        result.ensureCapacity(literalLength + 16 * conversions.length);
+
+        for (int i = 0; i < conversions.length; ++i) {
+            result.append(literals[i]);
+
+            Object arg = args[i];
+
+            if (arg == null) {
+                result.append("null");
+            }
+            else if (conversions[i] == 's') {
+                result.append(arg.toString());
+            }
+            else {
+                result.append(((Number) arg).longValue());
+            }
+        }
+
+        return result.append(literals[conversions.length]).toString();
+    }
+
+    private static void loadGeneratedFormats()
+    {
+        Iterator<GeneratedFormats> iterator = ServiceLoader.load(GeneratedFormats.class).iterator();
+
+        while (true) {
+            GeneratedFormats formats;
+
+            try {
+                if (!iterator.hasNext()) {
+                    return;
+                }
+
+                formats = iterator.next();
+            }
+            catch (ServiceConfigurationError e) {
+                LogLog.warn("Couldn't load generated format renderers", e);
+                continue;
+            }
+
+            String[] templates = formats.getTemplates();
+
+            for (int i = 0; i < templates.length; ++i) {
+                if (!GENERATED.containsKey(templates[i])) {
+                    GENERATED.put(templates[i], new CompiledFormat(formats, i));
+                }
+            }
+        }
+    }
+
+    // %d is rendered with the default format locale's digits, which aren't always 0-9
+    static boolean hasAsciiDigits()
+    {
+        Locale locale = RenderBuffer.defaultFormatLocale();
+        LocaleDigits digits = localeDigits;
+
+        if (digits.locale != locale) {
+            digits = new LocaleDigits(locale, "-1234567890".equals(String.format("%d", -1234567890L)));
+            localeDigits = digits;
+        }
+
+        return digits.ascii;
+    }
+
+    private static final class LocaleDigits
+    {
+        private final Locale locale;
+        private final boolean ascii;
+
+        private LocaleDigits(Locale locale, boolean ascii)
+        {
+            this.locale = locale;
+            this.ascii = ascii;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+
+/**
+ * A {@link BackendLogger} that can log a message on a thread other than the one that logged it, as {@link EventRing}'s
+ * consumer does.  Messages to other backends don't go through the ring.
+ */
+interface DeferredLogger extends BackendLogger
+{
+    /**
+     * Called on the logging thread.
+     *
+     * @return false if the message depends on the logging thread's state (e.g., a non-empty {@link LogContext}), and so
+     * must be logged on it
+     */
+    boolean canDefer();
+
+    /**
+     * @param level      the message's level, at or above the threshold
+     * @param message    the rendered message
+     * @param timeStamp  when it was logged, in milliseconds since the epoch
+     * @param threadName the name of the thread that logged it
+     */
+    void logDeferred(Level level, String message, long timeStamp, String threadName);
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+/**
+ * Thrown by a {@link Logger#durable() durable} logger when a {@link GroupCommitAppender} its message went to failed
+ * to commit it, or the {@link SimpleBackend} failed to force it.  The message may or may not have reached the file; it
+ * certainly wasn't forced to disk.
+ */
+public class DurableLogException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    public DurableLogException(String message, Throwable cause)
+    {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,668 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.helpers.LogLog;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Queues formatted messages for a dedicated thread to format and log, without putting them on the heap.
+ * <p/>
+ * An {@link AsyncDispatcher} queues a {@code LoggingEvent}, its rendered message and its MDC copy for every message,
+ * and when its consumer falls behind they live long enough to be promoted to the old generation.  Once a ring is
+ * {@link #install(int, AsyncDispatcher.OverflowPolicy) installed}, a message passed to one of the {@link Logger}
+ * {@code *f} methods is instead written into a fixed-size slot of a direct (off-heap) buffer as its level, time stamp,
+ * and integer IDs for its logger, format string and thread, followed by its raw arguments; nothing on the logging
+ * thread allocates once those IDs have been assigned.  A single consumer thread formats each message and hands it to
+ * the backend with the original time stamp and thread name.
+ * <p/>
+ * Only messages whose arguments are all nulls, primitives (boxed) and short strings, with no exception, no
+ * {@link LogContext} (or Log4J MDC or NDC) and no suppressed-message count, go through the ring, and only with the
+ * Log4J and simple backends; anything else is logged as usual on the logging thread, so it may be written before
+ * messages still queued.  Location information isn't available for queued messages, and an installed
+ * {@link BinaryLog} takes precedence.
+ */
+public final class EventRing
+{
+    // level, logger ID, format string ID, thread name ID, time stamp, argument count
+    private static final int HEADER_SIZE = 28;
+    private static final int SLOT_SIZE = 256;
+    // IDs are never reused, so stop handing them out to dynamically built format strings at some point
+    private static final int MAX_IDS = 64 * 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final AtomicInteger GENERATIONS = new AtomicInteger();
+    private static final ThreadLocal<ThreadId> THREAD_IDS = new ThreadLocal<ThreadId>()
+    {
+        @Override
+        protected ThreadId initialValue()
+        {
+            return new ThreadId();
+        }
+    };
+
+    private static volatile EventRing installed = null;
+
+    private final int generation = GENERATIONS.incrementAndGet();
+    private final int capacity;
+    private final int mask;
+    private final int lowPriorityLimit;
+    private final AsyncDispatcher.OverflowPolicy policy;
+    // slot i is free for the producer claiming position p when sequences[i] == p, and full once sequences[i] == p + 1
+    private final AtomicLongArray sequences;
+    private final ByteBuffer slots;
+    private final Ids<Logger> loggers = new Ids<Logger>();
+    private final Ids<String> templates = new Ids<String>();
+    private final Ids<String> threadNames = new Ids<String>();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLongArray dropped = new AtomicLongArray(5);
+    private final Thread consumer;
+    private final Thread shutdownHook;
+    private volatile boolean consumerParked = false;
+    private volatile boolean running = true;
+
+    /**
+     * Starts a ring and routes all subsequent formatted messages that can go through it through it.
+     * Any previously installed ring is drained and stopped first.
+     *
+     * @param capacity maximum number of queued messages; rounded up to a power of two.  Each takes 256 bytes of
+     *                 off-heap memory
+     * @param policy   what to do when the ring is full
+     * @return the installed ring
+     */
+    public static synchronized EventRing install(int capacity, AsyncDispatcher.OverflowPolicy policy)
+    {
+        if (capacity < 1 || capacity > (1 << 30) / SLOT_SIZE) {
+            throw new IllegalArgumentException(String.format("capacity must be between 1 and %s (was %s)", (1 << 30) / SLOT_SIZE, capacity));
+        }
+
+        if (policy == null) {
+            throw new IllegalArgumentException("policy must not be null");
+        }
+
+        uninstall();
+
+        EventRing ring = new EventRing(capacity, policy);
+
+        ring.consumer.start();
+        Runtime.getRuntime().addShutdownHook(ring.shutdownHook);
+        installed = ring;
+
+        return ring;
+    }
+
+    /**
+     * Stops routing messages through the installed ring (if any), then waits for it to drain.
+     */
+    public static synchronized void uninstall()
+    {
+        EventRing ring = installed;
+
+        if (ring != null) {
+            installed = null;
+            ring.stop();
+
+            try {
+                Runtime.getRuntime().removeShutdownHook(ring.shutdownHook);
+            }
+            catch (IllegalStateException e) {
+                // already shutting down
+            }
+        }
+    }
+
+    /**
+     * @return the installed ring, or null if none is
+     */
+    public static EventRing installed()
+    {
+        return installed;
+    }
+
+    private EventRing(int capacity, AsyncDispatcher.OverflowPolicy policy)
+    {
+        int size = Integer.highestOneBit(capacity);
+
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        this.capacity = size;
+        this.mask = size - 1;
+        this.lowPriorityLimit = size - size / 4;
+        this.policy = policy;
+        this.sequences = new AtomicLongArray(size);
+        this.slots = ByteBuffer.allocateDirect(size * SLOT_SIZE).order(ByteOrder.nativeOrder());
+
+        for (int i = 0; i < size; ++i) {
+            sequences.set(i, i);
+        }
+
+        this.consumer = new Thread(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    consume();
+                }
+            },
+            "mogwee-logging-event-ring"
+        );
+        this.consumer.setDaemon(true);
+        this.shutdownHook = new Thread(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    stop();
+                }
+            },
+            "mogwee-logging-event-ring-shutdown"
+        );
+    }
+
+    /**
+     * @return the maximum number of queued messages
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * @return the overflow policy
+     */
+    public AsyncDispatcher.OverflowPolicy getPolicy()
+    {
+        return policy;
+    }
+
+    /**
+     * @return the number of messages currently queued
+     */
+    public int getQueuedCount()
+    {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * @return the total number of messages discarded because the ring was full
+     */
+    public long getDroppedCount()
+    {
+        long total = 0;
+
+        for (int i = 0; i < dropped.length(); ++i) {
+            total += dropped.get(i);
+        }
+
+        return total;
+    }
+
+    /**
+     * @param level a logging level
+     * @return the number of messages at the given level discarded because the ring was full
+     */
+    public long getDroppedCount(Level level)
+    {
+        return dropped.get(AsyncDispatcher.levelIndex(level));
+    }
+
+    /**
+     * Queues a message (or drops it, depending on the policy).
+     *
+     * @param logger   the logger to log it with
+     * @param level    the message's level (after any level check)
+     * @param template the format string
+     * @param args     the format arguments, with any lazy arguments already resolved
+     * @return false if the message wasn't queued (because an argument can't be, or the ring has been stopped), in which
+     * case it should be formatted and logged as usual
+     */
+    boolean write(Logger logger, Level level, String template, Object[] args)
+    {
+        // the consumer would otherwise wait on itself once the ring filled up
+        if (template == null || !running || Thread.currentThread() == consumer || !fits(args)) {
+            return false;
+        }
+
+        int loggerId = loggers.id(logger);
+        int templateId = templates.id(template);
+        int threadNameId = threadNameId();
+
+        if (loggerId < 0 || templateId < 0 || threadNameId < 0) {
+            return false;
+        }
+
+        long timeStamp = System.currentTimeMillis();
+        int levelIndex = AsyncDispatcher.levelIndex(level);
+
+        if (policy == AsyncDispatcher.OverflowPolicy.DROP_DEBUG_AND_INFO && level.toInt() < Level.WARN_INT && getQueuedCount() >= lowPriorityLimit) {
+            dropped.incrementAndGet(levelIndex);
+            return true;
+        }
+
+        long position;
+
+        while ((position = claim()) < 0) {
+            if (policy == AsyncDispatcher.OverflowPolicy.DROP) {
+                dropped.incrementAndGet(levelIndex);
+                return true;
+            }
+
+            if (!running) {
+                return false;
+            }
+
+            wakeConsumer();
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+
+        int index = (int) position & mask;
+        int offset = index * SLOT_SIZE;
+
+        slots.putInt(offset, level.toInt());
+        slots.putInt(offset + 4, loggerId);
+        slots.putInt(offset + 8, templateId);
+        slots.putInt(offset + 12, threadNameId);
+        slots.putLong(offset + 16, timeStamp);
+        slots.putInt(offset + 24, args == null ? -1 : args.length);
+        offset += HEADER_SIZE;
+
+        if (args != null) {
+            for (Object arg : args) {
+                offset = writeArg(offset, arg);
+            }
+        }
+
+        sequences.set(index, position + 1);
+
+        if (!running) {
+            drainStragglers();
+        }
+        else if (consumerParked) {
+            wakeConsumer();
+        }
+
+        return true;
+    }
+
+    // whether every argument can be written, and they all fit in a slot
+    private static boolean fits(Object[] args)
+    {
+        if (args == null) {
+            return true;
+        }
+
+        int size = HEADER_SIZE;
+
+        for (Object arg : args) {
+            if (arg == null || arg instanceof Boolean || arg instanceof Byte) {
+                size += 2;
+            }
+            else if (arg instanceof Character || arg instanceof Short) {
+                size += 3;
+            }
+            else if (arg instanceof Integer || arg instanceof Float) {
+                size += 5;
+            }
+            else if (arg instanceof Long || arg instanceof Double) {
+                size += 9;
+            }
+            else if (arg instanceof String) {
+                size += 5 + 2 * ((String) arg).length();
+            }
+            else {
+                return false;
+            }
+
+            if (size > SLOT_SIZE) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // returns the offset just past the argument
+    private int writeArg(int offset, Object arg)
+    {
+        if (arg == null) {
+            slots.put(offset, (byte) BinaryLog.NULL_ARG);
+            return offset + 2;
+        }
+
+        if (arg instanceof String) {
+            String string = (String) arg;
+
+            slots.put(offset, (byte) BinaryLog.STRING_ARG);
+            slots.putInt(offset + 1, string.length());
+            offset += 5;
+
+            for (int i = 0; i < string.length(); ++i) {
+                slots.putChar(offset, string.charAt(i));
+                offset += 2;
+            }
+
+            return offset;
+        }
+
+        if (arg instanceof Integer) {
+            slots.put(offset, (byte) BinaryLog.INT_ARG);
+            slots.putInt(offset + 1, (Integer) arg);
+            return offset + 5;
+        }
+
+        if (arg instanceof Long) {
+            slots.put(offset, (byte) BinaryLog.LONG_ARG);
+            slots.putLong(offset + 1, (Long) arg);
+            return offset + 9;
+        }
+
+        if (arg instanceof Double) {
+            slots.put(offset, (byte) BinaryLog.DOUBLE_ARG);
+            slots.putDouble(offset + 1, (Double) arg);
+            return offset + 9;
+        }
+
+        if (arg instanceof Float) {
+            slots.put(offset, (byte) BinaryLog.FLOAT_ARG);
+            slots.putFloat(offset + 1, (Float) arg);
+            return offset + 5;
+        }
+
+        if (arg instanceof Boolean) {
+            slots.put(offset, (byte) BinaryLog.BOOLEAN_ARG);
+            slots.put(offset + 1, (byte) ((Boolean) arg ? 1 : 0));
+            return offset + 2;
+        }
+
+        if (arg instanceof Character) {
+            slots.put(offset, (byte) BinaryLog.CHAR_ARG);
+            slots.putChar(offset + 1, (Character) arg);
+            return offset + 3;
+        }
+
+        if (arg instanceof Short) {
+            slots.put(offset, (byte) BinaryLog.SHORT_ARG);
+            slots.putShort(offset + 1, (Short) arg);
+            return offset + 3;
+        }
+
+        slots.put(offset, (byte) BinaryLog.BYTE_ARG);
+        slots.put(offset + 1, (Byte) arg);
+        return offset + 2;
+    }
+
+    private Object[] readArgs(int offset)
+    {
+        int count = slots.getInt(offset + 24);
+
+        if (count < 0) {
+            return null;
+        }
+
+        Object[] args = new Object[count];
+
+        offset += HEADER_SIZE;
+
+        for (int i = 0; i < count; ++i) {
+            switch (slots.get(offset)) {
+                case BinaryLog.NULL_ARG:
+                    offset += 2;
+                    break;
+                case BinaryLog.STRING_ARG:
+                    char[] chars = new char[slots.getInt(offset + 1)];
+
+                    offset += 5;
+
+                    for (int j = 0; j < chars.length; ++j) {
+                        chars[j] = slots.getChar(offset);
+                        offset += 2;
+                    }
+
+                    args[i] = new String(chars);
+                    break;
+                case BinaryLog.INT_ARG:
+                    args[i] = slots.getInt(offset + 1);
+                    offset += 5;
+                    break;
+                case BinaryLog.LONG_ARG:
+                    args[i] = slots.getLong(offset + 1);
+                    offset += 9;
+                    break;
+                case BinaryLog.DOUBLE_ARG:
+                    args[i] = slots.getDouble(offset + 1);
+                    offset += 9;
+                    break;
+                case BinaryLog.FLOAT_ARG:
+                    args[i] = slots.getFloat(offset + 1);
+                    offset += 5;
+                    break;
+                case BinaryLog.BOOLEAN_ARG:
+                    args[i] = slots.get(offset + 1) != 0;
+                    offset += 2;
+                    break;
+                case BinaryLog.CHAR_ARG:
+                    args[i] = slots.getChar(offset + 1);
+                    offset += 3;
+                    break;
+                case BinaryLog.SHORT_ARG:
+                    args[i] = slots.getShort(offset + 1);
+                    offset += 3;
+                    break;
+                default:
+                    args[i] = slots.get(offset + 1);
+                    offset += 2;
+                    break;
+            }
+        }
+
+        return args;
+    }
+
+    // the name's ID is only looked up again when the thread has been renamed; getName() returns the same String until
+    // then (except before Java 9, where it's a fresh copy each time, hence the equals())
+    private int threadNameId()
+    {
+        ThreadId threadId = THREAD_IDS.get();
+        String name = Thread.currentThread().getName();
+
+        if (threadId.generation != generation || (name != threadId.name && !name.equals(threadId.name))) {
+            threadId.id = threadNames.id(name);
+            threadId.name = name;
+            threadId.generation = generation;
+        }
+
+        return threadId.id;
+    }
+
+    // returns the claimed position, or -1 if the ring is full
+    private long claim()
+    {
+        long position = tail.get();
+
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+
+                position = tail.get();
+            }
+            else if (difference < 0) {
+                return -1;
+            }
+            else {
+                position = tail.get();
+            }
+        }
+    }
+
+    private void wakeConsumer()
+    {
+        consumerParked = false;
+        LockSupport.unpark(consumer);
+    }
+
+    // returns false if the ring was empty
+    private boolean drainOne()
+    {
+        long position = head.get();
+        int index = (int) position & mask;
+
+        if (sequences.get(index) != position + 1) {
+            return false;
+        }
+
+        int offset = index * SLOT_SIZE;
+        Level level = Level.toLevel(slots.getInt(offset));
+        Logger logger = loggers.get(slots.getInt(offset + 4));
+        String template = templates.get(slots.getInt(offset + 8));
+        String threadName = threadNames.get(slots.getInt(offset + 12));
+        long timeStamp = slots.getLong(offset + 16);
+        Object[] args = readArgs(offset);
+
+        sequences.set(index, position + capacity);
+        head.lazySet(position + 1);
+
+        try {
+            logger.logDeferred(level, template, args, timeStamp, threadName);
+        }
+        catch (RuntimeException e) {
+            LogLog.error("Backend failed while logging a queued message", e);
+        }
+
+        return true;
+    }
+
+    private void consume()
+    {
+        while (running) {
+            if (!drainOne()) {
+                consumerParked = true;
+
+                // re-check after advertising that we're parked so a message queued in between isn't stranded
+                if (!drainOne()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+
+                consumerParked = false;
+            }
+        }
+
+        while (drainOne()) {
+            // flush whatever was queued before we were stopped
+        }
+    }
+
+    private void stop()
+    {
+        running = false;
+        LockSupport.unpark(consumer);
+        drainStragglers();
+    }
+
+    // a message queued while we were stopping may have missed the consumer's final drain
+    private synchronized void drainStragglers()
+    {
+        try {
+            consumer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        while (drainOne()) {
+            // the consumer is gone, so this thread is now the only one draining
+        }
+    }
+
+    /**
+     * Assigns consecutive IDs to distinct values.  Slots hold the IDs, so the ring holds no references to them.
+     */
+    private static final class Ids<T>
+    {
+        private final ConcurrentMap<T, Integer> ids = new ConcurrentHashMap<T, Integer>();
+        // written under the lock, and published (along with the new value) by writing the field
+        private volatile Object[] values = new Object[16];
+
+        // returns -1 once MAX_IDS have been assigned
+        int id(T value)
+        {
+            Integer id = ids.get(value);
+
+            return id == null ? assign(value) : id;
+        }
+
+        private synchronized int assign(T value)
+        {
+            Integer id = ids.get(value);
+
+            if (id == null) {
+                if (ids.size() >= MAX_IDS) {
+                    return -1;
+                }
+
+                Object[] current = values;
+
+                id = ids.size();
+
+                if (id == current.length) {
+                    current = Arrays.copyOf(current, 2 * id);
+                }
+
+                current[id] = value;
+                values = current;
+                ids.put(value, id);
+            }
+
+            return id;
+        }
+
+        @SuppressWarnings("unchecked")
+        T get(int id)
+        {
+            return (T) values[id];
+        }
+    }
+
+    // the ID of a thread's name in the ring that assigned it
+    private static final class ThreadId
+    {
+        private int generation = 0;
+        private String name = null;
+        private int id = -1;
+    }
+}
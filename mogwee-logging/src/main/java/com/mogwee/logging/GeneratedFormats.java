@@ -0,0 +1,90 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging;
+
+import java.util.Formattable;
+
+/**
+ * Renderers for format strings, generated at compile time by the {@code mogwee-logging-processor} annotation
+ * processor, one subclass per class that logs with constant format strings.
+ * <p/>
+ * Generated subclasses are listed in {@code META-INF/services/com.mogwee.logging.GeneratedFormats}; the first time
+ * a message is formatted, every one visible to the context class loader is loaded and its renderers are used in
+ * place of parsing the format strings they were generated for.  Like compiled formats, generated renderers only
+ * handle {@code %s}, {@code %d}, {@code %%} and {@code %n}, and return null for arguments that
+ * {@code String.format()} treats specially, so the rendered text is always exactly what {@code String.format()}
+ * produces.  Not meant to be subclassed by hand.
+ */
+public abstract class GeneratedFormats
+{
+    protected static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private final String[] templates;
+
+    /**
+     * @param templates the format strings rendered, in the order {@link #render(int, StringBuilder, Object[])}
+     *                  numbers them
+     */
+    protected GeneratedFormats(String... templates)
+    {
+        this.templates = templates;
+    }
+
+    String[] getTemplates()
+    {
+        return templates;
+    }
+
+    /**
+     * @param index  which template to render
+     * @param result an empty builder to render into
+     * @param args   the format arguments
+     * @return the rendered string, or null if {@code String.format()} must be used instead
+     */
+    protected abstract String render(int index, StringBuilder result, Object[] args);
+
+    /**
+     * @return whether {@code %s} renders {@code arg} as {@code String.valueOf(arg)}
+     */
+    protected static boolean isPlainString(Object arg)
+    {
+        return !(arg instanceof Formattable);
+    }
+
+    /**
+     * @return whether {@code %d} renders {@code arg} as {@link #appendInteger(StringBuilder, Object)} does
+     */
+    protected static boolean isPlainInteger(Object arg)
+    {
+        if (arg == null) {
+            return true;
+        }
+
+        return (arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte) && CompiledFormat.hasAsciiDigits();
+    }
+
+    protected static void appendInteger(StringBuilder result, Object arg)
+    {
+        if (arg == null) {
+            result.append("null");
+        }
+        else {
+            result.append(((Number) arg).longValue());
+        }
+    }
+}
@@ -0,0 +1,571 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Category;
+import org.apache.log4j.Layout;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.ErrorCode;
+import org.apache.log4j.spi.Filter;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A Log4J appender that writes events to a file in batches, with one {@code write} and one {@code fsync} per batch.
+ * <p/>
+ * Logging threads only encode their events and copy them into the pending batch; a writer thread commits the batch
+ * once it holds {@code MaxBatchSize} bytes or its first event has waited {@code MaxLatencyMillis}, whichever comes
+ * first, so the cost of forcing the file to disk is shared by every event in the batch.  Set {@code Sync} to false to
+ * skip the {@code fsync} and only batch the writes.  A logging thread blocks if the pending batch is full while the
+ * previous one is still being committed.
+ * <p/>
+ * Messages logged through a {@link Logger#durable() durable} view don't return until the batches holding them have
+ * been committed, and throw a {@link DurableLogException} if any of them couldn't be.  Unlike Log4J's appenders,
+ * this one only holds the appender's lock while the layout formats an event (layouts such as {@code PatternLayout}
+ * aren't thread-safe); encoding the event and adding it to the batch happen without it.
+ * <p/>
+ * Configure it like any other appender, e.g.,
+ * <pre>
+ * log4j.appender.FILE=com.mogwee.logging.GroupCommitAppender
+ * log4j.appender.FILE.File=logs/app.log
+ * log4j.appender.FILE.MaxLatencyMillis=5
+ * log4j.appender.FILE.layout=org.apache.log4j.PatternLayout
+ * </pre>
+ */
+public class GroupCommitAppender extends AppenderSkeleton
+{
+    // the batches that the current thread's durable message went into, or null if it isn't logging durably
+    private static final ThreadLocal<List<PendingCommit>> DURABLE_COMMITS = new ThreadLocal<List<PendingCommit>>();
+
+    private String fileName = null;
+    private String encoding = "UTF-8";
+    private boolean append = true;
+    private int maxBatchSize = 64 * 1024;
+    private long maxLatencyMillis = 10;
+    private boolean sync = true;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchReady = lock.newCondition();
+    private final Condition spaceAvailable = lock.newCondition();
+    private final Condition batchCommitted = lock.newCondition();
+    // guarded by lock
+    private byte[] pending = new byte[0];
+    private int pendingLength = 0;
+    private long pendingSince = 0;
+    // the batch being filled
+    private Batch pendingBatch = new Batch();
+    private long committedBatches = 0;
+    private boolean full = false;
+    private boolean running = false;
+    private boolean writerDone = true;
+
+    private Charset charset = null;
+    private FileChannel channel = null;
+    private Thread writer = null;
+
+    public String getFile()
+    {
+        return fileName;
+    }
+
+    public void setFile(String fileName)
+    {
+        this.fileName = fileName == null ? null : fileName.trim();
+    }
+
+    public String getEncoding()
+    {
+        return encoding;
+    }
+
+    public void setEncoding(String encoding)
+    {
+        this.encoding = encoding;
+    }
+
+    public boolean getAppend()
+    {
+        return append;
+    }
+
+    public void setAppend(boolean append)
+    {
+        this.append = append;
+    }
+
+    /**
+     * @return how many bytes a batch holds before it's committed without waiting any longer
+     */
+    public int getMaxBatchSize()
+    {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize)
+    {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * @return the longest an event waits for its batch to fill before the batch is committed anyway
+     */
+    public long getMaxLatencyMillis()
+    {
+        return maxLatencyMillis;
+    }
+
+    public void setMaxLatencyMillis(long maxLatencyMillis)
+    {
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+
+    /**
+     * @return whether each batch is forced to disk once it's written
+     */
+    public boolean getSync()
+    {
+        return sync;
+    }
+
+    public void setSync(boolean sync)
+    {
+        this.sync = sync;
+    }
+
+    /**
+     * @return how many batches have been committed
+     */
+    public long getCommittedBatches()
+    {
+        lock.lock();
+
+        try {
+            return committedBatches;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void activateOptions()
+    {
+        if (fileName == null) {
+            LogLog.error("File option not set for appender [" + name + "].");
+            return;
+        }
+
+        if (maxBatchSize < 1) {
+            LogLog.warn("MaxBatchSize of appender [" + name + "] raised to 1 byte.");
+            maxBatchSize = 1;
+        }
+
+        charset = Charset.forName(encoding);
+
+        try {
+            File parent = new File(fileName).getAbsoluteFile().getParentFile();
+
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Couldn't create directory " + parent);
+            }
+
+            channel = new FileOutputStream(fileName, append).getChannel();
+        }
+        catch (IOException e) {
+            errorHandler.error("Couldn't open " + fileName, e, ErrorCode.FILE_OPEN_FAILURE);
+            return;
+        }
+
+        lock.lock();
+
+        try {
+            running = true;
+            writerDone = false;
+        }
+        finally {
+            lock.unlock();
+        }
+
+        writer = new Thread("mogwee-logging-group-commit-" + name)
+        {
+            @Override
+            public void run()
+            {
+                writeBatches();
+            }
+        };
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Like {@code AppenderSkeleton}'s, but without holding the appender's lock while appending; {@link #append}
+     * takes it just for the layout.
+     */
+    @Override
+    public void doAppend(LoggingEvent event)
+    {
+        if (closed) {
+            LogLog.error("Attempted to append to closed appender named [" + name + "].");
+            return;
+        }
+
+        if (!isAsSevereAsThreshold(event.getLevel())) {
+            return;
+        }
+
+        Filter filter = getFilter();
+
+        while (filter != null) {
+            switch (filter.decide(event)) {
+                case Filter.DENY:
+                    return;
+                case Filter.ACCEPT:
+                    filter = null;
+                    break;
+                default:
+                    filter = filter.getNext();
+                    break;
+            }
+        }
+
+        append(event);
+    }
+
+    @Override
+    protected void append(LoggingEvent event)
+    {
+        StringBuilder text;
+        boolean ignoresThrowable;
+
+        synchronized (this) {
+            text = new StringBuilder(layout.format(event));
+            ignoresThrowable = layout.ignoresThrowable();
+        }
+
+        if (ignoresThrowable) {
+            String[] lines = event.getThrowableStrRep();
+
+            if (lines != null) {
+                for (String line : lines) {
+                    text.append(line).append(Layout.LINE_SEP);
+                }
+            }
+        }
+
+        Batch batch = enqueue(text.toString().getBytes(charset));
+
+        if (batch == null) {
+            errorHandler.error("No open file for appender [" + name + "].");
+            return;
+        }
+
+        List<PendingCommit> commits = DURABLE_COMMITS.get();
+
+        if (commits != null) {
+            commits.add(new PendingCommit(this, batch));
+        }
+    }
+
+    @Override
+    public boolean requiresLayout()
+    {
+        return true;
+    }
+
+    /**
+     * Commits whatever is pending, then stops the writer thread and closes the file.
+     */
+    @Override
+    public void close()
+    {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+        }
+
+        lock.lock();
+
+        try {
+            running = false;
+            batchReady.signalAll();
+            spaceAvailable.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+
+        if (writer != null) {
+            try {
+                writer.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (channel != null) {
+            try {
+                channel.close();
+            }
+            catch (IOException e) {
+                LogLog.error("Failed to close " + fileName, e);
+            }
+        }
+    }
+
+    /**
+     * Calls a category's appenders, then waits for every batch the event went into to be committed.
+     *
+     * @throws DurableLogException if any of those batches couldn't be committed
+     */
+    static void callAppendersDurably(Category category, LoggingEvent event)
+    {
+        List<PendingCommit> outer = DURABLE_COMMITS.get();
+        List<PendingCommit> commits = new ArrayList<PendingCommit>(1);
+
+        DURABLE_COMMITS.set(commits);
+
+        try {
+            category.callAppenders(event);
+        }
+        finally {
+            DURABLE_COMMITS.set(outer);
+        }
+
+        PendingCommit failed = null;
+        IOException failure = null;
+
+        for (PendingCommit commit : commits) {
+            IOException e = commit.appender.awaitCommit(commit.batch);
+
+            if (e != null && failure == null) {
+                failed = commit;
+                failure = e;
+            }
+        }
+
+        if (failure != null) {
+            throw new DurableLogException("Failed to commit message to " + failed.appender.fileName, failure);
+        }
+    }
+
+    /**
+     * @return the batch the bytes went into, or null if the appender isn't running
+     */
+    private Batch enqueue(byte[] bytes)
+    {
+        lock.lock();
+
+        try {
+            while (running && pendingLength > 0 && pendingLength + bytes.length > maxBatchSize) {
+                full = true;
+                batchReady.signal();
+                spaceAvailable.awaitUninterruptibly();
+            }
+
+            if (!running) {
+                return null;
+            }
+
+            if (pendingLength == 0) {
+                pendingSince = System.nanoTime();
+                batchReady.signal();
+            }
+
+            if (pendingLength + bytes.length > pending.length) {
+                byte[] grown = new byte[Math.max(pendingLength + bytes.length, Math.min(2 * pending.length, maxBatchSize))];
+
+                System.arraycopy(pending, 0, grown, 0, pendingLength);
+                pending = grown;
+            }
+
+            System.arraycopy(bytes, 0, pending, pendingLength, bytes.length);
+            pendingLength += bytes.length;
+
+            if (pendingLength >= maxBatchSize) {
+                full = true;
+                batchReady.signal();
+            }
+
+            return pendingBatch;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits even if the thread is interrupted, since returning early would claim a commit that hasn't happened; the
+     * interrupt is still pending when it returns.
+     *
+     * @return why the batch couldn't be committed, or null if it was
+     */
+    private IOException awaitCommit(Batch batch)
+    {
+        lock.lock();
+
+        try {
+            while (!batch.committed && !writerDone) {
+                batchCommitted.awaitUninterruptibly();
+            }
+
+            if (!batch.committed) {
+                return new IOException("Writer thread of appender [" + name + "] stopped before committing");
+            }
+
+            return batch.failure;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeBatches()
+    {
+        byte[] writing = new byte[0];
+
+        try {
+            while (true) {
+                int length;
+                Batch batch;
+
+                lock.lock();
+
+                try {
+                    while (pendingLength == 0) {
+                        if (!running) {
+                            return;
+                        }
+
+                        batchReady.awaitUninterruptibly();
+                    }
+
+                    long deadline = pendingSince + TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+                    long remaining;
+
+                    while (running && !full && (remaining = deadline - System.nanoTime()) > 0) {
+                        try {
+                            batchReady.awaitNanos(remaining);
+                        }
+                        catch (InterruptedException e) {
+                            // commit what we have
+                            break;
+                        }
+                    }
+
+                    byte[] filled = pending;
+
+                    pending = writing;
+                    writing = filled;
+                    length = pendingLength;
+                    pendingLength = 0;
+                    full = false;
+                    batch = pendingBatch;
+                    pendingBatch = new Batch();
+                    spaceAvailable.signalAll();
+                }
+                finally {
+                    lock.unlock();
+                }
+
+                IOException failure = commit(writing, length);
+
+                lock.lock();
+
+                try {
+                    batch.committed = true;
+                    batch.failure = failure;
+                    ++committedBatches;
+                    batchCommitted.signalAll();
+                }
+                finally {
+                    lock.unlock();
+                }
+            }
+        }
+        finally {
+            lock.lock();
+
+            try {
+                writerDone = true;
+                batchCommitted.signalAll();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return why the bytes couldn't be written, or null if they were
+     */
+    private IOException commit(byte[] bytes, int length)
+    {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            if (sync) {
+                channel.force(false);
+            }
+
+            return null;
+        }
+        catch (IOException e) {
+            errorHandler.error("Failed to write to " + fileName, e, ErrorCode.WRITE_FAILURE);
+            return e;
+        }
+    }
+
+    private static final class Batch
+    {
+        // guarded by the appender's lock; set once the writer thread is done with the batch
+        private boolean committed = false;
+        private IOException failure = null;
+    }
+
+    private static final class PendingCommit
+    {
+        private final GroupCommitAppender appender;
+        private final Batch batch;
+
+        private PendingCommit(GroupCommitAppender appender, Batch batch)
+        {
+            this.appender = appender;
+            this.batch = batch;
+        }
+    }
+}
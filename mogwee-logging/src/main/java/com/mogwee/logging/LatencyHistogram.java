@@ -0,0 +1,192 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations in nanoseconds, with log-linear buckets in the style of HdrHistogram.
+ * <p/>
+ * Values below 64 get a bucket each; above that, each power of two is split into 32 equal buckets, so any recorded
+ * value is reported to within about 3%.  Values are capped at 2^40 ns (about 18 minutes).  Recording is a single
+ * atomic increment (plus a compare-and-set when a new maximum is seen).
+ */
+public final class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_VALUE_BITS = 40;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos a duration
+     */
+    public void record(long nanos)
+    {
+        long value = nanos < 0 ? 0 : Math.min(nanos, MAX_VALUE);
+
+        counts.incrementAndGet(index(value));
+
+        long currentMax = max.get();
+
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * @return the durations recorded so far
+     */
+    public Snapshot snapshot()
+    {
+        long[] snapshotCounts = new long[BUCKETS];
+
+        for (int i = 0; i < BUCKETS; ++i) {
+            snapshotCounts[i] = counts.get(i);
+        }
+
+        return new Snapshot(snapshotCounts, max.get());
+    }
+
+    static int index(long value)
+    {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    // the largest value that falls in the bucket
+    static long highestValue(int index)
+    {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * An immutable copy of a histogram's counts.
+     */
+    public static final class Snapshot
+    {
+        private final long[] counts;
+        private final long max;
+        private final long count;
+
+        private Snapshot(long[] counts, long max)
+        {
+            long total = 0;
+
+            for (long bucketCount : counts) {
+                total += bucketCount;
+            }
+
+            this.counts = counts;
+            this.max = max;
+            this.count = total;
+        }
+
+        /**
+         * @return how many durations were recorded
+         */
+        public long getCount()
+        {
+            return count;
+        }
+
+        /**
+         * @return the longest duration recorded, in nanoseconds (for a snapshot returned by {@link #since(Snapshot)},
+         * rounded up to its bucket's limit)
+         */
+        public long getMax()
+        {
+            return max;
+        }
+
+        /**
+         * @param percentile a percentile, e.g., 99.9
+         * @return the duration (in nanoseconds, rounded up to its bucket's limit) that {@code percentile} percent of the
+         * recorded durations were no longer than, or 0 if nothing was recorded
+         */
+        public long getPercentile(double percentile)
+        {
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(count * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+            long seen = 0;
+
+            for (int i = 0; i < counts.length; ++i) {
+                seen += counts[i];
+
+                if (seen >= rank) {
+                    return Math.min(highestValue(i), max);
+                }
+            }
+
+            return max;
+        }
+
+        /**
+         * @param earlier an earlier snapshot of the same histogram
+         * @return what was recorded between {@code earlier} and this snapshot
+         */
+        public Snapshot since(Snapshot earlier)
+        {
+            long[] difference = new long[counts.length];
+            long differenceMax = 0;
+
+            for (int i = 0; i < counts.length; ++i) {
+                difference[i] = counts[i] - earlier.counts[i];
+
+                if (difference[i] > 0) {
+                    differenceMax = Math.min(highestValue(i), max);
+                }
+            }
+
+            return new Snapshot(difference, differenceMax);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format(
+                "count=%d p50=%dns p90=%dns p99=%dns p99.9=%dns max=%dns",
+                count,
+                getPercentile(50),
+                getPercentile(90),
+                getPercentile(99),
+                getPercentile(99.9),
+                max
+            );
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.util.concurrent.Callable;
+
+/**
+ * A format argument that's only computed if the message is actually logged.
+ * <p/>
+ * Pass one to any of the {@link Logger} {@code *f} methods in place of an expensive argument, e.g.,
+ * {@code LOG.debugf("Request: %s", lazy(() -> serialize(request)))} (with Java 8)
+ * or an anonymous subclass overriding {@link #evaluate()} (with earlier versions).
+ * The value is computed at most once, and is then formatted exactly as if it had been passed directly.
+ * <p/>
+ * Instances are meant to be created for a single logging call and aren't thread-safe.
+ */
+public abstract class LazyArgument
+{
+    private boolean evaluated = false;
+    private Object value = null;
+    private RuntimeException failure = null;
+
+    /**
+     * @param callable computes the argument
+     * @return an argument that calls {@code callable} only if the message is logged
+     */
+    public static LazyArgument lazy(final Callable<?> callable)
+    {
+        return new LazyArgument()
+        {
+            @Override
+            protected Object evaluate()
+            {
+                try {
+                    return callable.call();
+                }
+                catch (RuntimeException e) {
+                    throw e;
+                }
+                catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Computes the argument.  Only called once, and only if the message is logged.
+     *
+     * @return the argument
+     */
+    protected abstract Object evaluate();
+
+    /**
+     * @return the argument, computing it if necessary
+     * @throws RuntimeException whatever {@link #evaluate()} threw (every time, without calling it again)
+     */
+    public final Object get()
+    {
+        if (!evaluated) {
+            evaluated = true;
+
+            try {
+                value = evaluate();
+            }
+            catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        return value;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.valueOf(get());
+    }
+
+    /**
+     * @param args format arguments, some of which may be lazy
+     * @return {@code args} itself if none were lazy, otherwise a copy with each lazy argument replaced by its value
+     * (or left in place if computing it failed, so formatting fails the same way)
+     */
+    static Object[] resolve(Object[] args)
+    {
+        if (args == null) {
+            return null;
+        }
+
+        Object[] result = args;
+
+        for (int i = 0; i < args.length; ++i) {
+            if (args[i] instanceof LazyArgument) {
+                if (result == args) {
+                    result = args.clone();
+                }
+
+                try {
+                    result[i] = ((LazyArgument) args[i]).get();
+                }
+                catch (RuntimeException e) {
+                    // leave it be: its toString() throws the same exception, which the bogus format handling reports
+                }
+            }
+        }
+
+        return result;
+    }
+}
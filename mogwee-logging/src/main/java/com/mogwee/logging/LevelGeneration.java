@@ -0,0 +1,89 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A counter that changes whenever the backend's configuration might have, so {@link Logger} can cache effective
+ * levels.
+ * <p/>
+ * Log4J 1.2 doesn't announce level changes, so caching is off unless the {@code com.mogwee.logging.levelRefreshMillis}
+ * system property is set to a positive interval; each level check then asks the backend, and a level set through
+ * the Log4J API takes effect immediately.  With caching on, the generation moves on when:
+ * <ul>
+ * <li>an appender is added or removed, which every configurator does when (re)configuring (see
+ * {@link Log4jBackend});</li>
+ * <li>a {@link SimpleBackend} level is set;</li>
+ * <li>someone calls {@link Logger#refreshLevels()} after changing levels through the Log4J API; or</li>
+ * <li>the refresh interval elapses, which bounds how long any other change goes unnoticed.</li>
+ * </ul>
+ */
+final class LevelGeneration
+{
+    static final String REFRESH_MILLIS_PROPERTY = "com.mogwee.logging.levelRefreshMillis";
+
+    /**
+     * Whether {@link Logger} caches effective levels (by generation) instead of asking the backend on every check.
+     */
+    static final boolean CACHING;
+
+    private static final AtomicInteger GENERATION = new AtomicInteger();
+
+    static {
+        final long refreshMillis = Long.getLong(REFRESH_MILLIS_PROPERTY, 0L);
+
+        CACHING = refreshMillis > 0;
+
+        if (CACHING) {
+            Thread refresher = new Thread("mogwee-logging-level-refresher")
+            {
+                @Override
+                public void run()
+                {
+                    while (true) {
+                        try {
+                            Thread.sleep(refreshMillis);
+                        }
+                        catch (InterruptedException e) {
+                            return;
+                        }
+
+                        advance();
+                    }
+                }
+            };
+
+            refresher.setDaemon(true);
+            refresher.start();
+        }
+    }
+
+    private LevelGeneration()
+    {
+    }
+
+    static int current()
+    {
+        return GENERATION.get();
+    }
+
+    static void advance()
+    {
+        GENERATION.incrementAndGet();
+    }
+}
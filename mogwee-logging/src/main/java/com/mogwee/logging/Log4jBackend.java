@@ -0,0 +1,266 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.Category;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.MDC;
+import org.apache.log4j.NDC;
+import org.apache.log4j.spi.HierarchyEventListener;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.spi.ThrowableInformation;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Hashtable;
+
+/**
+ * The default backend: hands messages to Log4J's appenders, either directly or through the installed
+ * {@link AsyncDispatcher}.
+ */
+final class Log4jBackend implements LoggingBackend
+{
+    private static final String FQCN = Logger.class.getName();
+
+    Log4jBackend()
+    {
+        // every configurator adds or removes appenders when (re)configuring
+        LogManager.getLoggerRepository().addHierarchyEventListener(
+            new HierarchyEventListener()
+            {
+                @Override
+                public void addAppenderEvent(Category category, Appender appender)
+                {
+                    LevelGeneration.advance();
+                }
+
+                @Override
+                public void removeAppenderEvent(Category category, Appender appender)
+                {
+                    LevelGeneration.advance();
+                }
+            }
+        );
+    }
+
+    @Override
+    public BackendLogger getLogger(String name)
+    {
+        return new Log4jLogger(org.apache.log4j.Logger.getLogger(name));
+    }
+
+    private static final class Log4jLogger implements DeferredLogger
+    {
+        private final org.apache.log4j.Logger log4j;
+
+        private Log4jLogger(org.apache.log4j.Logger log4j)
+        {
+            this.log4j = log4j;
+        }
+
+        @Override
+        public String getName()
+        {
+            return log4j.getName();
+        }
+
+        @Override
+        public Level getThreshold()
+        {
+            Level level = log4j.getEffectiveLevel();
+            Level repositoryThreshold = log4j.getLoggerRepository().getThreshold();
+
+            return repositoryThreshold.isGreaterOrEqual(level) ? repositoryThreshold : level;
+        }
+
+        @Override
+        public void log(Level level, String message, Throwable cause, StackTraceFormat format)
+        {
+            LoggingEvent event = newEvent(level, message, cause, format);
+            AsyncDispatcher dispatcher = AsyncDispatcher.installed();
+
+            if (dispatcher == null) {
+                log4j.callAppenders(event);
+            }
+            else {
+                dispatcher.dispatch(log4j, event);
+            }
+        }
+
+        /**
+         * Calls the appenders on this thread, then waits for any {@link GroupCommitAppender} to commit the message.
+         *
+         * @throws DurableLogException if one of them couldn't
+         */
+        @Override
+        public void logDurably(Level level, String message, Throwable cause, StackTraceFormat format)
+        {
+            GroupCommitAppender.callAppendersDurably(log4j, newEvent(level, message, cause, format));
+        }
+
+        /**
+         * The consumer's thread has its own MDC and NDC, so only messages logged without any can be deferred.
+         */
+        @Override
+        public boolean canDefer()
+        {
+            Hashtable<?, ?> mdc = MDC.getContext();
+
+            return LogContext.current().isEmpty() && (mdc == null || mdc.isEmpty()) && NDC.getDepth() == 0;
+        }
+
+        /**
+         * Calls the appenders on this thread (never through the {@link AsyncDispatcher}: it's already off the logging
+         * thread).
+         */
+        @Override
+        public void logDeferred(Level level, String message, long timeStamp, String threadName)
+        {
+            log4j.callAppenders(new DeferredLoggingEvent(log4j, level, message, timeStamp, threadName));
+        }
+
+        private LoggingEvent newEvent(Level level, String message, Throwable cause, StackTraceFormat format)
+        {
+            LogContext context = LogContext.current();
+            // Log4J renders full stack traces itself
+            boolean formatted = cause != null && format != StackTraceFormat.FULL;
+
+            if (formatted) {
+                FormattedThrowableInformation formattedThrowable = new FormattedThrowableInformation(cause, format);
+
+                return new ExtendedLoggingEvent(log4j, level, message, null, formattedThrowable, context);
+            }
+
+            if (context.isEmpty()) {
+                return new LoggingEvent(FQCN, log4j, level, message, cause);
+            }
+
+            return new ExtendedLoggingEvent(log4j, level, message, cause, null, context);
+        }
+    }
+
+    /**
+     * An event carrying the {@link LogContext} it was logged in, whose values layouts see as MDC values, and possibly a
+     * stack trace rendered with a {@link StackTraceFormat} rather than by Log4J.  The context isn't serialized.
+     */
+    private static final class ExtendedLoggingEvent extends LoggingEvent
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final FormattedThrowableInformation formattedThrowable;
+        private final transient LogContext context;
+
+        /**
+         * @param cause              passed to Log4J to render, or null
+         * @param formattedThrowable used instead of {@code cause}, or null
+         */
+        private ExtendedLoggingEvent(
+            Category category,
+            Level level,
+            String message,
+            Throwable cause,
+            FormattedThrowableInformation formattedThrowable,
+            LogContext context
+        )
+        {
+            super(FQCN, category, level, message, cause);
+            this.formattedThrowable = formattedThrowable;
+            this.context = context;
+        }
+
+        @Override
+        public ThrowableInformation getThrowableInformation()
+        {
+            return formattedThrowable == null ? super.getThrowableInformation() : formattedThrowable;
+        }
+
+        @Override
+        public String[] getThrowableStrRep()
+        {
+            return formattedThrowable == null ? super.getThrowableStrRep() : formattedThrowable.getThrowableStrRep();
+        }
+
+        @Override
+        public Object getMDC(String key)
+        {
+            Object value = context == null ? null : context.get(key);
+
+            return value == null ? super.getMDC(key) : value;
+        }
+    }
+
+    /**
+     * An event logged on one thread and passed to the appenders on another, e.g., by {@link EventRing}'s consumer.
+     */
+    private static final class DeferredLoggingEvent extends LoggingEvent
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String threadName;
+
+        private DeferredLoggingEvent(Category category, Level level, String message, long timeStamp, String threadName)
+        {
+            super(FQCN, category, timeStamp, level, message, null);
+            this.threadName = threadName;
+        }
+
+        @Override
+        public String getThreadName()
+        {
+            return threadName;
+        }
+    }
+
+    /**
+     * A stack trace rendered (once, when first asked for) with a {@link StackTraceFormat}.
+     */
+    private static final class FormattedThrowableInformation extends ThrowableInformation
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final transient StackTraceFormat format;
+        private String[] lines = null;
+
+        private FormattedThrowableInformation(Throwable cause, StackTraceFormat format)
+        {
+            super(cause);
+            this.format = format;
+        }
+
+        // racing threads at worst render it twice
+        @Override
+        public String[] getThrowableStrRep()
+        {
+            String[] result = lines;
+
+            if (result == null) {
+                result = format.toLines(getThrowable());
+                lines = result;
+            }
+
+            return result.clone();
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException
+        {
+            getThrowableStrRep();
+            out.defaultWriteObject();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * An immutable diagnostic context (e.g., request and tenant IDs) that's logged with every message, a cheaper
+ * alternative to Log4J's {@code MDC}.
+ * <p/>
+ * Each thread has a current context, changed with {@link #put(String, Object)}, {@link #remove(String)} and
+ * {@link #clear()}.  Contexts are persistent maps: changing one makes a new context that shares all of the old one
+ * past the changed key, and leaves the old one as it was.  So capturing the context for an event (or a task) just
+ * copies a reference, where {@code MDC} copies a {@code Hashtable} into every event.  Values are only rendered (with
+ * {@code toString()}) when a message is actually written, which may be later and on another thread, so they should
+ * be immutable.
+ * <p/>
+ * With the Log4J backend, values are available to layouts as MDC values, e.g., {@code %X{requestId}} in a
+ * {@code PatternLayout}, including through the {@link AsyncDispatcher}; the {@link SimpleBackend} writes the whole
+ * context after the logger name.  To carry the context over to other threads, {@link #wrap(Runnable) wrap} the tasks
+ * (or the {@link #wrap(Executor) executor}), or {@link #attach() attach} a captured context directly.
+ * <p/>
+ * Contexts are meant to hold a handful of keys: most operations take time proportional to the number of keys.
+ */
+public final class LogContext
+{
+    public static final LogContext EMPTY = new LogContext(null, null, null);
+
+    private static final ThreadLocal<LogContext> CURRENT = new ThreadLocal<LogContext>()
+    {
+        @Override
+        protected LogContext initialValue()
+        {
+            return EMPTY;
+        }
+    };
+
+    // the most recently added key comes first; null for EMPTY
+    private final String key;
+    private final Object value;
+    private final LogContext rest;
+    private final int size;
+
+    private LogContext(String key, Object value, LogContext rest)
+    {
+        this.key = key;
+        this.value = value;
+        this.rest = rest;
+        this.size = rest == null ? 0 : rest.size + 1;
+    }
+
+    /**
+     * @return the current thread's context
+     */
+    public static LogContext current()
+    {
+        return CURRENT.get();
+    }
+
+    /**
+     * Sets a value in the current thread's context.
+     *
+     * @param key   a key
+     * @param value its value, or null to remove it
+     */
+    public static void put(String key, Object value)
+    {
+        CURRENT.set(CURRENT.get().with(key, value));
+    }
+
+    /**
+     * Removes a value from the current thread's context.
+     *
+     * @param key a key
+     */
+    public static void remove(String key)
+    {
+        CURRENT.set(CURRENT.get().without(key));
+    }
+
+    /**
+     * Empties the current thread's context.
+     */
+    public static void clear()
+    {
+        CURRENT.set(EMPTY);
+    }
+
+    /**
+     * @param task a task
+     * @return a task that runs {@code task} with the current thread's context (as it is now) attached
+     */
+    public static Runnable wrap(final Runnable task)
+    {
+        final LogContext context = current();
+
+        return new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                LogContext previous = context.attach();
+
+                try {
+                    task.run();
+                }
+                finally {
+                    previous.attach();
+                }
+            }
+        };
+    }
+
+    /**
+     * @param task a task
+     * @return a task that calls {@code task} with the current thread's context (as it is now) attached
+     */
+    public static <T> Callable<T> wrap(final Callable<T> task)
+    {
+        final LogContext context = current();
+
+        return new Callable<T>()
+        {
+            @Override
+            public T call() throws Exception
+            {
+                LogContext previous = context.attach();
+
+                try {
+                    return task.call();
+                }
+                finally {
+                    previous.attach();
+                }
+            }
+        };
+    }
+
+    /**
+     * @param executor an executor
+     * @return an executor that runs each task with the context of the thread that submitted it
+     */
+    public static Executor wrap(final Executor executor)
+    {
+        return new Executor()
+        {
+            @Override
+            public void execute(Runnable task)
+            {
+                executor.execute(wrap(task));
+            }
+        };
+    }
+
+    /**
+     * Makes this the current thread's context.
+     *
+     * @return the thread's previous context, to restore afterward
+     */
+    public LogContext attach()
+    {
+        LogContext previous = CURRENT.get();
+
+        CURRENT.set(this);
+
+        return previous;
+    }
+
+    /**
+     * @param key a key
+     * @return its value, or null if it isn't set
+     */
+    public Object get(String key)
+    {
+        for (LogContext context = this; context.rest != null; context = context.rest) {
+            if (context.key.equals(key)) {
+                return context.value;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param key   a key
+     * @param value its value, or null to remove it
+     * @return a context like this one, but with {@code key} set to {@code value}
+     */
+    public LogContext with(String key, Object value)
+    {
+        if (key == null) {
+            throw new IllegalArgumentException("key must not be null");
+        }
+
+        LogContext replaced = replace(key, value);
+
+        if (replaced != null) {
+            return replaced;
+        }
+
+        return value == null ? this : new LogContext(key, value, this);
+    }
+
+    /**
+     * @param key a key
+     * @return a context like this one, but without {@code key}
+     */
+    public LogContext without(String key)
+    {
+        return with(key, null);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * @return the keys and values, oldest first, e.g., {@code {requestId=1234, tenant=example}}
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder result = new StringBuilder();
+
+        appendTo(result);
+
+        return result.toString();
+    }
+
+    void appendTo(StringBuilder result)
+    {
+        result.append('{');
+        appendEntries(result);
+        result.append('}');
+    }
+
+    private void appendEntries(StringBuilder result)
+    {
+        if (rest != null) {
+            rest.appendEntries(result);
+
+            if (rest.rest != null) {
+                result.append(", ");
+            }
+
+            result.append(key).append('=').append(value);
+        }
+    }
+
+    /**
+     * Copies the entries before {@code key}, and shares the rest.
+     *
+     * @return null if {@code key} isn't set
+     */
+    private LogContext replace(String key, Object value)
+    {
+        if (rest == null) {
+            return null;
+        }
+
+        if (this.key.equals(key)) {
+            if (value == null) {
+                return rest;
+            }
+
+            return value.equals(this.value) ? this : new LogContext(key, value, rest);
+        }
+
+        LogContext replacedRest = rest.replace(key, value);
+
+        if (replacedRest == null) {
+            return null;
+        }
+
+        return replacedRest == rest ? this : new LogContext(this.key, this.value, replacedRest);
+    }
+}
@@ -0,0 +1,3205 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+public class Logger
+{
+    private static final String FQCN = Logger.class.getName();
+    private static final ConcurrentMap<String, Logger> LOGGERS = new ConcurrentHashMap<String, Logger>();
+    private static final Logger LOG = getLogger(Logger.class);
+
+    private final BackendLogger backend;
+    // null unless this is a rate-limited or sampled view
+    private final Throttle throttle;
+    // null unless this is a coalescing view
+    private final Coalescer coalescer;
+    // null unless this is a deduplicating view or traces are deduplicated by default
+    private final TraceDeduplicator traces;
+    private final StackTraceFormat traceFormat;
+    // null unless metrics are enabled; shared with views
+    private final LoggerMetrics metrics;
+    // whether this is a durable view
+    private final boolean durable;
+    // high 32 bits: the LevelGeneration this was computed in; low 32 bits: the lowest enabled level
+    private volatile long cachedThreshold = (long) (LevelGeneration.current() - 1) << 32;
+
+    /**
+     * Returns a logger for the calling class.
+     * <p/>
+     * Specifically, walks the stack (just far enough to find the caller) to determine the calling class.
+     * The fully-qualified name of that class is used to get a backend (by default, Log4J) logger, when is then wrapped.
+     * Typical usage is to use this method to initialize a static member variable, e.g.,
+     * {@code private static final Logger LOG = Logger.getLogger();}
+     * <p/>
+     * As this is not the sort of thing you want (or need) to be doing hundreds of times a second,
+     * a warning is logged if this method is not called from a static constructor.
+     *
+     * @return a logger
+     */
+    public static Logger getLogger()
+    {
+        StackTraceElement element = CallerLocator.callerOf(FQCN, "getLogger");
+        String name = element.getClassName();
+
+        if (!"<clinit>".equals(element.getMethodName())) {
+            LOG.warnf(
+                "Logger %s wasn't allocated in static constructor -- did you forget to make the field static? (%s:%s)",
+                name,
+                element.getFileName(),
+                element.getLineNumber()
+            );
+        }
+
+        return getLogger(name);
+    }
+
+    /**
+     * Returns a logger for the given class.
+     *
+     * @param clazz the class whose fully-qualified name is used as the logger name
+     * @return a logger
+     */
+    public static Logger getLogger(Class<?> clazz)
+    {
+        return getLogger(clazz.getName());
+    }
+
+    /**
+     * Returns the logger with the given name.  Every call with the same name returns the same logger.
+     *
+     * @param name the name of the backend (by default, Log4J) logger to wrap
+     * @return a logger
+     */
+    public static Logger getLogger(String name)
+    {
+        Logger logger = LOGGERS.get(name);
+
+        if (logger == null) {
+            Logger newLogger = new Logger(LoggingBackends.get().getLogger(name), null, null, TraceDeduplicator.DEFAULT, StackTraceFormat.FULL, LoggerMetrics.forLogger(name), false);
+
+            logger = LOGGERS.putIfAbsent(name, newLogger);
+
+            if (logger == null) {
+                logger = newLogger;
+            }
+        }
+
+        return logger;
+    }
+
+    /**
+     * Makes every logger re-read its effective level from the backend.
+     * <p/>
+     * Only needed when loggers cache their effective levels, which they do if the
+     * {@code com.mogwee.logging.levelRefreshMillis} system property is set to a positive interval.  Reconfiguring Log4J
+     * (or adding or removing an appender) is then noticed immediately, but changing a level directly through the Log4J
+     * API (e.g., {@code setLevel()} or {@code setThreshold()}) is only noticed once per interval unless this method is
+     * called afterward.
+     */
+    public static void refreshLevels()
+    {
+        LevelGeneration.advance();
+    }
+
+    private Logger(
+        BackendLogger backend,
+        Throttle throttle,
+        Coalescer coalescer,
+        TraceDeduplicator traces,
+        StackTraceFormat traceFormat,
+        LoggerMetrics metrics,
+        boolean durable
+    )
+    {
+        this.backend = backend;
+        this.throttle = throttle;
+        this.coalescer = coalescer;
+        this.traces = traces;
+        this.traceFormat = traceFormat;
+        this.metrics = metrics;
+        this.durable = durable;
+    }
+
+    /**
+     * Returns a view of this logger that logs each distinct format string (or message) at most
+     * {@code permitsPerSecond} times a second, after an initial burst of up to {@code burst} messages.
+     * <p/>
+     * Suppressed messages aren't rendered at all; how many there were is appended to the next message logged with
+     * the same format string.  The view isn't cached, so create it once, e.g.,
+     * {@code private static final Logger LIMITED_LOG = LOG.rateLimited(10, 100);}
+     * Calling this on a sampled view returns a view that both samples and rate limits.
+     *
+     * @param permitsPerSecond sustained number of messages allowed per second for each format string
+     * @param burst            number of messages allowed back-to-back for each format string
+     * @return a rate-limited logger
+     * @throws IllegalArgumentException if {@code permitsPerSecond} isn't positive or {@code burst} is less than 1
+     */
+    public Logger rateLimited(double permitsPerSecond, int burst)
+    {
+        return new Logger(backend, (throttle == null ? Throttle.NONE : throttle).withRateLimit(permitsPerSecond, burst), coalescer, traces, traceFormat, metrics, durable);
+    }
+
+    /**
+     * Returns a view of this logger that logs each message with the given probability.
+     * <p/>
+     * Suppressed messages aren't rendered at all; how many there were is appended to the next message logged with
+     * the same format string (or message).  The view isn't cached, so create it once.
+     * Calling this on a rate-limited view returns a view that both samples and rate limits.
+     *
+     * @param probability chance of each message being logged
+     * @return a sampled logger
+     * @throws IllegalArgumentException if {@code probability} isn't in (0, 1]
+     */
+    public Logger sampled(double probability)
+    {
+        return new Logger(backend, (throttle == null ? Throttle.NONE : throttle).withSampling(probability), coalescer, traces, traceFormat, metrics, durable);
+    }
+
+    /**
+     * Returns a view of this logger that collapses repeated messages.
+     * <p/>
+     * Messages with the same level, format string (or message) and cause class are repeats, whatever their arguments.
+     * The first one is logged as usual.  Repeats within {@code window} of it aren't rendered at all, and once the
+     * window has passed, a single line at the same level reports how many there were and the times of the first and
+     * last, e.g., {@code Connection refused [repeated 1234 more times between ... and ...]}.
+     * <p/>
+     * Summaries are logged by a shared background thread for as long as the view is in use (any still pending when it's
+     * garbage collected are lost), so create it once, e.g.,
+     * {@code private static final Logger COALESCING_LOG = LOG.coalescing(10, TimeUnit.SECONDS);}
+     * Repeats are collapsed before any rate limiting or sampling applies.
+     *
+     * @param window how long repeats of a message are collapsed for
+     * @param unit   the unit of {@code window}
+     * @return a coalescing logger
+     * @throws IllegalArgumentException if {@code window} is shorter than a millisecond
+     */
+    public Logger coalescing(long window, TimeUnit unit)
+    {
+        return new Logger(
+            backend,
+            throttle,
+            new Coalescer(unit.toMillis(window))
+            {
+                @Override
+                void summarize(Level level, String message)
+                {
+                    if (isLevelEnabled(level)) {
+                        emit(level, null, message, 0, null);
+                    }
+                }
+            },
+            traces,
+            traceFormat,
+            metrics,
+            durable
+        );
+    }
+
+    /**
+     * Returns a view of this logger that writes each distinct stack trace in full at most once per {@code interval}.
+     * <p/>
+     * Stack traces are told apart by a fingerprint of their exception classes and frames (but not their messages),
+     * which is appended to the message, e.g., {@code Request failed [stack trace 3f0e2a91c4b85d17]}.  Repeats within
+     * the interval are logged without the stack trace, as the message, the fingerprint, how many times it's been
+     * repeated and the exception's first line, e.g.,
+     * {@code Request failed [stack trace 3f0e2a91c4b85d17 repeated 12 times: java.io.IOException: Connection reset]}.
+     * Setting the {@code com.mogwee.logging.traceDedupMillis} system property deduplicates the stack traces logged by
+     * every logger.  The view isn't cached, so create it once.
+     *
+     * @param interval how often a repeated stack trace is written in full
+     * @param unit     the unit of {@code interval}
+     * @return a deduplicating logger
+     * @throws IllegalArgumentException if {@code interval} is shorter than a millisecond
+     */
+    public Logger deduplicatingTraces(long interval, TimeUnit unit)
+    {
+        TraceDeduplicator deduplicator = new TraceDeduplicator(unit.toMillis(interval));
+
+        return new Logger(backend, throttle, coalescer, deduplicator, traceFormat, metrics, durable);
+    }
+
+    /**
+     * Returns a view of this logger that renders stack traces with the given format, e.g.,
+     * {@code LOG.trimmingTraces(StackTraceFormat.FULL.withMaxDepth(20).excludingPackages("sun.reflect."))}, so deep
+     * framework stacks cost less to render and write.  Traces are rendered the same way by the binary log and the
+     * simple backend; with Log4J, only the appenders that ask for the trace render it.
+     *
+     * @param format how to render stack traces
+     * @return a logger using {@code format}
+     */
+    public Logger trimmingTraces(StackTraceFormat format)
+    {
+        if (format == null) {
+            throw new IllegalArgumentException("format must not be null");
+        }
+
+        return new Logger(backend, throttle, coalescer, traces, format, metrics, durable);
+    }
+
+    /**
+     * Returns a view of this logger whose logging methods don't return until the message has been committed to disk
+     * by every {@link GroupCommitAppender} it went to (or, with the {@link SimpleBackend}, forced to its file), e.g.,
+     * {@code DURABLE_LOG.errorf("Transfer %s failed", id);}  If a {@link GroupCommitAppender} fails to commit the
+     * message (or the {@link SimpleBackend} to force it), the logging method throws a {@link DurableLogException} once
+     * the other appenders are done with it.
+     * <p/>
+     * Durable messages are passed to the appenders on the calling thread even if an {@link AsyncDispatcher} is
+     * installed, and aren't written to the {@link BinaryLog}.  Other appenders behave as usual.
+     *
+     * @return a durable logger
+     */
+    public Logger durable()
+    {
+        return new Logger(backend, throttle, coalescer, traces, traceFormat, metrics, true);
+    }
+
+    /**
+     * Checks the same cached level as the logging methods, so there's seldom any need to call this before logging.
+     * It's for guarding work whose only purpose is to build a message; the {@code mogwee-logging-agent} inserts such
+     * guards around the arguments of the {@code *f} methods.  Messages rejected by it are counted as suppressed.
+     *
+     * @return whether DEBUG logging is enabled
+     */
+    public final boolean isDebugEnabled()
+    {
+        return isEnabled(Level.DEBUG);
+    }
+
+    /**
+     * Like {@link #isDebugEnabled()}, but for INFO.
+     *
+     * @return whether INFO logging is enabled
+     */
+    public final boolean isInfoEnabled()
+    {
+        return isEnabled(Level.INFO);
+    }
+
+    /**
+     * Like {@link #isDebugEnabled()}, but for WARN.
+     *
+     * @return whether WARN logging is enabled
+     */
+    public final boolean isWarnEnabled()
+    {
+        return isEnabled(Level.WARN);
+    }
+
+    /**
+     * Like {@link #isDebugEnabled()}, but for ERROR.
+     *
+     * @return whether ERROR logging is enabled
+     */
+    public final boolean isErrorEnabled()
+    {
+        return isEnabled(Level.ERROR);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string
+     */
+    public final void debugf(Throwable cause, String message, Object... args)
+    {
+        logf(Level.DEBUG, cause, message, args);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     * Unlike {@link #debugf(Throwable, String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(Throwable cause, String message, Object arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     * Unlike {@link #debugf(Throwable, String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(Throwable cause, String message, Object arg1, Object arg2)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg1, arg2});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     * Unlike {@link #debugf(Throwable, String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(Throwable cause, String message, Object arg1, Object arg2, Object arg3)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg1, arg2, arg3});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     * Unlike {@link #debugf(Throwable, String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(Throwable cause, String message, Object arg1, Object arg2, Object arg3, Object arg4)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg1, arg2, arg3, arg4});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     * Unlike {@link #debugf(Throwable, String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(Throwable cause, String message, boolean arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     * Unlike {@link #debugf(Throwable, String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(Throwable cause, String message, char arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     * Unlike {@link #debugf(Throwable, String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(Throwable cause, String message, byte arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     * Unlike {@link #debugf(Throwable, String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(Throwable cause, String message, short arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     * Unlike {@link #debugf(Throwable, String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(Throwable cause, String message, int arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     * Unlike {@link #debugf(Throwable, String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(Throwable cause, String message, long arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     * Unlike {@link #debugf(Throwable, String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(Throwable cause, String message, float arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled.
+     * Unlike {@link #debugf(Throwable, String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(Throwable cause, String message, double arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if DEBUG logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string
+     */
+    public final void debugf(String message, Object... args)
+    {
+        logf(Level.DEBUG, null, message, args);
+    }
+
+    /**
+     * Logs a formatted message if DEBUG logging is enabled.
+     * Unlike {@link #debugf(String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(String message, Object arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if DEBUG logging is enabled.
+     * Unlike {@link #debugf(String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(String message, Object arg1, Object arg2)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg1, arg2});
+        }
+    }
+
+    /**
+     * Logs a formatted message if DEBUG logging is enabled.
+     * Unlike {@link #debugf(String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(String message, Object arg1, Object arg2, Object arg3)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg1, arg2, arg3});
+        }
+    }
+
+    /**
+     * Logs a formatted message if DEBUG logging is enabled.
+     * Unlike {@link #debugf(String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(String message, Object arg1, Object arg2, Object arg3, Object arg4)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg1, arg2, arg3, arg4});
+        }
+    }
+
+    /**
+     * Logs a formatted message if DEBUG logging is enabled.
+     * Unlike {@link #debugf(String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(String message, boolean arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if DEBUG logging is enabled.
+     * Unlike {@link #debugf(String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(String message, char arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if DEBUG logging is enabled.
+     * Unlike {@link #debugf(String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(String message, byte arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if DEBUG logging is enabled.
+     * Unlike {@link #debugf(String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(String message, short arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if DEBUG logging is enabled.
+     * Unlike {@link #debugf(String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(String message, int arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if DEBUG logging is enabled.
+     * Unlike {@link #debugf(String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(String message, long arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if DEBUG logging is enabled.
+     * Unlike {@link #debugf(String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(String message, float arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if DEBUG logging is enabled.
+     * Unlike {@link #debugf(String, Object...)}, nothing is allocated unless DEBUG logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void debugf(String message, double arg)
+    {
+        if (isEnabled(Level.DEBUG)) {
+            formatAndLog(Level.DEBUG, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * @param cause   an exception to print stack trace of
+     * @param message a message to log
+     * @deprecated You meant to call {@link #debug(Throwable, String)}.
+     */
+    @Deprecated
+    public final void debugf(Throwable cause, String message)
+    {
+        log(Level.DEBUG, cause, message);
+    }
+
+    /**
+     * @param message a message to log
+     * @deprecated You meant to call {@link #debug(String)}.
+     */
+    @Deprecated
+    public final void debugf(String message)
+    {
+        log(Level.DEBUG, null, message);
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a message
+     */
+    public final void debug(Throwable cause, String message)
+    {
+        log(Level.DEBUG, cause, message);
+    }
+
+    /**
+     * Logs a message if DEBUG logging is enabled.
+     *
+     * @param message a message
+     */
+    public final void debug(String message)
+    {
+        log(Level.DEBUG, null, message);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void infof(Throwable cause, String message, Object... args)
+    {
+        logf(Level.INFO, cause, message, args);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     * Unlike {@link #infof(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(Throwable cause, String message, Object arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     * Unlike {@link #infof(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(Throwable cause, String message, Object arg1, Object arg2)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg1, arg2});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     * Unlike {@link #infof(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(Throwable cause, String message, Object arg1, Object arg2, Object arg3)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg1, arg2, arg3});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     * Unlike {@link #infof(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(Throwable cause, String message, Object arg1, Object arg2, Object arg3, Object arg4)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg1, arg2, arg3, arg4});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     * Unlike {@link #infof(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(Throwable cause, String message, boolean arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     * Unlike {@link #infof(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(Throwable cause, String message, char arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     * Unlike {@link #infof(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(Throwable cause, String message, byte arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     * Unlike {@link #infof(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(Throwable cause, String message, short arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     * Unlike {@link #infof(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(Throwable cause, String message, int arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     * Unlike {@link #infof(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(Throwable cause, String message, long arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     * Unlike {@link #infof(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(Throwable cause, String message, float arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if INFO logging is enabled.
+     * Unlike {@link #infof(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(Throwable cause, String message, double arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void infof(String message, Object... args)
+    {
+        logf(Level.INFO, null, message, args);
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     * Unlike {@link #infof(String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(String message, Object arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     * Unlike {@link #infof(String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(String message, Object arg1, Object arg2)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg1, arg2});
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     * Unlike {@link #infof(String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(String message, Object arg1, Object arg2, Object arg3)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg1, arg2, arg3});
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     * Unlike {@link #infof(String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(String message, Object arg1, Object arg2, Object arg3, Object arg4)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg1, arg2, arg3, arg4});
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     * Unlike {@link #infof(String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(String message, boolean arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     * Unlike {@link #infof(String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(String message, char arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     * Unlike {@link #infof(String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(String message, byte arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     * Unlike {@link #infof(String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(String message, short arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     * Unlike {@link #infof(String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(String message, int arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     * Unlike {@link #infof(String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(String message, long arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     * Unlike {@link #infof(String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(String message, float arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if INFO logging is enabled.
+     * Unlike {@link #infof(String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infof(String message, double arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLog(Level.INFO, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a message and stack trace if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a message
+     */
+    public final void info(Throwable cause, String message)
+    {
+        log(Level.INFO, cause, message);
+    }
+
+    /**
+     * Logs a message if INFO logging is enabled.
+     *
+     * @param message a message
+     */
+    public final void info(String message)
+    {
+        log(Level.INFO, null, message);
+    }
+
+    /**
+     * @param cause   an exception to print stack trace of
+     * @param message a message to log
+     * @deprecated You meant to call {@link #info(Throwable, String)}.
+     */
+    @Deprecated
+    public final void infof(Throwable cause, String message)
+    {
+        log(Level.INFO, cause, message);
+    }
+
+    /**
+     * @param message a message to log
+     * @deprecated You meant to call {@link #info(String)}.
+     */
+    @Deprecated
+    public final void infof(String message)
+    {
+        log(Level.INFO, null, message);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void warnf(Throwable cause, String message, Object... args)
+    {
+        logf(Level.WARN, cause, message, args);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     * Unlike {@link #warnf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(Throwable cause, String message, Object arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     * Unlike {@link #warnf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(Throwable cause, String message, Object arg1, Object arg2)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg1, arg2});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     * Unlike {@link #warnf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(Throwable cause, String message, Object arg1, Object arg2, Object arg3)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg1, arg2, arg3});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     * Unlike {@link #warnf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(Throwable cause, String message, Object arg1, Object arg2, Object arg3, Object arg4)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg1, arg2, arg3, arg4});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     * Unlike {@link #warnf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(Throwable cause, String message, boolean arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     * Unlike {@link #warnf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(Throwable cause, String message, char arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     * Unlike {@link #warnf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(Throwable cause, String message, byte arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     * Unlike {@link #warnf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(Throwable cause, String message, short arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     * Unlike {@link #warnf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(Throwable cause, String message, int arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     * Unlike {@link #warnf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(Throwable cause, String message, long arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     * Unlike {@link #warnf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(Throwable cause, String message, float arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if WARN logging is enabled.
+     * Unlike {@link #warnf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(Throwable cause, String message, double arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void warnf(String message, Object... args)
+    {
+        logf(Level.WARN, null, message, args);
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     * Unlike {@link #warnf(String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(String message, Object arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     * Unlike {@link #warnf(String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(String message, Object arg1, Object arg2)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg1, arg2});
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     * Unlike {@link #warnf(String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(String message, Object arg1, Object arg2, Object arg3)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg1, arg2, arg3});
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     * Unlike {@link #warnf(String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(String message, Object arg1, Object arg2, Object arg3, Object arg4)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg1, arg2, arg3, arg4});
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     * Unlike {@link #warnf(String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(String message, boolean arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     * Unlike {@link #warnf(String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(String message, char arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     * Unlike {@link #warnf(String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(String message, byte arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     * Unlike {@link #warnf(String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(String message, short arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     * Unlike {@link #warnf(String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(String message, int arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     * Unlike {@link #warnf(String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(String message, long arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     * Unlike {@link #warnf(String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(String message, float arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if WARN logging is enabled.
+     * Unlike {@link #warnf(String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnf(String message, double arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLog(Level.WARN, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a message and stack trace if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a message
+     */
+    public final void warn(Throwable cause, String message)
+    {
+        log(Level.WARN, cause, message);
+    }
+
+    /**
+     * Logs a message if WARN logging is enabled.
+     *
+     * @param message a message
+     */
+    public final void warn(String message)
+    {
+        log(Level.WARN, null, message);
+    }
+
+    /**
+     * @param cause   an exception to print stack trace of
+     * @param message a message to log
+     * @deprecated You meant to call {@link #warn(Throwable, String)}.
+     */
+    @Deprecated
+    public final void warnf(Throwable cause, String message)
+    {
+        log(Level.WARN, cause, message);
+    }
+
+    /**
+     * @param message a message to log
+     * @deprecated You meant to call {@link #warn(String)}.
+     */
+    @Deprecated
+    public final void warnf(String message)
+    {
+        log(Level.WARN, null, message);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void errorf(Throwable cause, String message, Object... args)
+    {
+        logf(Level.ERROR, cause, message, args);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     * Unlike {@link #errorf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(Throwable cause, String message, Object arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     * Unlike {@link #errorf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(Throwable cause, String message, Object arg1, Object arg2)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg1, arg2});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     * Unlike {@link #errorf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(Throwable cause, String message, Object arg1, Object arg2, Object arg3)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg1, arg2, arg3});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     * Unlike {@link #errorf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(Throwable cause, String message, Object arg1, Object arg2, Object arg3, Object arg4)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg1, arg2, arg3, arg4});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     * Unlike {@link #errorf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(Throwable cause, String message, boolean arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     * Unlike {@link #errorf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(Throwable cause, String message, char arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     * Unlike {@link #errorf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(Throwable cause, String message, byte arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     * Unlike {@link #errorf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(Throwable cause, String message, short arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     * Unlike {@link #errorf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(Throwable cause, String message, int arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     * Unlike {@link #errorf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(Throwable cause, String message, long arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     * Unlike {@link #errorf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(Throwable cause, String message, float arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if ERROR logging is enabled.
+     * Unlike {@link #errorf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(Throwable cause, String message, double arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void errorf(String message, Object... args)
+    {
+        logf(Level.ERROR, null, message, args);
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     * Unlike {@link #errorf(String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(String message, Object arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     * Unlike {@link #errorf(String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(String message, Object arg1, Object arg2)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg1, arg2});
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     * Unlike {@link #errorf(String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(String message, Object arg1, Object arg2, Object arg3)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg1, arg2, arg3});
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     * Unlike {@link #errorf(String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(String message, Object arg1, Object arg2, Object arg3, Object arg4)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg1, arg2, arg3, arg4});
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     * Unlike {@link #errorf(String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(String message, boolean arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     * Unlike {@link #errorf(String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(String message, char arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     * Unlike {@link #errorf(String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(String message, byte arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     * Unlike {@link #errorf(String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(String message, short arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     * Unlike {@link #errorf(String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(String message, int arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     * Unlike {@link #errorf(String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(String message, long arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     * Unlike {@link #errorf(String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(String message, float arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message if ERROR logging is enabled.
+     * Unlike {@link #errorf(String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorf(String message, double arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLog(Level.ERROR, null, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a message and stack trace if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of
+     * @param message a message
+     */
+    public final void error(Throwable cause, String message)
+    {
+        log(Level.ERROR, cause, message);
+    }
+
+    /**
+     * Logs a message if ERROR logging is enabled.
+     *
+     * @param message a message
+     */
+    public final void error(String message)
+    {
+        log(Level.ERROR, null, message);
+    }
+
+    /**
+     * @param cause   an exception to print stack trace of
+     * @param message a message to log
+     * @deprecated You meant to call {@link #error(Throwable, String)}.
+     */
+    @Deprecated
+    public final void errorf(Throwable cause, String message)
+    {
+        log(Level.ERROR, cause, message);
+    }
+
+    /**
+     * @param message a message to log
+     * @deprecated You meant to call {@link #error(String)}.
+     */
+    @Deprecated
+    public final void errorf(String message)
+    {
+        log(Level.ERROR, null, message);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final Object... args)
+    {
+        logDebugf(Level.INFO, cause, message, args);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     * Unlike {@link #infoDebugf(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final Object arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLogDebug(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     * Unlike {@link #infoDebugf(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLogDebug(Level.INFO, cause, message, new Object[]{arg1, arg2});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     * Unlike {@link #infoDebugf(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2, final Object arg3)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLogDebug(Level.INFO, cause, message, new Object[]{arg1, arg2, arg3});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     * Unlike {@link #infoDebugf(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2, final Object arg3, final Object arg4)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLogDebug(Level.INFO, cause, message, new Object[]{arg1, arg2, arg3, arg4});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     * Unlike {@link #infoDebugf(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final boolean arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLogDebug(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     * Unlike {@link #infoDebugf(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final char arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLogDebug(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     * Unlike {@link #infoDebugf(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final byte arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLogDebug(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     * Unlike {@link #infoDebugf(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final short arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLogDebug(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     * Unlike {@link #infoDebugf(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final int arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLogDebug(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     * Unlike {@link #infoDebugf(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final long arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLogDebug(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     * Unlike {@link #infoDebugf(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final float arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLogDebug(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     * Unlike {@link #infoDebugf(Throwable, String, Object...)}, nothing is allocated unless INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void infoDebugf(final Throwable cause, final String message, final double arg)
+    {
+        if (isEnabled(Level.INFO)) {
+            formatAndLogDebug(Level.INFO, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if INFO logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a message
+     */
+    public final void infoDebug(final Throwable cause, final String message)
+    {
+        logDebug(Level.INFO, cause, message);
+    }
+
+    /**
+     * @param cause   an exception to print stack trace of if DEBUG level is enabled
+     * @param message a message to log
+     * @deprecated You meant to call {@link #infoDebug(Throwable, String)}.
+     */
+    @Deprecated
+    public final void infoDebugf(Throwable cause, String message)
+    {
+        infoDebug(cause, message);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final Object... args)
+    {
+        logDebugf(Level.WARN, cause, message, args);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     * Unlike {@link #warnDebugf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final Object arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLogDebug(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     * Unlike {@link #warnDebugf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLogDebug(Level.WARN, cause, message, new Object[]{arg1, arg2});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     * Unlike {@link #warnDebugf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2, final Object arg3)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLogDebug(Level.WARN, cause, message, new Object[]{arg1, arg2, arg3});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     * Unlike {@link #warnDebugf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2, final Object arg3, final Object arg4)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLogDebug(Level.WARN, cause, message, new Object[]{arg1, arg2, arg3, arg4});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     * Unlike {@link #warnDebugf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final boolean arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLogDebug(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     * Unlike {@link #warnDebugf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final char arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLogDebug(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     * Unlike {@link #warnDebugf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final byte arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLogDebug(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     * Unlike {@link #warnDebugf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final short arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLogDebug(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     * Unlike {@link #warnDebugf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final int arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLogDebug(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     * Unlike {@link #warnDebugf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final long arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLogDebug(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     * Unlike {@link #warnDebugf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final float arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLogDebug(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     * Unlike {@link #warnDebugf(Throwable, String, Object...)}, nothing is allocated unless WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void warnDebugf(final Throwable cause, final String message, final double arg)
+    {
+        if (isEnabled(Level.WARN)) {
+            formatAndLogDebug(Level.WARN, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if WARN logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a message
+     */
+    public final void warnDebug(final Throwable cause, final String message)
+    {
+        logDebug(Level.WARN, cause, message);
+    }
+
+    /**
+     * @param cause   an exception to print stack trace of if DEBUG level is enabled
+     * @param message a message to log
+     * @deprecated You meant to call {@link #warnDebug(Throwable, String)}.
+     */
+    @Deprecated
+    public final void warnDebugf(Throwable cause, String message)
+    {
+        warnDebug(cause, message);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param args    arguments referenced by the format specifiers in the format string.
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final Object... args)
+    {
+        logDebugf(Level.ERROR, cause, message, args);
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     * Unlike {@link #errorDebugf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final Object arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLogDebug(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     * Unlike {@link #errorDebugf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLogDebug(Level.ERROR, cause, message, new Object[]{arg1, arg2});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     * Unlike {@link #errorDebugf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2, final Object arg3)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLogDebug(Level.ERROR, cause, message, new Object[]{arg1, arg2, arg3});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     * Unlike {@link #errorDebugf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg1    an argument referenced by the format specifiers in the format string
+     * @param arg2    an argument referenced by the format specifiers in the format string
+     * @param arg3    an argument referenced by the format specifiers in the format string
+     * @param arg4    an argument referenced by the format specifiers in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final Object arg1, final Object arg2, final Object arg3, final Object arg4)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLogDebug(Level.ERROR, cause, message, new Object[]{arg1, arg2, arg3, arg4});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     * Unlike {@link #errorDebugf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final boolean arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLogDebug(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     * Unlike {@link #errorDebugf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final char arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLogDebug(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     * Unlike {@link #errorDebugf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final byte arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLogDebug(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     * Unlike {@link #errorDebugf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final short arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLogDebug(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     * Unlike {@link #errorDebugf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final int arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLogDebug(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     * Unlike {@link #errorDebugf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final long arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLogDebug(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     * Unlike {@link #errorDebugf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final float arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLogDebug(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a formatted message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     * Unlike {@link #errorDebugf(Throwable, String, Object...)}, nothing is allocated unless ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a <a href="http://download.oracle.com/javase/6/docs/api/java/util/Formatter.html#syntax">format string</a>
+     * @param arg     an argument referenced by the format specifiers in the format string
+     */
+    public final void errorDebugf(final Throwable cause, final String message, final double arg)
+    {
+        if (isEnabled(Level.ERROR)) {
+            formatAndLogDebug(Level.ERROR, cause, message, new Object[]{arg});
+        }
+    }
+
+    /**
+     * Logs a message and stack trace if DEBUG logging is enabled
+     * or a formatted message and exception description if ERROR logging is enabled.
+     *
+     * @param cause   an exception to print stack trace of if DEBUG logging is enabled
+     * @param message a message
+     */
+    public final void errorDebug(final Throwable cause, final String message)
+    {
+        logDebug(Level.ERROR, cause, message);
+    }
+
+    /**
+     * @param cause   an exception to print stack trace of if DEBUG level is enabled
+     * @param message a message to log
+     * @deprecated You meant to call {@link #errorDebug(Throwable, String)}.
+     */
+    @Deprecated
+    public final void errorDebugf(Throwable cause, String message)
+    {
+        errorDebug(cause, message);
+    }
+
+    // for the public methods' level checks: counts what's suppressed
+    private boolean isEnabled(final Level level)
+    {
+        if (isLevelEnabled(level)) {
+            return true;
+        }
+
+        if (LoggerMetrics.ENABLED) {
+            metrics.suppressed(level);
+        }
+
+        return false;
+    }
+
+    private boolean isLevelEnabled(final Level level)
+    {
+        if (!LevelGeneration.CACHING) {
+            return level.toInt() >= backend.getThreshold().toInt();
+        }
+
+        long threshold = cachedThreshold;
+
+        if ((int) (threshold >>> 32) != LevelGeneration.current()) {
+            threshold = refreshThreshold();
+        }
+
+        return level.toInt() >= (int) threshold;
+    }
+
+    private long refreshThreshold()
+    {
+        // read the generation first: if it moves on while we're computing, the next call will just compute again
+        int generation = LevelGeneration.current();
+        int threshold = backend.getThreshold().toInt();
+        long result = ((long) generation << 32) | (threshold & 0xFFFFFFFFL);
+
+        cachedThreshold = result;
+
+        return result;
+    }
+
+    private void log(final Level level, final Throwable cause, final String message)
+    {
+        if (isEnabled(level)) {
+            long start = LoggingLatency.ENABLED ? System.nanoTime() : 0;
+
+            try {
+                Coalescer.Window window = open(level, message, cause);
+                long suppressed = window == null ? -1 : admit(message);
+
+                if (suppressed >= 0) {
+                    emit(level, cause, message, suppressed, window);
+                }
+            }
+            finally {
+                if (LoggingLatency.ENABLED) {
+                    LoggingLatency.record(level, start);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return null if the message repeats one logged recently and should be suppressed
+     */
+    private Coalescer.Window open(final Level level, final String template, final Throwable cause)
+    {
+        return coalescer == null ? Coalescer.UNTRACKED : coalescer.open(level, template, cause);
+    }
+
+    /**
+     * @return -1 if the message should be suppressed, otherwise the number of similar messages suppressed before it
+     */
+    private long admit(final String template)
+    {
+        return throttle == null ? 0 : throttle.admit(template);
+    }
+
+    private void emit(final Level level, final Throwable throwable, final String message, final long suppressed, final Coalescer.Window window)
+    {
+        emit(level, throwable, message, suppressed, window, null);
+    }
+
+    /**
+     * @param trace the cause's stack trace, if it's already been admitted for this message
+     */
+    private void emit(
+        final Level level,
+        final Throwable throwable,
+        final String message,
+        final long suppressed,
+        final Coalescer.Window window,
+        final TraceDeduplicator.Admission trace
+    )
+    {
+        String fullMessage = suppressed == 0 ? message : message + suppressedSuffix(suppressed);
+        Throwable cause = throwable;
+
+        if (window != null) {
+            window.setMessage(message);
+        }
+
+        if (traces != null && cause != null) {
+            TraceDeduplicator.Admission admission = trace == null ? admitTrace(cause) : trace;
+
+            fullMessage += traceSuffix(admission, cause);
+
+            if (admission.repeats < 0) {
+                cause = null;
+            }
+        }
+
+        if (LoggerMetrics.ENABLED) {
+            metrics.emitted(level, fullMessage == null ? 0 : fullMessage.length());
+        }
+
+        BinaryLog binaryLog = durable ? null : BinaryLog.installed();
+
+        if (binaryLog != null && binaryLog.writeMessage(level, backend.getName(), fullMessage, cause, traceFormat)) {
+            return;
+        }
+
+        if (durable) {
+            backend.logDurably(level, fullMessage, cause, traceFormat);
+        }
+        else {
+            backend.log(level, fullMessage, cause, traceFormat);
+        }
+    }
+
+    private static String suppressedSuffix(final long suppressed)
+    {
+        return " [" + suppressed + " similar messages suppressed]";
+    }
+
+    /**
+     * @return whether the deduplicator writes the cause's stack trace in full this time, or null if this logger doesn't
+     * deduplicate traces (or there's no cause)
+     */
+    private TraceDeduplicator.Admission admitTrace(final Throwable cause)
+    {
+        return traces == null || cause == null ? null : traces.admit(cause, System.currentTimeMillis());
+    }
+
+    private static String traceSuffix(final TraceDeduplicator.Admission trace, final Throwable cause)
+    {
+        String fingerprint = TraceDeduplicator.format(trace.fingerprint);
+
+        if (trace.repeats < 0) {
+            return " [stack trace " + fingerprint + " repeated " + -trace.repeats + " times: " + cause + "]";
+        }
+
+        if (trace.repeats > 0) {
+            return " [stack trace " + fingerprint + ", " + trace.repeats + " repeats since last written]";
+        }
+
+        return " [stack trace " + fingerprint + "]";
+    }
+
+    /**
+     * Writes a formatted message to the installed {@link BinaryLog}, if any, without formatting it.
+     *
+     * @param trace the cause's stack trace, admitted up front so that it's admitted once even if the message falls
+     *              back to being formatted (which {@link #emit} is then given the same admission for)
+     * @return false if the message still needs to be formatted and logged
+     */
+    private boolean writeBinary(
+        final Level level,
+        final Throwable cause,
+        final String message,
+        final Object[] args,
+        final long suppressed,
+        final boolean summarizeCause,
+        final TraceDeduplicator.Admission trace
+    )
+    {
+        BinaryLog binaryLog = durable ? null : BinaryLog.installed();
+
+        if (binaryLog == null) {
+            return false;
+        }
+
+        String trailer = suppressed == 0 ? null : suppressedSuffix(suppressed);
+        boolean written;
+
+        if (summarizeCause && cause != null && !isLevelEnabled(Level.DEBUG)) {
+            trailer = trailer == null ? CauseSummaries.suffix(cause) : CauseSummaries.suffix(cause) + trailer;
+            written = binaryLog.writeEvent(level, backend.getName(), message, args, trailer, null, traceFormat);
+        }
+        else if (traces != null && cause != null) {
+            if (trace == null) {
+                // the level changed since the caller decided the cause wouldn't be summarized; let emit() admit it
+                return false;
+            }
+
+            String suffix = traceSuffix(trace, cause);
+
+            trailer = trailer == null ? suffix : suffix + trailer;
+            written = binaryLog.writeEvent(level, backend.getName(), message, args, trailer, trace.repeats < 0 ? null : cause, traceFormat);
+        }
+        else {
+            written = binaryLog.writeEvent(level, backend.getName(), message, args, trailer, cause, traceFormat);
+        }
+
+        if (written && LoggerMetrics.ENABLED) {
+            metrics.emitted(level, 0);
+        }
+
+        return written;
+    }
+
+    /**
+     * Queues a formatted message on the installed {@link EventRing}, if any, without formatting it.
+     *
+     * @return false if the message still needs to be formatted and logged
+     */
+    private boolean writeRing(final Level level, final String message, final Object[] args)
+    {
+        EventRing ring = durable ? null : EventRing.installed();
+
+        if (ring == null || !(backend instanceof DeferredLogger) || !((DeferredLogger) backend).canDefer()) {
+            return false;
+        }
+
+        if (!ring.write(this, level, message, args)) {
+            return false;
+        }
+
+        if (LoggerMetrics.ENABLED) {
+            metrics.emitted(level, 0);
+        }
+
+        return true;
+    }
+
+    /**
+     * Formats and logs a message taken off an {@link EventRing}, on its consumer thread.
+     *
+     * @param timeStamp  when it was logged
+     * @param threadName the name of the thread that logged it
+     */
+    void logDeferred(final Level level, final String message, final Object[] args, final long timeStamp, final String threadName)
+    {
+        DeferredLogger deferred = (DeferredLogger) backend;
+        String renderedMessage;
+
+        try {
+            renderedMessage = format(message, args);
+        }
+        catch (RuntimeException e) {
+            if (LoggerMetrics.ENABLED) {
+                metrics.bogusFormat(level);
+            }
+
+            deferred.logDeferred(bogusFormatLevel(level), bogusFormatMessage(level, message, args, e), timeStamp, threadName);
+
+            return;
+        }
+
+        deferred.logDeferred(level, renderedMessage, timeStamp, threadName);
+    }
+
+    private void logf(final Level level, final Throwable cause, final String message, final Object... args)
+    {
+        if (isEnabled(level)) {
+            formatAndLog(level, cause, message, args);
+        }
+    }
+
+    private void formatAndLog(final Level level, final Throwable cause, final String message, final Object[] lazyArgs)
+    {
+        if (!LoggingLatency.ENABLED) {
+            formatAndLogUntimed(level, cause, message, lazyArgs);
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            formatAndLogUntimed(level, cause, message, lazyArgs);
+        }
+        finally {
+            LoggingLatency.record(level, start);
+        }
+    }
+
+    private void formatAndLogUntimed(final Level level, final Throwable cause, final String message, final Object[] lazyArgs)
+    {
+        Coalescer.Window window = open(level, message, cause);
+        long suppressed = window == null ? -1 : admit(message);
+
+        if (suppressed < 0) {
+            return;
+        }
+
+        Object[] args = LazyArgument.resolve(lazyArgs);
+        TraceDeduplicator.Admission trace = admitTrace(cause);
+
+        if (writeBinary(level, cause, message, args, suppressed, false, trace)) {
+            return;
+        }
+
+        if (cause == null && suppressed == 0 && window == Coalescer.UNTRACKED && writeRing(level, message, args)) {
+            return;
+        }
+
+        String renderedMessage;
+
+        try {
+            renderedMessage = format(message, args);
+        }
+        catch (RuntimeException e) {
+            if (LoggerMetrics.ENABLED) {
+                metrics.bogusFormat(level);
+            }
+
+            // a higher level than one that's enabled is always enabled
+            emit(bogusFormatLevel(level), cause, bogusFormatMessage(level, message, args, e), suppressed, window, trace);
+
+            return;
+        }
+
+        emit(level, cause, renderedMessage, suppressed, window, trace);
+    }
+
+    private String format(final String message, final Object[] args)
+    {
+        if (!LoggerMetrics.ENABLED) {
+            return CompiledFormat.format(message, args);
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            return CompiledFormat.format(message, args);
+        }
+        finally {
+            metrics.formatted(System.nanoTime() - start);
+        }
+    }
+
+    private void logDebug(final Level level, final Throwable cause, final String message)
+    {
+        if (isEnabled(level)) {
+            long start = LoggingLatency.ENABLED ? System.nanoTime() : 0;
+
+            try {
+                Coalescer.Window window = open(level, message, cause);
+                long suppressed = window == null ? -1 : admit(message);
+
+                if (suppressed >= 0) {
+                    emitDebug(level, cause, message, suppressed, window, null);
+                }
+            }
+            finally {
+                if (LoggingLatency.ENABLED) {
+                    LoggingLatency.record(level, start);
+                }
+            }
+        }
+    }
+
+    private void emitDebug(
+        final Level level,
+        final Throwable cause,
+        final String message,
+        final long suppressed,
+        final Coalescer.Window window,
+        final TraceDeduplicator.Admission trace
+    )
+    {
+        if (cause == null || isLevelEnabled(Level.DEBUG)) {
+            emit(level, cause, message, suppressed, window, trace);
+        }
+        else {
+            emit(level, null, CauseSummaries.summarize(message, cause), suppressed, window);
+        }
+    }
+
+    private void logDebugf(final Level level, final Throwable cause, final String message, final Object... args)
+    {
+        if (isEnabled(level)) {
+            formatAndLogDebug(level, cause, message, args);
+        }
+    }
+
+    private void formatAndLogDebug(final Level level, final Throwable cause, final String message, final Object[] lazyArgs)
+    {
+        if (!LoggingLatency.ENABLED) {
+            formatAndLogDebugUntimed(level, cause, message, lazyArgs);
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            formatAndLogDebugUntimed(level, cause, message, lazyArgs);
+        }
+        finally {
+            LoggingLatency.record(level, start);
+        }
+    }
+
+    private void formatAndLogDebugUntimed(final Level level, final Throwable cause, final String message, final Object[] lazyArgs)
+    {
+        Coalescer.Window window = open(level, message, cause);
+        long suppressed = window == null ? -1 : admit(message);
+
+        if (suppressed < 0) {
+            return;
+        }
+
+        Object[] args = LazyArgument.resolve(lazyArgs);
+        // only admitted if the cause's stack trace is going to be written rather than summarized
+        TraceDeduplicator.Admission trace = isLevelEnabled(Level.DEBUG) ? admitTrace(cause) : null;
+
+        if (writeBinary(level, cause, message, args, suppressed, true, trace)) {
+            return;
+        }
+
+        String renderedMessage;
+
+        try {
+            renderedMessage = format(message, args);
+        }
+        catch (RuntimeException e) {
+            if (LoggerMetrics.ENABLED) {
+                metrics.bogusFormat(level);
+            }
+
+            emitDebug(bogusFormatLevel(level), cause, bogusFormatMessage(level, message, args, e), suppressed, window, trace);
+
+            return;
+        }
+
+        emitDebug(level, cause, renderedMessage, suppressed, window, trace);
+    }
+
+    static Level bogusFormatLevel(final Level level)
+    {
+        return level.toInt() < Level.WARN_INT ? Level.WARN : level;
+    }
+
+    static String bogusFormatMessage(final Level level, final String message, final Object[] args, final RuntimeException e)
+    {
+        return String.format("Bogus format string: %s %s [%s] (%s)", level, message, safeToString(args), safeToString(e));
+    }
+
+    private static String safeToString(Object... args)
+    {
+        if (args == null) {
+            return "null";
+        }
+
+        RenderBuffer buffer = RenderBuffer.acquire();
+
+        try {
+            StringBuilder result = buffer.builder();
+
+            for (Object arg : args) {
+                if (result.length() > 0) {
+                    result.append(", ");
+                }
+
+                // guard against some object's toString() throwing an exception
+                try {
+                    result.append(arg);
+                }
+                catch (RuntimeException e) {
+                    try {
+                        result.append("toString():").append(e.toString());
+                    }
+                    catch (RuntimeException e2) {
+                        // guard against some exception's toString() throwing an exception
+                        result.append("???");
+                    }
+                }
+            }
+
+            return result.toString();
+        }
+        finally {
+            buffer.release();
+        }
+    }
+}
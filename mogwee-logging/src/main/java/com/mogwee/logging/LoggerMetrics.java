@@ -0,0 +1,307 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.helpers.LogLog;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts what each logger does: messages emitted and suppressed (by level), bogus format strings, and how many
+ * characters were rendered and how long formatting took.
+ * <p/>
+ * Metrics are off unless the {@value #ENABLED_PROPERTY} system property is {@code true} when logging starts, so they
+ * cost nothing otherwise.  When on, each logger's metrics are registered as an MBean named
+ * {@code com.mogwee.logging:type=LoggerMetrics,name="<logger name>"}, and can also be read with {@link #get(String)}
+ * and {@link #getAll()}.  Rate-limited, sampled and coalescing views count toward the logger they're views of.
+ * <p/>
+ * Counters are striped by thread (each stripe on its own cache lines) so that threads logging through the same
+ * logger don't contend; reading one sums the stripes.
+ */
+public final class LoggerMetrics implements LoggerMetricsMBean
+{
+    public static final String ENABLED_PROPERTY = "com.mogwee.logging.metrics";
+
+    static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    private static final ConcurrentMap<String, LoggerMetrics> METRICS = new ConcurrentHashMap<String, LoggerMetrics>();
+    private static final int STRIPES = Math.min(16, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    // per-level counters are followed by one slot for each of DEBUG, INFO, WARN, ERROR and anything else
+    private static final int EMITTED = 0;
+    private static final int SUPPRESSED = 5;
+    private static final int BOGUS_FORMATS = 10;
+    private static final int RENDERED_CHARS = 15;
+    private static final int FORMAT_NANOS = 16;
+    // 17 counters, padded so that stripes never share a cache line
+    private static final int STRIDE = 32;
+
+    private final String loggerName;
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * STRIDE);
+
+    /**
+     * @return whether metrics are being collected
+     */
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    /**
+     * @param loggerName the name of a logger
+     * @return its metrics, or null if metrics are disabled or it hasn't been created
+     */
+    public static LoggerMetrics get(String loggerName)
+    {
+        return METRICS.get(loggerName);
+    }
+
+    /**
+     * @return the metrics of every logger, by name
+     */
+    public static Map<String, LoggerMetrics> getAll()
+    {
+        return Collections.unmodifiableMap(new TreeMap<String, LoggerMetrics>(METRICS));
+    }
+
+    /**
+     * @return the metrics for a logger, or null if metrics are disabled
+     */
+    static LoggerMetrics forLogger(String loggerName)
+    {
+        if (!ENABLED) {
+            return null;
+        }
+
+        LoggerMetrics metrics = METRICS.get(loggerName);
+
+        if (metrics == null) {
+            LoggerMetrics newMetrics = new LoggerMetrics(loggerName);
+
+            metrics = METRICS.putIfAbsent(loggerName, newMetrics);
+
+            if (metrics == null) {
+                metrics = newMetrics;
+                metrics.register();
+            }
+        }
+
+        return metrics;
+    }
+
+    private LoggerMetrics(String loggerName)
+    {
+        this.loggerName = loggerName;
+    }
+
+    private void register()
+    {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                this,
+                new ObjectName("com.mogwee.logging:type=LoggerMetrics,name=" + ObjectName.quote(loggerName))
+            );
+        }
+        catch (JMException e) {
+            LogLog.warn("Couldn't register metrics for logger " + loggerName, e);
+        }
+    }
+
+    void emitted(Level level, int renderedChars)
+    {
+        int stripe = stripe();
+
+        counts.incrementAndGet(stripe + EMITTED + levelIndex(level));
+
+        if (renderedChars > 0) {
+            counts.addAndGet(stripe + RENDERED_CHARS, renderedChars);
+        }
+    }
+
+    void suppressed(Level level)
+    {
+        counts.incrementAndGet(stripe() + SUPPRESSED + levelIndex(level));
+    }
+
+    void bogusFormat(Level level)
+    {
+        counts.incrementAndGet(stripe() + BOGUS_FORMATS + levelIndex(level));
+    }
+
+    void formatted(long nanos)
+    {
+        counts.addAndGet(stripe() + FORMAT_NANOS, nanos);
+    }
+
+    @Override
+    public String getLoggerName()
+    {
+        return loggerName;
+    }
+
+    /**
+     * @param level a level
+     * @return how many messages were logged at {@code level}
+     */
+    public long getEmitted(Level level)
+    {
+        return sum(EMITTED + levelIndex(level));
+    }
+
+    /**
+     * @param level a level
+     * @return how many messages weren't logged because {@code level} was disabled
+     */
+    public long getSuppressed(Level level)
+    {
+        return sum(SUPPRESSED + levelIndex(level));
+    }
+
+    /**
+     * @param level a level
+     * @return how many messages logged at {@code level} had format strings that didn't match their arguments
+     */
+    public long getBogusFormats(Level level)
+    {
+        return sum(BOGUS_FORMATS + levelIndex(level));
+    }
+
+    @Override
+    public long getDebugEmitted()
+    {
+        return getEmitted(Level.DEBUG);
+    }
+
+    @Override
+    public long getInfoEmitted()
+    {
+        return getEmitted(Level.INFO);
+    }
+
+    @Override
+    public long getWarnEmitted()
+    {
+        return getEmitted(Level.WARN);
+    }
+
+    @Override
+    public long getErrorEmitted()
+    {
+        return getEmitted(Level.ERROR);
+    }
+
+    @Override
+    public long getDebugSuppressed()
+    {
+        return getSuppressed(Level.DEBUG);
+    }
+
+    @Override
+    public long getInfoSuppressed()
+    {
+        return getSuppressed(Level.INFO);
+    }
+
+    @Override
+    public long getWarnSuppressed()
+    {
+        return getSuppressed(Level.WARN);
+    }
+
+    @Override
+    public long getErrorSuppressed()
+    {
+        return getSuppressed(Level.ERROR);
+    }
+
+    /**
+     * @return how many messages (at any level) had format strings that didn't match their arguments
+     */
+    @Override
+    public long getBogusFormats()
+    {
+        long result = 0;
+
+        for (int i = 0; i < 5; ++i) {
+            result += sum(BOGUS_FORMATS + i);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the total length of the messages logged
+     */
+    @Override
+    public long getRenderedChars()
+    {
+        return sum(RENDERED_CHARS);
+    }
+
+    /**
+     * @return the total time spent formatting messages, in nanoseconds
+     */
+    @Override
+    public long getFormatNanos()
+    {
+        return sum(FORMAT_NANOS);
+    }
+
+    private long sum(int offset)
+    {
+        long result = 0;
+
+        for (int i = 0; i < STRIPES; ++i) {
+            result += counts.get(i * STRIDE + offset);
+        }
+
+        return result;
+    }
+
+    private static int stripe()
+    {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+
+        return ((hash >>> 16) & (STRIPES - 1)) * STRIDE;
+    }
+
+    static int levelIndex(Level level)
+    {
+        switch (level.toInt()) {
+            case Level.DEBUG_INT:
+                return 0;
+            case Level.INFO_INT:
+                return 1;
+            case Level.WARN_INT:
+                return 2;
+            case Level.ERROR_INT:
+                return 3;
+            default:
+                return 4;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+/**
+ * The JMX view of a logger's {@link LoggerMetrics}.
+ */
+public interface LoggerMetricsMBean
+{
+    String getLoggerName();
+
+    long getDebugEmitted();
+
+    long getInfoEmitted();
+
+    long getWarnEmitted();
+
+    long getErrorEmitted();
+
+    long getDebugSuppressed();
+
+    long getInfoSuppressed();
+
+    long getWarnSuppressed();
+
+    long getErrorSuppressed();
+
+    long getBogusFormats();
+
+    long getRenderedChars();
+
+    long getFormatNanos();
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+/**
+ * Where {@link Logger} sends its messages, once they've passed the level check and been rendered.
+ * <p/>
+ * The backend is chosen once, at startup, by {@link LoggingBackends}.  An implementation needs a public no-argument
+ * constructor and must be safe to call from many threads at once.
+ */
+public interface LoggingBackend
+{
+    /**
+     * @param name the name of a logger
+     * @return the backend's logger with that name; called once per name
+     */
+    BackendLogger getLogger(String name);
+}
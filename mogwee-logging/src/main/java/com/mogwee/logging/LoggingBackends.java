@@ -0,0 +1,67 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.helpers.LogLog;
+
+/**
+ * Chooses the {@link LoggingBackend}, once, from the {@value #BACKEND_PROPERTY} system property:
+ * <ul>
+ * <li>{@code log4j} (the default): Log4J's appenders, configured as usual;</li>
+ * <li>{@code simple}: the {@link SimpleBackend}, which skips Log4J entirely; or</li>
+ * <li>the name of a class implementing {@link LoggingBackend}.</li>
+ * </ul>
+ * The public API of {@link Logger} is the same whatever the backend.
+ */
+public final class LoggingBackends
+{
+    public static final String BACKEND_PROPERTY = "com.mogwee.logging.backend";
+
+    private static final LoggingBackend BACKEND = create(System.getProperty(BACKEND_PROPERTY));
+
+    private LoggingBackends()
+    {
+    }
+
+    /**
+     * @return the backend that every {@link Logger} sends its messages to
+     */
+    public static LoggingBackend get()
+    {
+        return BACKEND;
+    }
+
+    static LoggingBackend create(String name)
+    {
+        if (name == null || "log4j".equals(name)) {
+            return new Log4jBackend();
+        }
+
+        if ("simple".equals(name)) {
+            return new SimpleBackend();
+        }
+
+        try {
+            return (LoggingBackend) Class.forName(name).newInstance();
+        }
+        catch (Exception e) {
+            LogLog.error("Couldn't create logging backend " + name + "; using Log4J", e);
+
+            return new Log4jBackend();
+        }
+    }
+}
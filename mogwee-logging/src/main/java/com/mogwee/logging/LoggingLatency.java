@@ -0,0 +1,122 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+
+/**
+ * How long logging calls take, by level: from the level check passing until the message has been handed to the
+ * appenders (or the asynchronous dispatcher or binary log), including formatting.
+ * <p/>
+ * Recording is off unless the {@value #ENABLED_PROPERTY} system property is {@code true} when logging starts, so it
+ * costs nothing otherwise; when on, it costs two {@code System.nanoTime()} calls and a {@link LatencyHistogram}
+ * update per message logged.  Percentiles can be read at any time with {@link #snapshot(Level)}.  If
+ * {@value #DUMP_INTERVAL_PROPERTY} is also set, a summary of the latencies of each interval is logged at INFO to
+ * {@code com.mogwee.logging.LoggingLatency} (those messages are recorded too).
+ */
+public final class LoggingLatency
+{
+    public static final String ENABLED_PROPERTY = "com.mogwee.logging.latency";
+    public static final String DUMP_INTERVAL_PROPERTY = "com.mogwee.logging.latency.dumpIntervalMillis";
+
+    static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    private static final Level[] LEVELS = {Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR};
+    // one for each of DEBUG, INFO, WARN, ERROR and anything else
+    private static final LatencyHistogram[] HISTOGRAMS = new LatencyHistogram[5];
+
+    static {
+        for (int i = 0; i < HISTOGRAMS.length; ++i) {
+            HISTOGRAMS[i] = new LatencyHistogram();
+        }
+
+        long dumpIntervalMillis = Long.getLong(DUMP_INTERVAL_PROPERTY, 0L);
+
+        if (ENABLED && dumpIntervalMillis > 0) {
+            startDumper(dumpIntervalMillis);
+        }
+    }
+
+    private LoggingLatency()
+    {
+    }
+
+    /**
+     * @return whether latencies are being recorded
+     */
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    /**
+     * @param level a level
+     * @return the latencies of the messages logged at {@code level} so far
+     */
+    public static LatencyHistogram.Snapshot snapshot(Level level)
+    {
+        return HISTOGRAMS[LoggerMetrics.levelIndex(level)].snapshot();
+    }
+
+    /**
+     * @param startNanos the {@code System.nanoTime()} the call started at
+     */
+    static void record(Level level, long startNanos)
+    {
+        HISTOGRAMS[LoggerMetrics.levelIndex(level)].record(System.nanoTime() - startNanos);
+    }
+
+    private static void startDumper(final long intervalMillis)
+    {
+        Thread dumper = new Thread("mogwee-logging-latency-dump")
+        {
+            @Override
+            public void run()
+            {
+                Logger logger = Logger.getLogger(LoggingLatency.class);
+                LatencyHistogram.Snapshot[] previous = new LatencyHistogram.Snapshot[LEVELS.length];
+
+                for (int i = 0; i < LEVELS.length; ++i) {
+                    previous[i] = snapshot(LEVELS[i]);
+                }
+
+                while (true) {
+                    try {
+                        Thread.sleep(intervalMillis);
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int i = 0; i < LEVELS.length; ++i) {
+                        LatencyHistogram.Snapshot current = snapshot(LEVELS[i]);
+                        LatencyHistogram.Snapshot interval = current.since(previous[i]);
+
+                        if (interval.getCount() > 0) {
+                            logger.infof("%s logging latency over the last %d ms: %s", LEVELS[i], intervalMillis, interval);
+                        }
+
+                        previous[i] = current;
+                    }
+                }
+            }
+        };
+
+        dumper.setDaemon(true);
+        dumper.start();
+    }
+}
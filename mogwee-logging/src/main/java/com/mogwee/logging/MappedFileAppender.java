@@ -0,0 +1,425 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Layout;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.helpers.OptionConverter;
+import org.apache.log4j.spi.ErrorCode;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A Log4J appender that encodes events straight into a memory-mapped region of the log file.
+ * <p/>
+ * Unlike {@code FileAppender}, nothing goes through a {@code Writer} and nothing is flushed per event: the layout's
+ * output is encoded directly into the mapped region, and once the region is full the next one is mapped.  The
+ * operating system writes the pages out on its own schedule; set {@code ForceIntervalMillis} to also force them to
+ * disk periodically, and whenever a region is finished.  Once the file reaches {@code MaxFileSize} it's rolled over
+ * like {@code RollingFileAppender} does (file.1, file.2, and so on, up to {@code MaxBackupIndex}).
+ * <p/>
+ * The file is grown a region at a time, and trimmed to what was actually written when it's rolled over or the
+ * appender is closed; after a crash, it may end with up to a region's worth of zero bytes.
+ * <p/>
+ * Configure it like any other appender, e.g.,
+ * <pre>
+ * log4j.appender.FILE=com.mogwee.logging.MappedFileAppender
+ * log4j.appender.FILE.File=logs/app.log
+ * log4j.appender.FILE.MaxFileSize=256MB
+ * log4j.appender.FILE.ForceIntervalMillis=1000
+ * log4j.appender.FILE.layout=org.apache.log4j.PatternLayout
+ * </pre>
+ */
+public class MappedFileAppender extends AppenderSkeleton
+{
+    private String fileName = null;
+    private String encoding = "UTF-8";
+    private int regionSize = 16 * 1024 * 1024;
+    private long maxFileSize = 256L * 1024 * 1024;
+    private int maxBackupIndex = 1;
+    private long forceIntervalMillis = 0;
+
+    private RandomAccessFile file = null;
+    private FileChannel channel = null;
+    private MappedByteBuffer region = null;
+    // file offset of the start of the region
+    private long regionStart = 0;
+    private CharsetEncoder encoder = null;
+    private Thread forcer = null;
+
+    public String getFile()
+    {
+        return fileName;
+    }
+
+    public void setFile(String fileName)
+    {
+        this.fileName = fileName == null ? null : fileName.trim();
+    }
+
+    public String getEncoding()
+    {
+        return encoding;
+    }
+
+    public void setEncoding(String encoding)
+    {
+        this.encoding = encoding;
+    }
+
+    /**
+     * @return how many bytes of the file are mapped at a time
+     */
+    public int getRegionSize()
+    {
+        return regionSize;
+    }
+
+    public void setRegionSize(int regionSize)
+    {
+        this.regionSize = regionSize;
+    }
+
+    public long getMaximumFileSize()
+    {
+        return maxFileSize;
+    }
+
+    public void setMaximumFileSize(long maxFileSize)
+    {
+        this.maxFileSize = maxFileSize;
+    }
+
+    /**
+     * Like {@code RollingFileAppender}'s, takes a size such as "10MB" (in bytes if there's no KB, MB or GB suffix).
+     */
+    public void setMaxFileSize(String value)
+    {
+        maxFileSize = OptionConverter.toFileSize(value, maxFileSize + 1);
+    }
+
+    public int getMaxBackupIndex()
+    {
+        return maxBackupIndex;
+    }
+
+    public void setMaxBackupIndex(int maxBackupIndex)
+    {
+        this.maxBackupIndex = maxBackupIndex;
+    }
+
+    /**
+     * @return how often written pages are forced to disk, or 0 to leave it to the operating system
+     */
+    public long getForceIntervalMillis()
+    {
+        return forceIntervalMillis;
+    }
+
+    public void setForceIntervalMillis(long forceIntervalMillis)
+    {
+        this.forceIntervalMillis = forceIntervalMillis;
+    }
+
+    @Override
+    public synchronized void activateOptions()
+    {
+        if (fileName == null) {
+            LogLog.error("File option not set for appender [" + name + "].");
+            return;
+        }
+
+        if (regionSize < 1024) {
+            LogLog.warn("RegionSize of appender [" + name + "] raised to 1024 bytes.");
+            regionSize = 1024;
+        }
+
+        encoder = Charset.forName(encoding).newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        try {
+            open();
+        }
+        catch (IOException e) {
+            errorHandler.error("Couldn't open " + fileName, e, ErrorCode.FILE_OPEN_FAILURE);
+            closeFile();
+            return;
+        }
+
+        if (forceIntervalMillis > 0) {
+            forcer = new Thread("mogwee-logging-mapped-force-" + name)
+            {
+                @Override
+                public void run()
+                {
+                    while (true) {
+                        try {
+                            Thread.sleep(forceIntervalMillis);
+                        }
+                        catch (InterruptedException e) {
+                            return;
+                        }
+
+                        force();
+                    }
+                }
+            };
+            forcer.setDaemon(true);
+            forcer.start();
+        }
+    }
+
+    @Override
+    protected void append(LoggingEvent event)
+    {
+        if (region == null) {
+            errorHandler.error("No open file for appender [" + name + "].");
+            return;
+        }
+
+        try {
+            encode(layout.format(event));
+
+            if (layout.ignoresThrowable()) {
+                String[] lines = event.getThrowableStrRep();
+
+                if (lines != null) {
+                    for (String line : lines) {
+                        encode(line);
+                        encode(Layout.LINE_SEP);
+                    }
+                }
+            }
+
+            if (position() >= maxFileSize) {
+                rollOver();
+            }
+        }
+        catch (IOException e) {
+            errorHandler.error("Failed to write to " + fileName, e, ErrorCode.WRITE_FAILURE);
+        }
+    }
+
+    @Override
+    public boolean requiresLayout()
+    {
+        return true;
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (!closed) {
+            closed = true;
+
+            if (forcer != null) {
+                forcer.interrupt();
+                forcer = null;
+            }
+
+            closeFile();
+        }
+    }
+
+    /**
+     * Forces the current region to disk.  Earlier regions were already forced as they were finished if
+     * {@code ForceIntervalMillis} is set, and are left to the operating system otherwise.
+     */
+    public synchronized void force()
+    {
+        if (region != null) {
+            region.force();
+        }
+    }
+
+    private void encode(String text) throws IOException
+    {
+        CharBuffer chars = CharBuffer.wrap(text);
+
+        encoder.reset();
+
+        while (true) {
+            CoderResult result = encoder.encode(chars, region, true);
+
+            if (result.isOverflow()) {
+                nextRegion();
+            }
+            else if (result.isUnderflow()) {
+                break;
+            }
+            else {
+                result.throwException();
+            }
+        }
+
+        while (encoder.flush(region).isOverflow()) {
+            nextRegion();
+        }
+    }
+
+    private long position()
+    {
+        return regionStart + region.position();
+    }
+
+    private void open() throws IOException
+    {
+        File parent = new File(fileName).getAbsoluteFile().getParentFile();
+
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Couldn't create directory " + parent);
+        }
+
+        file = new RandomAccessFile(fileName, "rw");
+        channel = file.getChannel();
+        // append to whatever is already there
+        map(file.length());
+    }
+
+    private void map(long start) throws IOException
+    {
+        // map the next region before letting go of the current one, so a failure leaves a usable region behind
+        MappedByteBuffer next = channel.map(FileChannel.MapMode.READ_WRITE, start, regionSize);
+
+        if (region != null) {
+            finish(region);
+        }
+
+        regionStart = start;
+        region = next;
+    }
+
+    private void nextRegion() throws IOException
+    {
+        map(position());
+    }
+
+    /**
+     * Forces a region that won't be written to anymore, if periodic forcing is on, and then unmaps it.
+     */
+    private void finish(MappedByteBuffer buffer)
+    {
+        if (forceIntervalMillis > 0) {
+            buffer.force();
+        }
+
+        release(buffer);
+    }
+
+    private void rollOver() throws IOException
+    {
+        closeFile();
+
+        if (maxBackupIndex > 0) {
+            File oldest = new File(fileName + "." + maxBackupIndex);
+
+            if (oldest.exists() && !oldest.delete()) {
+                LogLog.warn("Couldn't delete " + oldest);
+            }
+
+            for (int i = maxBackupIndex - 1; i >= 1; --i) {
+                File backup = new File(fileName + "." + i);
+
+                if (backup.exists() && !backup.renameTo(new File(fileName + "." + (i + 1)))) {
+                    LogLog.warn("Couldn't rename " + backup);
+                }
+            }
+
+            if (!new File(fileName).renameTo(new File(fileName + ".1"))) {
+                LogLog.warn("Couldn't rename " + fileName);
+            }
+        }
+        else if (!new File(fileName).delete()) {
+            LogLog.warn("Couldn't delete " + fileName);
+        }
+
+        open();
+    }
+
+    private void closeFile()
+    {
+        try {
+            if (region != null) {
+                long length = position();
+
+                finish(region);
+                region = null;
+                // drop the unwritten part of the last region
+                channel.truncate(length);
+            }
+
+            if (file != null) {
+                file.close();
+            }
+        }
+        catch (IOException e) {
+            LogLog.error("Failed to close " + fileName, e);
+        }
+        finally {
+            file = null;
+            channel = null;
+        }
+    }
+
+    /**
+     * Unmaps a region right away rather than whenever it's garbage collected, so the file can be truncated and renamed
+     * (which Windows doesn't allow while any of it is mapped).  Best effort: there's no public API for it.
+     */
+    private static void release(MappedByteBuffer buffer)
+    {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+
+            field.setAccessible(true);
+            invokeCleaner.invoke(field.get(null), buffer);
+        }
+        catch (Exception e) {
+            // before Java 9
+            try {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+
+                cleanerMethod.setAccessible(true);
+
+                Object cleaner = cleanerMethod.invoke(buffer);
+
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+            catch (Exception e2) {
+                // leave it to the garbage collector
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.lang.reflect.Method;
+import java.util.Formatter;
+import java.util.Locale;
+
+/**
+ * A per-thread {@code StringBuilder} (and {@code Formatter} writing to it) that messages are rendered into, so
+ * rendering a message allocates little more than the resulting string.
+ * <p/>
+ * A buffer that grew past {@link #MAX_RETAINED_CHARS} to render an unusually long message is dropped afterward
+ * rather than kept for the life of the thread.  Rendering can call {@code toString()} on arguments, which can log
+ * in turn, so a thread whose buffer is already in use gets a temporary one.
+ */
+final class RenderBuffer
+{
+    static final int MAX_RETAINED_CHARS = 16 * 1024;
+
+    private static final int INITIAL_CHARS = 256;
+    private static final ThreadLocal<RenderBuffer> BUFFERS = new ThreadLocal<RenderBuffer>()
+    {
+        @Override
+        protected RenderBuffer initialValue()
+        {
+            return new RenderBuffer();
+        }
+    };
+    // Locale.getDefault(Locale.Category.FORMAT), which String.format() uses since Java 7
+    private static final Method GET_DEFAULT_LOCALE;
+    // the argument array for invoking it, built once so looking up the locale allocates nothing
+    private static final Object[] FORMAT_CATEGORY;
+
+    static {
+        Method getDefaultLocale = null;
+        Object formatCategory = null;
+
+        try {
+            Class<?> categoryClass = Class.forName("java.util.Locale$Category");
+
+            getDefaultLocale = Locale.class.getMethod("getDefault", categoryClass);
+            formatCategory = categoryClass.getField("FORMAT").get(null);
+        }
+        catch (Exception e) {
+            // Java 6: there's just the one default
+        }
+
+        GET_DEFAULT_LOCALE = getDefaultLocale;
+        FORMAT_CATEGORY = new Object[]{formatCategory};
+    }
+
+    private StringBuilder builder = new StringBuilder(INITIAL_CHARS);
+    private Formatter formatter = null;
+    private boolean inUse = false;
+
+    private RenderBuffer()
+    {
+    }
+
+    /**
+     * @return this thread's buffer, empty; {@link #release() release} it once the result has been extracted
+     */
+    static RenderBuffer acquire()
+    {
+        RenderBuffer buffer = BUFFERS.get();
+
+        if (buffer.inUse) {
+            buffer = new RenderBuffer();
+        }
+
+        buffer.inUse = true;
+        buffer.builder.setLength(0);
+
+        return buffer;
+    }
+
+    void release()
+    {
+        if (builder.capacity() > MAX_RETAINED_CHARS) {
+            builder = new StringBuilder(INITIAL_CHARS);
+            formatter = null;
+        }
+
+        inUse = false;
+    }
+
+    /**
+     * @return the (empty, when acquired) builder to render into
+     */
+    StringBuilder builder()
+    {
+        return builder;
+    }
+
+    /**
+     * Equivalent to {@code String.format(format, args)}.
+     *
+     * @param format a format string
+     * @param args   arguments referenced by the format specifiers in the format string
+     * @return the formatted string
+     */
+    String format(String format, Object... args)
+    {
+        Locale locale = defaultFormatLocale();
+
+        if (formatter == null || formatter.locale() != locale) {
+            formatter = new Formatter(builder, locale);
+        }
+
+        builder.setLength(0);
+        formatter.format(format, args);
+
+        return builder.toString();
+    }
+
+    /**
+     * @return the locale {@code String.format()} uses
+     */
+    static Locale defaultFormatLocale()
+    {
+        if (GET_DEFAULT_LOCALE != null) {
+            try {
+                return (Locale) GET_DEFAULT_LOCALE.invoke(null, FORMAT_CATEGORY);
+            }
+            catch (Exception e) {
+                // fall through
+            }
+        }
+
+        return Locale.getDefault();
+    }
+}
@@ -0,0 +1,492 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.helpers.LogLog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A minimal backend that writes straight to a file (or standard output), without Log4J.
+ * <p/>
+ * Each logger's threshold is worked out from the configured levels when the logger is created (and again whenever a
+ * level is set), so logging never walks a hierarchy; there are no appenders, layouts or {@code LoggingEvent}s, just
+ * lines like {@code 2011-06-01 12:34:56,789 INFO  [main] com.example.Foo {requestId=1234} - Hello} (with the
+ * {@link LogContext}, if any, and followed by any stack trace) rendered into a per-thread buffer and encoded directly
+ * into an output buffer.  Threads only contend for the output buffer, on a {@code ReentrantLock} rather than a monitor.
+ * <p/>
+ * It's configured with system properties:
+ * <ul>
+ * <li>{@value #LEVEL_PROPERTY} sets the root level (INFO by default), and {@value #LEVEL_PROPERTY}{@code .<name>} the
+ * level of the named logger and its descendants;</li>
+ * <li>{@value #FILE_PROPERTY} names the file to append to (standard output by default); and</li>
+ * <li>{@value #IMMEDIATE_FLUSH_PROPERTY} set to {@code false} writes the buffer out only when it's full and once a
+ * second, rather than after every message.</li>
+ * </ul>
+ */
+public final class SimpleBackend implements LoggingBackend
+{
+    public static final String LEVEL_PROPERTY = "com.mogwee.logging.simple.level";
+    public static final String FILE_PROPERTY = "com.mogwee.logging.simple.file";
+    public static final String IMMEDIATE_FLUSH_PROPERTY = "com.mogwee.logging.simple.immediateFlush";
+
+    private static final String ROOT = "";
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+    private static final ThreadLocal<TimeStampFormat> TIME_STAMP_FORMATS = new ThreadLocal<TimeStampFormat>()
+    {
+        @Override
+        protected TimeStampFormat initialValue()
+        {
+            return new TimeStampFormat();
+        }
+    };
+
+    // configured levels, by logger name (the root's is ROOT)
+    private final ConcurrentMap<String, Level> levels = new ConcurrentHashMap<String, Level>();
+    private final ConcurrentMap<String, SimpleLogger> loggers = new ConcurrentHashMap<String, SimpleLogger>();
+    private final boolean immediateFlush;
+    private final OutputStream out;
+    // null when writing to standard output
+    private final FileChannel channel;
+    private final Thread flusher;
+    private final Thread shutdownHook;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    // the line being encoded: the encoder is much faster from an array than from a CharSequence
+    private char[] chars = new char[1024];
+    private final CharsetEncoder encoder = Charset.forName("UTF-8").newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private boolean closed = false;
+
+    /**
+     * Configured from the system properties.
+     */
+    public SimpleBackend()
+    {
+        this(System.getProperties());
+    }
+
+    /**
+     * @param properties the properties to configure the backend from, as described above
+     */
+    public SimpleBackend(Properties properties)
+    {
+        levels.put(ROOT, Level.INFO);
+
+        for (String key : properties.stringPropertyNames()) {
+            if (key.equals(LEVEL_PROPERTY)) {
+                levels.put(ROOT, Level.toLevel(properties.getProperty(key), Level.INFO));
+            }
+            else if (key.startsWith(LEVEL_PROPERTY + ".")) {
+                levels.put(key.substring(LEVEL_PROPERTY.length() + 1), Level.toLevel(properties.getProperty(key), Level.INFO));
+            }
+        }
+
+        this.immediateFlush = !"false".equalsIgnoreCase(properties.getProperty(IMMEDIATE_FLUSH_PROPERTY));
+
+        String fileName = properties.getProperty(FILE_PROPERTY);
+        FileOutputStream fileOut = null;
+
+        if (fileName != null) {
+            try {
+                File parent = new File(fileName).getAbsoluteFile().getParentFile();
+
+                if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                    throw new IOException("Couldn't create directory " + parent);
+                }
+
+                fileOut = new FileOutputStream(fileName, true);
+            }
+            catch (IOException e) {
+                LogLog.error("Couldn't open " + fileName + "; logging to standard output", e);
+            }
+        }
+
+        this.out = fileOut == null ? System.out : fileOut;
+        this.channel = fileOut == null ? null : fileOut.getChannel();
+
+        if (immediateFlush) {
+            flusher = null;
+        }
+        else {
+            flusher = new Thread("mogwee-logging-simple-flusher")
+            {
+                @Override
+                public void run()
+                {
+                    while (true) {
+                        try {
+                            Thread.sleep(FLUSH_INTERVAL_MILLIS);
+                        }
+                        catch (InterruptedException e) {
+                            return;
+                        }
+
+                        flush();
+                    }
+                }
+            };
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+
+        shutdownHook = new Thread("mogwee-logging-simple-shutdown")
+        {
+            @Override
+            public void run()
+            {
+                flush();
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Override
+    public BackendLogger getLogger(String name)
+    {
+        SimpleLogger logger = loggers.get(name);
+
+        if (logger == null) {
+            SimpleLogger newLogger = new SimpleLogger(name);
+
+            logger = loggers.putIfAbsent(name, newLogger);
+
+            if (logger == null) {
+                logger = newLogger;
+            }
+        }
+
+        return logger;
+    }
+
+    /**
+     * Sets the level of a logger and its descendants (except those with levels of their own).
+     *
+     * @param name  a logger name, or null or empty for the root
+     * @param level the level, or null to inherit it (for the root, to go back to INFO)
+     */
+    public void setLevel(String name, Level level)
+    {
+        String key = name == null ? ROOT : name;
+
+        if (level != null) {
+            levels.put(key, level);
+        }
+        else if (key.equals(ROOT)) {
+            levels.put(ROOT, Level.INFO);
+        }
+        else {
+            levels.remove(key);
+        }
+
+        for (SimpleLogger logger : loggers.values()) {
+            logger.threshold = threshold(logger.name);
+        }
+
+        LevelGeneration.advance();
+    }
+
+    /**
+     * Writes out anything buffered.
+     */
+    public void flush()
+    {
+        lock.lock();
+
+        try {
+            drain();
+            out.flush();
+        }
+        catch (IOException e) {
+            LogLog.error("Failed to flush log", e);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes out anything buffered and closes the file; anything logged afterward is discarded.
+     */
+    public void close()
+    {
+        lock.lock();
+
+        try {
+            if (closed) {
+                return;
+            }
+
+            drain();
+            closed = true;
+
+            if (channel != null) {
+                out.close();
+            }
+        }
+        catch (IOException e) {
+            LogLog.error("Failed to close log", e);
+        }
+        finally {
+            lock.unlock();
+        }
+
+        if (flusher != null) {
+            flusher.interrupt();
+        }
+
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        }
+        catch (IllegalStateException e) {
+            // already shutting down
+        }
+    }
+
+    // the level of the closest configured ancestor
+    private Level threshold(String name)
+    {
+        String key = name;
+
+        while (true) {
+            Level level = levels.get(key);
+
+            if (level != null) {
+                return level;
+            }
+
+            int dot = key.lastIndexOf('.');
+
+            key = dot < 0 ? ROOT : key.substring(0, dot);
+        }
+    }
+
+    /**
+     * @throws DurableLogException if {@code force} is set and the line couldn't be written and forced to disk
+     */
+    private void write(StringBuilder line, boolean force)
+    {
+        lock.lock();
+
+        try {
+            if (closed) {
+                return;
+            }
+
+            int length = line.length();
+
+            if (length > chars.length) {
+                chars = new char[Math.max(length, 2 * chars.length)];
+            }
+
+            line.getChars(0, length, chars, 0);
+
+            CharBuffer charBuffer = CharBuffer.wrap(chars, 0, length);
+
+            encoder.reset();
+
+            while (encoder.encode(charBuffer, buffer, true).isOverflow()) {
+                drain();
+            }
+
+            while (encoder.flush(buffer).isOverflow()) {
+                drain();
+            }
+
+            if (immediateFlush || force) {
+                drain();
+                out.flush();
+            }
+
+            if (force && channel != null) {
+                channel.force(false);
+            }
+
+            // don't hang on to what an unusually long line needed
+            if (chars.length > RenderBuffer.MAX_RETAINED_CHARS) {
+                chars = new char[1024];
+            }
+        }
+        catch (IOException e) {
+            LogLog.error("Failed to write log", e);
+
+            if (force) {
+                throw new DurableLogException("Failed to force log", e);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    // requires lock
+    private void drain() throws IOException
+    {
+        if (buffer.position() > 0 && !closed) {
+            out.write(buffer.array(), 0, buffer.position());
+        }
+
+        // through Buffer, so the call links on Java 8 even when compiled against 9+'s covariant ByteBuffer.clear()
+        ((Buffer) buffer).clear();
+    }
+
+    private final class SimpleLogger implements DeferredLogger
+    {
+        private final String name;
+        private volatile Level threshold;
+
+        private SimpleLogger(String name)
+        {
+            this.name = name;
+            this.threshold = threshold(name);
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+
+        @Override
+        public Level getThreshold()
+        {
+            return threshold;
+        }
+
+        @Override
+        public void log(Level level, String message, Throwable cause, StackTraceFormat format)
+        {
+            render(level, message, cause, format, false, System.currentTimeMillis(), Thread.currentThread().getName());
+        }
+
+        @Override
+        public void logDurably(Level level, String message, Throwable cause, StackTraceFormat format)
+        {
+            render(level, message, cause, format, true, System.currentTimeMillis(), Thread.currentThread().getName());
+        }
+
+        @Override
+        public boolean canDefer()
+        {
+            return LogContext.current().isEmpty();
+        }
+
+        @Override
+        public void logDeferred(Level level, String message, long timeStamp, String threadName)
+        {
+            render(level, message, null, null, false, timeStamp, threadName);
+        }
+
+        private void render(
+            Level level,
+            String message,
+            Throwable cause,
+            StackTraceFormat format,
+            boolean force,
+            long timeStamp,
+            String threadName
+        )
+        {
+            RenderBuffer renderBuffer = RenderBuffer.acquire();
+
+            try {
+                StringBuilder line = renderBuffer.builder();
+                String levelName = level.toString();
+
+                TIME_STAMP_FORMATS.get().append(line, timeStamp);
+                line.append(' ').append(levelName);
+
+                for (int i = levelName.length(); i < 5; ++i) {
+                    line.append(' ');
+                }
+
+                line.append(" [").append(threadName).append("] ").append(name);
+
+                LogContext context = LogContext.current();
+
+                if (!context.isEmpty()) {
+                    line.append(' ');
+                    context.appendTo(line);
+                }
+
+                line.append(" - ").append(message).append(LINE_SEPARATOR);
+
+                if (cause != null) {
+                    format.appendTo(line, cause);
+                }
+
+                write(line, force);
+            }
+            finally {
+                renderBuffer.release();
+            }
+        }
+    }
+
+    // formats each second once per thread, e.g., 2011-06-01 12:34:56
+    private static final class TimeStampFormat
+    {
+        private final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        private long second = Long.MIN_VALUE;
+        private String formattedSecond = null;
+
+        private void append(StringBuilder result, long millis)
+        {
+            long currentSecond = millis / 1000;
+            int fraction = (int) (millis % 1000);
+
+            if (currentSecond != second) {
+                second = currentSecond;
+                formattedSecond = format.format(new Date(currentSecond * 1000));
+            }
+
+            result.append(formattedSecond).append(',');
+
+            if (fraction < 100) {
+                result.append('0');
+            }
+
+            if (fraction < 10) {
+                result.append('0');
+            }
+
+            result.append(fraction);
+        }
+    }
+}
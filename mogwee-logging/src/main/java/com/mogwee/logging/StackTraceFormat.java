@@ -0,0 +1,299 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.mogwee.logging;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How a {@link Logger} renders the stack traces of the exceptions it logs (see {@link Logger#trimmingTraces}).
+ * <p/>
+ * {@link #FULL} renders them like {@code Throwable.printStackTrace()}.  Other formats are derived from it, e.g.,
+ * <pre>
+ * StackTraceFormat.FULL.withMaxDepth(20).excludingPackages("sun.reflect.", "org.eclipse.jetty.")
+ * </pre>
+ * writes at most 20 frames of each exception in the chain and replaces each run of frames in classes whose names start
+ * with either prefix with a single {@code ... 3 frames filtered} line.  Traces are rendered straight from the frames
+ * into the output, without going through {@code printStackTrace()} and the intermediate copies it makes.  Formats are
+ * immutable.
+ */
+public final class StackTraceFormat
+{
+    public static final StackTraceFormat FULL = new StackTraceFormat(Integer.MAX_VALUE, true, new String[0]);
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    // Throwable.getSuppressed(), since Java 7
+    private static final Method GET_SUPPRESSED;
+    private static final Throwable[] NO_THROWABLES = new Throwable[0];
+
+    static {
+        Method getSuppressed = null;
+
+        try {
+            getSuppressed = Throwable.class.getMethod("getSuppressed");
+        }
+        catch (Exception e) {
+            // Java 6: there are no suppressed exceptions
+        }
+
+        GET_SUPPRESSED = getSuppressed;
+    }
+
+    private final int maxDepth;
+    private final boolean collapseCommonFrames;
+    private final String[] excludedPackages;
+
+    private StackTraceFormat(int maxDepth, boolean collapseCommonFrames, String[] excludedPackages)
+    {
+        this.maxDepth = maxDepth;
+        this.collapseCommonFrames = collapseCommonFrames;
+        this.excludedPackages = excludedPackages;
+    }
+
+    /**
+     * @param maxDepth the most frames to write for each exception in the chain (excluding filtered frames and frames
+     *                 in common with the enclosing exception); the rest are summarized as {@code ... 97 frames truncated}
+     * @return a format like this one, but with the given limit
+     * @throws IllegalArgumentException if {@code maxDepth} is negative
+     */
+    public StackTraceFormat withMaxDepth(int maxDepth)
+    {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("maxDepth must not be negative: " + maxDepth);
+        }
+
+        return new StackTraceFormat(maxDepth, collapseCommonFrames, excludedPackages);
+    }
+
+    /**
+     * @param collapse whether the frames a cause has in common with the exception it caused (the bottom of the stack)
+     *                 are summarized as {@code ... 42 more}, as {@code printStackTrace()} does
+     * @return a format like this one, but collapsing common frames or not
+     */
+    public StackTraceFormat collapsingCommonFrames(boolean collapse)
+    {
+        return new StackTraceFormat(maxDepth, collapse, excludedPackages);
+    }
+
+    /**
+     * @param prefixes prefixes of the names of classes whose frames are left out, e.g., {@code "sun.reflect."}
+     * @return a format like this one, but also leaving out frames in the given packages
+     */
+    public StackTraceFormat excludingPackages(String... prefixes)
+    {
+        String[] excluded = new String[excludedPackages.length + prefixes.length];
+
+        System.arraycopy(excludedPackages, 0, excluded, 0, excludedPackages.length);
+
+        for (int i = 0; i < prefixes.length; ++i) {
+            if (prefixes[i] == null) {
+                throw new IllegalArgumentException("package prefixes must not be null");
+            }
+
+            excluded[excludedPackages.length + i] = prefixes[i];
+        }
+
+        return new StackTraceFormat(maxDepth, collapseCommonFrames, excluded);
+    }
+
+    /**
+     * Appends the stack trace of {@code cause}, with each line (including the last) followed by a line separator.
+     */
+    void appendTo(StringBuilder result, Throwable cause)
+    {
+        render(new Sink(result, null), cause, null, "", "", new ArrayList<Throwable>());
+    }
+
+    /**
+     * @return the lines of the stack trace of {@code cause}, as {@code ThrowableInformation.getThrowableStrRep()}
+     * returns them
+     */
+    String[] toLines(Throwable cause)
+    {
+        List<String> lines = new ArrayList<String>();
+
+        render(new Sink(new StringBuilder(128), lines), cause, null, "", "", new ArrayList<Throwable>());
+
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    private void render(
+        Sink sink,
+        Throwable throwable,
+        StackTraceElement[] enclosingFrames,
+        String caption,
+        String prefix,
+        List<Throwable> seen
+    )
+    {
+        StringBuilder line = sink.builder;
+
+        for (Throwable seenThrowable : seen) {
+            if (seenThrowable == throwable) {
+                line.append(prefix).append(caption).append("[CIRCULAR REFERENCE: ").append(throwable).append(']');
+                sink.endLine();
+                return;
+            }
+        }
+
+        seen.add(throwable);
+
+        StackTraceElement[] frames = throwable.getStackTrace();
+        int common = 0;
+
+        if (collapseCommonFrames && enclosingFrames != null) {
+            int index = frames.length - 1;
+            int enclosingIndex = enclosingFrames.length - 1;
+
+            while (index >= 0 && enclosingIndex >= 0 && frames[index].equals(enclosingFrames[enclosingIndex])) {
+                --index;
+                --enclosingIndex;
+                ++common;
+            }
+        }
+
+        line.append(prefix).append(caption).append(throwable);
+        sink.endLine();
+
+        int unique = frames.length - common;
+        int written = 0;
+        int filtered = 0;
+        int index = 0;
+
+        for (; index < unique && written < maxDepth; ++index) {
+            StackTraceElement frame = frames[index];
+
+            if (isExcluded(frame.getClassName())) {
+                ++filtered;
+                continue;
+            }
+
+            if (filtered > 0) {
+                appendOmitted(sink, prefix, filtered, " frames filtered");
+                filtered = 0;
+            }
+
+            line.append(prefix).append("\tat ");
+            appendFrame(line, frame);
+            sink.endLine();
+            ++written;
+        }
+
+        if (filtered > 0) {
+            appendOmitted(sink, prefix, filtered, " frames filtered");
+        }
+
+        if (index < unique) {
+            appendOmitted(sink, prefix, unique - index, " frames truncated");
+        }
+
+        if (common > 0) {
+            appendOmitted(sink, prefix, common, " more");
+        }
+
+        for (Throwable suppressed : suppressed(throwable)) {
+            render(sink, suppressed, frames, "Suppressed: ", prefix + "\t", seen);
+        }
+
+        Throwable cause = throwable.getCause();
+
+        if (cause != null) {
+            render(sink, cause, frames, "Caused by: ", prefix, seen);
+        }
+    }
+
+    private boolean isExcluded(String className)
+    {
+        for (String excludedPackage : excludedPackages) {
+            if (className.startsWith(excludedPackage)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void appendOmitted(Sink sink, String prefix, int count, String description)
+    {
+        sink.builder.append(prefix).append("\t... ").append(count).append(description);
+        sink.endLine();
+    }
+
+    // like StackTraceElement.toString(), without the intermediate string
+    private static void appendFrame(StringBuilder line, StackTraceElement frame)
+    {
+        String fileName = frame.getFileName();
+        int lineNumber = frame.getLineNumber();
+
+        line.append(frame.getClassName()).append('.').append(frame.getMethodName()).append('(');
+
+        if (frame.isNativeMethod()) {
+            line.append("Native Method");
+        }
+        else if (fileName == null) {
+            line.append("Unknown Source");
+        }
+        else if (lineNumber >= 0) {
+            line.append(fileName).append(':').append(lineNumber);
+        }
+        else {
+            line.append(fileName);
+        }
+
+        line.append(')');
+    }
+
+    private static Throwable[] suppressed(Throwable throwable)
+    {
+        if (GET_SUPPRESSED != null) {
+            try {
+                return (Throwable[]) GET_SUPPRESSED.invoke(throwable);
+            }
+            catch (Exception e) {
+                // fall through
+            }
+        }
+
+        return NO_THROWABLES;
+    }
+
+    // either a builder that lines are appended to, or one that each line is cut from in turn
+    private static final class Sink
+    {
+        private final StringBuilder builder;
+        private final List<String> lines;
+
+        private Sink(StringBuilder builder, List<String> lines)
+        {
+            this.builder = builder;
+            this.lines = lines;
+        }
+
+        private void endLine()
+        {
+            if (lines == null) {
+                builder.append(LINE_SEPARATOR);
+            }
+            else {
+                lines.add(builder.toString());
+                builder.setLength(0);
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which messages a rate-limited or sampled {@link Logger} actually logs.
+ * <p/>
+ * State is kept per format string (or message, for the methods that don't format), which stands in for the call site.
+ * Each one gets a token bucket, implemented as a generic cell rate algorithm: a single "theoretical arrival time" that
+ * moves forward one emission interval per logged message, updated with one compare-and-set.  A message is suppressed
+ * if that time is more than a burst's worth of intervals in the future.  Sampling is decided per message with a
+ * per-thread random number generator, so nothing here ever takes a lock.
+ */
+final class Throttle
+{
+    static final Throttle NONE = new Throttle(1.0, 0, 0);
+
+    // keeps a logger that formats messages itself (rather than using *f methods) from growing the map forever
+    private static final int MAX_KEYS = 1024;
+    private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>()
+    {
+        @Override
+        protected Random initialValue()
+        {
+            return new Random();
+        }
+    };
+
+    private final double sampleRate;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final ConcurrentMap<String, Key> keys = new ConcurrentHashMap<String, Key>();
+    // shared by all messages once MAX_KEYS is reached (and by null messages)
+    private final Key overflow = new Key();
+
+    private Throttle(double sampleRate, long intervalNanos, long toleranceNanos)
+    {
+        this.sampleRate = sampleRate;
+        this.intervalNanos = intervalNanos;
+        this.toleranceNanos = toleranceNanos;
+    }
+
+    /**
+     * @param permitsPerSecond sustained number of messages per second allowed for each format string
+     * @param burst            number of messages allowed back-to-back before the sustained rate applies
+     * @return a throttle that samples like this one, but with the given rate limit
+     */
+    Throttle withRateLimit(double permitsPerSecond, int burst)
+    {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+        }
+
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be at least 1: " + burst);
+        }
+
+        long interval = Math.max(1, (long) (1000000000L / permitsPerSecond));
+
+        return new Throttle(sampleRate, interval, interval * (burst - 1));
+    }
+
+    /**
+     * @param probability chance of each message being logged
+     * @return a throttle that rate limits like this one, but with the given sampling
+     */
+    Throttle withSampling(double probability)
+    {
+        if (!(probability > 0 && probability <= 1)) {
+            throw new IllegalArgumentException("probability must be in (0, 1]: " + probability);
+        }
+
+        return new Throttle(probability, intervalNanos, toleranceNanos);
+    }
+
+    /**
+     * Decides whether to log a message.  Called before the message is rendered.
+     *
+     * @param template the format string or message
+     * @return -1 if the message should be suppressed, otherwise the number of messages suppressed since the last one
+     * with the same template was logged
+     */
+    long admit(String template)
+    {
+        Key key = key(template);
+
+        if ((sampleRate < 1.0 && RANDOM.get().nextDouble() >= sampleRate) ||
+            (intervalNanos > 0 && !key.tryAcquire(System.nanoTime(), intervalNanos, toleranceNanos))) {
+            key.suppressed.incrementAndGet();
+
+            return -1;
+        }
+
+        return key.suppressed.get() == 0 ? 0 : key.suppressed.getAndSet(0);
+    }
+
+    private Key key(String template)
+    {
+        if (template == null) {
+            return overflow;
+        }
+
+        Key key = keys.get(template);
+
+        if (key == null) {
+            if (keys.size() >= MAX_KEYS) {
+                return overflow;
+            }
+
+            Key newKey = new Key();
+
+            key = keys.putIfAbsent(template, newKey);
+
+            if (key == null) {
+                key = newKey;
+            }
+        }
+
+        return key;
+    }
+
+    private static final class Key
+    {
+        private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+        private final AtomicLong suppressed = new AtomicLong();
+
+        boolean tryAcquire(long now, long intervalNanos, long toleranceNanos)
+        {
+            while (true) {
+                long arrival = theoreticalArrival.get();
+                // nanoTime() can wrap, so compare differences rather than values
+                long start = arrival - now > 0 ? arrival : now;
+
+                if (start - now > toleranceNanos) {
+                    return false;
+                }
+
+                if (theoreticalArrival.compareAndSet(arrival, start + intervalNanos)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
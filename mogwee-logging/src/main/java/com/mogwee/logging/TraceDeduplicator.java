@@ -0,0 +1,166 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Decides which stack traces a {@link Logger} writes in full.
+ * <p/>
+ * Each stack trace is identified by a fingerprint: a 64-bit hash of the exception classes and frames (class, method
+ * and line) of the exception and its causes, but not their messages, which often vary (IDs, addresses) between
+ * occurrences of the same failure.  It's computed from the frames directly, without rendering the trace, and is the
+ * same from one run to the next.  A trace is written in full the first time it's seen and then at most once per
+ * interval; other occurrences are only counted.  The traces seen are tracked in a fixed-size, direct-mapped table, so
+ * a flood of distinct traces can't grow it; colliding traces just evict each other and are written in full more
+ * often than they'd otherwise be.
+ */
+final class TraceDeduplicator
+{
+    static final String INTERVAL_PROPERTY = "com.mogwee.logging.traceDedupMillis";
+
+    // null unless the property is set; shared by all loggers that aren't deduplicating views
+    static final TraceDeduplicator DEFAULT;
+
+    private static final int SLOTS = 1024;
+    // guards against cycles of causes
+    private static final int MAX_CAUSES = 32;
+
+    static {
+        long intervalMillis = Long.getLong(INTERVAL_PROPERTY, 0L);
+
+        DEFAULT = intervalMillis > 0 ? new TraceDeduplicator(intervalMillis) : null;
+    }
+
+    private final long intervalMillis;
+    private final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<Entry>(SLOTS);
+
+    /**
+     * @param intervalMillis how often a repeated stack trace is written in full
+     */
+    TraceDeduplicator(long intervalMillis)
+    {
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("interval must be at least a millisecond: " + intervalMillis);
+        }
+
+        this.intervalMillis = intervalMillis;
+    }
+
+    static long fingerprint(Throwable cause)
+    {
+        // FNV-1a over the hashes of the names (which strings cache) and line numbers
+        long hash = 0xCBF29CE484222325L;
+        Throwable throwable = cause;
+
+        for (int i = 0; throwable != null && i < MAX_CAUSES; ++i) {
+            hash = mix(hash, throwable.getClass().getName().hashCode());
+
+            for (StackTraceElement frame : throwable.getStackTrace()) {
+                hash = mix(hash, frame.getClassName().hashCode());
+                hash = mix(hash, frame.getMethodName().hashCode());
+                hash = mix(hash, frame.getLineNumber());
+            }
+
+            throwable = throwable.getCause();
+        }
+
+        // spread the bits, so any subset of them makes a good table index
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+
+    static String format(long fingerprint)
+    {
+        String hex = Long.toHexString(fingerprint);
+
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    /**
+     * @param fingerprint the {@link #fingerprint(Throwable) fingerprint} of a stack trace being logged
+     * @param now         the current time, in milliseconds
+     * @return if the trace should be written in full, how many times it was left out since it last was (zero or
+     * more); otherwise, minus the number of times (including this one) it's been left out since
+     */
+    long admit(long fingerprint, long now)
+    {
+        int slot = (int) fingerprint & (SLOTS - 1);
+
+        while (true) {
+            Entry entry = entries.get(slot);
+
+            if (entry != null && entry.fingerprint == fingerprint && now - entry.loggedAt < intervalMillis) {
+                return -entry.repeats.incrementAndGet();
+            }
+
+            long repeats = entry != null && entry.fingerprint == fingerprint ? entry.repeats.get() : 0;
+
+            if (entries.compareAndSet(slot, entry, new Entry(fingerprint, now))) {
+                return repeats;
+            }
+        }
+    }
+
+    /**
+     * Fingerprints a stack trace and {@link #admit(long, long) admits} it, once per occurrence however many ways the
+     * logger tries to write it.
+     */
+    Admission admit(Throwable cause, long now)
+    {
+        long fingerprint = fingerprint(cause);
+
+        return new Admission(fingerprint, admit(fingerprint, now));
+    }
+
+    private static long mix(long hash, int value)
+    {
+        return (hash ^ value) * 0x100000001B3L;
+    }
+
+    static final class Admission
+    {
+        final long fingerprint;
+        // what admit(long, long) returned
+        final long repeats;
+
+        private Admission(long fingerprint, long repeats)
+        {
+            this.fingerprint = fingerprint;
+            this.repeats = repeats;
+        }
+    }
+
+    private static final class Entry
+    {
+        private final long fingerprint;
+        private final long loggedAt;
+        private final AtomicLong repeats = new AtomicLong();
+
+        private Entry(long fingerprint, long loggedAt)
+        {
+            this.fingerprint = fingerprint;
+            this.loggedAt = loggedAt;
+        }
+    }
+}
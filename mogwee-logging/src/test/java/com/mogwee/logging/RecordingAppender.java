@@ -0,0 +1,93 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Records the events appended to it, and the threads that appended them.  Close the gate to hold appending threads
+ * up; {@link #entered} counts down once one has arrived.
+ */
+class RecordingAppender extends AppenderSkeleton
+{
+    final ConcurrentLinkedQueue<LoggingEvent> events = new ConcurrentLinkedQueue<LoggingEvent>();
+    final ConcurrentLinkedQueue<String> appendingThreads = new ConcurrentLinkedQueue<String>();
+    final CountDownLatch entered = new CountDownLatch(1);
+    volatile CountDownLatch gate = new CountDownLatch(0);
+
+    private final org.apache.log4j.Logger log4j;
+
+    private RecordingAppender(org.apache.log4j.Logger log4j)
+    {
+        this.log4j = log4j;
+    }
+
+    /**
+     * Makes a new appender the only one the Log4J logger (but not its ancestors) logs to.
+     */
+    static RecordingAppender attach(String loggerName, Level level)
+    {
+        org.apache.log4j.Logger log4j = org.apache.log4j.Logger.getLogger(loggerName);
+        RecordingAppender appender = new RecordingAppender(log4j);
+
+        log4j.setAdditivity(false);
+        log4j.setLevel(level);
+        log4j.addAppender(appender);
+        Logger.refreshLevels();
+
+        return appender;
+    }
+
+    void detach()
+    {
+        log4j.removeAppender(this);
+    }
+
+    @Override
+    protected void append(LoggingEvent event)
+    {
+        entered.countDown();
+
+        try {
+            gate.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // the MDC is looked up on whichever thread asks, unless it's copied while appending
+        event.getMDCCopy();
+        events.add(event);
+        appendingThreads.add(Thread.currentThread().getName());
+    }
+
+    @Override
+    public boolean requiresLayout()
+    {
+        return false;
+    }
+
+    @Override
+    public void close()
+    {
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestAsyncDispatcher
+{
+    private static final Logger LOG = Logger.getLogger();
+    private static final org.apache.log4j.Logger LOG4J_LOGGER = org.apache.log4j.Logger.getLogger(TestAsyncDispatcher.class.getName());
+
+    private RecordingAppender appender;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup()
+    {
+        appender = RecordingAppender.attach(LOG4J_LOGGER.getName(), Level.ALL);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        appender.gate.countDown();
+        AsyncDispatcher.uninstall();
+        appender.detach();
+    }
+
+    @Test
+    public void testEventsDeliveredOnConsumerThread() throws Exception
+    {
+        AsyncDispatcher.install(16, AsyncDispatcher.OverflowPolicy.BLOCK);
+
+        final int threadCount = 4;
+        final int eventsPerThread = 1000;
+        List<Thread> threads = new ArrayList<Thread>();
+
+        for (int i = 0; i < threadCount; ++i) {
+            Thread thread = new Thread("producer-" + i)
+            {
+                @Override
+                public void run()
+                {
+                    for (int j = 0; j < eventsPerThread; ++j) {
+                        LOG.infof("event %s", j);
+                    }
+                }
+            };
+
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        AsyncDispatcher.uninstall();
+
+        Map<String, Integer> nextExpected = new HashMap<String, Integer>();
+
+        for (LoggingEvent event : appender.events) {
+            Integer expected = nextExpected.get(event.getThreadName());
+
+            if (expected == null) {
+                expected = 0;
+            }
+
+            Assert.assertEquals(event.getRenderedMessage(), "event " + expected);
+            Assert.assertEquals(event.getLevel(), Level.INFO);
+            nextExpected.put(event.getThreadName(), expected + 1);
+        }
+
+        Assert.assertEquals(nextExpected.size(), threadCount);
+
+        for (Integer count : nextExpected.values()) {
+            Assert.assertEquals(count.intValue(), eventsPerThread);
+        }
+    }
+
+    @Test
+    public void testCauseIsPreserved()
+    {
+        AsyncDispatcher.install(16, AsyncDispatcher.OverflowPolicy.BLOCK);
+        LOG.errorf(new IllegalStateException("Uh oh!"), "Hello %s", "world");
+        AsyncDispatcher.uninstall();
+
+        LoggingEvent event = appender.events.poll();
+
+        Assert.assertNotNull(event);
+        Assert.assertEquals(event.getRenderedMessage(), "Hello world");
+        Assert.assertEquals(event.getThrowableStrRep()[0], "java.lang.IllegalStateException: Uh oh!");
+    }
+
+    @Test
+    public void testDrop() throws Exception
+    {
+        AsyncDispatcher dispatcher = AsyncDispatcher.install(4, AsyncDispatcher.OverflowPolicy.DROP);
+
+        appender.gate = new CountDownLatch(1);
+        LOG.warn("stuck");
+        Assert.assertTrue(appender.entered.await(10, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 10; ++i) {
+            LOG.warn("queued");
+        }
+
+        Assert.assertEquals(dispatcher.getDroppedCount(), 6);
+        Assert.assertEquals(dispatcher.getDroppedCount(Level.WARN), 6);
+        Assert.assertEquals(dispatcher.getDroppedCount(Level.ERROR), 0);
+
+        appender.gate.countDown();
+        AsyncDispatcher.uninstall();
+        Assert.assertEquals(appender.events.size(), 5);
+    }
+
+    @Test
+    public void testDropDebugAndInfo() throws Exception
+    {
+        AsyncDispatcher dispatcher = AsyncDispatcher.install(8, AsyncDispatcher.OverflowPolicy.DROP_DEBUG_AND_INFO);
+
+        appender.gate = new CountDownLatch(1);
+        LOG.warn("stuck");
+        Assert.assertTrue(appender.entered.await(10, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 6; ++i) {
+            LOG.debug("queued");
+        }
+
+        LOG.info("dropped");
+        LOG.error("queued");
+        LOG.warn("queued");
+
+        Assert.assertEquals(dispatcher.getDroppedCount(), 1);
+        Assert.assertEquals(dispatcher.getDroppedCount(Level.INFO), 1);
+
+        appender.gate.countDown();
+        AsyncDispatcher.uninstall();
+        Assert.assertEquals(appender.events.size(), 9);
+    }
+
+    // needs Java 21 (e.g., mvn test -Djvm=.../jdk-21/bin/java); virtual threads and JFR are only reached via reflection
+    @Test
+    public void testVirtualThreadsArentPinned() throws Exception
+    {
+        Method startVirtualThread;
+
+        try {
+            startVirtualThread = Thread.class.getMethod("startVirtualThread", Runnable.class);
+        }
+        catch (NoSuchMethodException e) {
+            throw new SkipException("No virtual threads before Java 21");
+        }
+
+        final AtomicInteger appended = new AtomicInteger();
+        AppenderSkeleton slowAppender = new AppenderSkeleton()
+        {
+            @Override
+            protected void append(LoggingEvent event)
+            {
+                // stands in for blocking I/O, inside Log4J's monitors
+                if (appended.incrementAndGet() % 100 == 1) {
+                    try {
+                        Thread.sleep(1);
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+
+            @Override
+            public boolean requiresLayout()
+            {
+                return false;
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+
+        LOG4J_LOGGER.removeAppender(appender);
+        LOG4J_LOGGER.addAppender(slowAppender);
+
+        try {
+            // logging synchronously pins the carriers, which shows the recording can tell
+            Map<String, Integer> synchronous = countPinning(startVirtualThread, 100, 1);
+
+            Assert.assertTrue(synchronous.get("jdk.VirtualThreadPinned") > 0, synchronous.toString());
+
+            AsyncDispatcher.install(1024, AsyncDispatcher.OverflowPolicy.BLOCK, false);
+            appended.set(0);
+
+            Map<String, Integer> dispatched = countPinning(startVirtualThread, 5000, 10);
+
+            AsyncDispatcher.uninstall();
+
+            Assert.assertEquals(appended.get(), 50000);
+            Assert.assertEquals(dispatched.get("jdk.VirtualThreadPinned").intValue(), 0, dispatched.toString());
+            Assert.assertEquals(dispatched.get("jdk.JavaMonitorEnter").intValue(), 0, dispatched.toString());
+        }
+        finally {
+            LOG4J_LOGGER.removeAppender(slowAppender);
+        }
+    }
+
+    /**
+     * Starts virtual threads that log, and counts the JFR events that show virtual threads pinning their carriers:
+     * parking while pinned, and waiting to enter a monitor.
+     */
+    private Map<String, Integer> countPinning(Method startVirtualThread, int threadCount, final int eventsPerThread) throws Exception
+    {
+        Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+        Class<?> settingsClass = Class.forName("jdk.jfr.EventSettings");
+        Class<?> durationClass = Class.forName("java.time.Duration");
+        Class<?> pathClass = Class.forName("java.nio.file.Path");
+        Object zero = durationClass.getField("ZERO").get(null);
+        Object recording = recordingClass.newInstance();
+        String[] eventNames = {"jdk.VirtualThreadPinned", "jdk.JavaMonitorEnter"};
+
+        for (String eventName : eventNames) {
+            Object settings = recordingClass.getMethod("enable", String.class).invoke(recording, eventName);
+
+            settingsClass.getMethod("withThreshold", durationClass).invoke(settings, zero);
+            settingsClass.getMethod("withStackTrace").invoke(settings);
+        }
+
+        recordingClass.getMethod("start").invoke(recording);
+
+        List<Thread> threads = new ArrayList<Thread>();
+
+        for (int i = 0; i < threadCount; ++i) {
+            threads.add((Thread) startVirtualThread.invoke(
+                null,
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        for (int j = 0; j < eventsPerThread; ++j) {
+                            LOG.infof("event %s", j);
+                        }
+                    }
+                }
+            ));
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        recordingClass.getMethod("stop").invoke(recording);
+
+        File file = File.createTempFile("pinning", ".jfr");
+
+        try {
+            Object path = File.class.getMethod("toPath").invoke(file);
+
+            recordingClass.getMethod("dump", pathClass).invoke(recording, path);
+            recordingClass.getMethod("close").invoke(recording);
+
+            Class<?> recordedEventClass = Class.forName("jdk.jfr.consumer.RecordedEvent");
+            Class<?> recordedThreadClass = Class.forName("jdk.jfr.consumer.RecordedThread");
+            List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+                .getMethod("readAllEvents", pathClass)
+                .invoke(null, path);
+            Map<String, Integer> counts = new HashMap<String, Integer>();
+
+            for (String eventName : eventNames) {
+                counts.put(eventName, 0);
+            }
+
+            for (Object event : events) {
+                Object eventType = recordedEventClass.getMethod("getEventType").invoke(event);
+                String eventName = (String) eventType.getClass().getMethod("getName").invoke(eventType);
+                Object thread = recordedEventClass.getMethod("getThread").invoke(event);
+
+                if (thread != null && (Boolean) recordedThreadClass.getMethod("isVirtual").invoke(thread)) {
+                    counts.put(eventName, counts.get(eventName) + 1);
+                }
+            }
+
+            return counts;
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testUninstallRestoresSynchronousLogging()
+    {
+        AsyncDispatcher.install(16, AsyncDispatcher.OverflowPolicy.BLOCK);
+        AsyncDispatcher.uninstall();
+        Assert.assertNull(AsyncDispatcher.installed());
+
+        LOG.info("synchronous");
+
+        LoggingEvent event = appender.events.poll();
+
+        Assert.assertNotNull(event);
+        Assert.assertEquals(event.getThreadName(), Thread.currentThread().getName());
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+
+public class TestBinaryLog
+{
+    private static final String LOGGER_NAME = TestBinaryLog.class.getName() + ".binary";
+    private static final Logger LOG = Logger.getLogger(LOGGER_NAME);
+
+    private static class CountingAppender extends AppenderSkeleton
+    {
+        private volatile int count;
+
+        @Override
+        protected void append(LoggingEvent event)
+        {
+            ++count;
+        }
+
+        @Override
+        public boolean requiresLayout()
+        {
+            return false;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+    private final CountingAppender appender = new CountingAppender();
+    private File file;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup() throws IOException
+    {
+        file = File.createTempFile("binary", ".log");
+        appender.count = 0;
+        org.apache.log4j.Logger.getLogger(LOGGER_NAME).addAppender(appender);
+        org.apache.log4j.Logger.getLogger(LOGGER_NAME).setLevel(Level.DEBUG);
+        Logger.refreshLevels();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        BinaryLog.uninstall();
+        org.apache.log4j.Logger.getLogger(LOGGER_NAME).removeAppender(appender);
+        file.delete();
+    }
+
+    private List<BinaryLogDecoder.Event> decode() throws IOException
+    {
+        List<BinaryLogDecoder.Event> events = new ArrayList<BinaryLogDecoder.Event>();
+        BinaryLogDecoder decoder = new BinaryLogDecoder(new FileInputStream(file));
+
+        try {
+            BinaryLogDecoder.Event event;
+
+            while ((event = decoder.next()) != null) {
+                events.add(event);
+            }
+        }
+        finally {
+            decoder.close();
+        }
+
+        return events;
+    }
+
+    private void assertEvent(BinaryLogDecoder.Event event, Level level, String message)
+    {
+        Assert.assertEquals(event.getLevel(), level);
+        Assert.assertEquals(event.getLoggerName(), LOGGER_NAME);
+        Assert.assertEquals(event.getMessage(), message);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        long before = System.currentTimeMillis();
+        String unicode = "héllo 世界 😀 \ud800";
+
+        BinaryLog.install(file);
+        LOG.debugf("%s %d %x %s", "a", 2, (byte) -1, null);
+        LOG.infof("%b|%c|%d|%d", true, 'c', (short) -2, Long.MIN_VALUE);
+        LOG.warnf("%.2f|%s|%e", 1.5f, Double.MAX_VALUE, -0.0d);
+        LOG.infof("%s", unicode);
+        LOG.infof("%d", BigInteger.TEN.pow(30));
+        LOG.infof("Foo %d", "bar");
+        LOG.infof("No arguments");
+        LOG.infof("Null arguments %s", (Object[]) null);
+        LOG.info("Plain message");
+        LOG.debugf("%s %s %s %s %s", 1, 2, 3, 4, 5);
+        BinaryLog.uninstall();
+
+        List<BinaryLogDecoder.Event> events = decode();
+
+        Assert.assertEquals(events.size(), 10);
+        Assert.assertTrue(events.get(0).getTimeStamp() >= before);
+        Assert.assertTrue(events.get(0).getTimeStamp() <= System.currentTimeMillis());
+        assertEvent(events.get(0), Level.DEBUG, "a 2 ff null");
+        assertEvent(events.get(1), Level.INFO, String.format("%b|%c|%d|%d", true, 'c', (short) -2, Long.MIN_VALUE));
+        assertEvent(events.get(2), Level.WARN, String.format("%.2f|%s|%e", 1.5f, Double.MAX_VALUE, -0.0d));
+        assertEvent(events.get(3), Level.INFO, unicode);
+        assertEvent(events.get(4), Level.INFO, BigInteger.TEN.pow(30).toString());
+        assertEvent(
+            events.get(5),
+            Level.WARN,
+            "Bogus format string: INFO Foo %d [bar] (java.util.IllegalFormatConversionException: d != java.lang.String)"
+        );
+        assertEvent(events.get(6), Level.INFO, "No arguments");
+        assertEvent(events.get(7), Level.INFO, "Null arguments null");
+        assertEvent(events.get(8), Level.INFO, "Plain message");
+        assertEvent(events.get(9), Level.DEBUG, "1 2 3 4 5");
+
+        for (BinaryLogDecoder.Event event : events) {
+            Assert.assertNull(event.getThrowableStrRep());
+        }
+
+        // nothing went through the Log4J appenders
+        Assert.assertEquals(appender.count, 0);
+    }
+
+    @Test
+    public void testCauses() throws Exception
+    {
+        Exception e = new BrokenBarrierException("Uh oh!");
+
+        BinaryLog.install(file);
+        LOG.warnf(e, "Hello %s", "world");
+        LOG.warnDebugf(e, "Hello %s", "again");
+        org.apache.log4j.Logger.getLogger(LOGGER_NAME).setLevel(Level.INFO);
+        Logger.refreshLevels();
+        LOG.debugf("Hello %s", "nobody");
+        LOG.warnDebugf(e, "Hello %s", "summary");
+        LOG.infoDebugf(e, "Foo %d", "bar");
+        LOG.errorDebug(e, "Plain");
+        BinaryLog.uninstall();
+
+        List<BinaryLogDecoder.Event> events = decode();
+
+        Assert.assertEquals(events.size(), 5);
+        assertEvent(events.get(0), Level.WARN, "Hello world");
+        Assert.assertEquals(events.get(0).getThrowableStrRep()[0], "java.util.concurrent.BrokenBarrierException: Uh oh!");
+        Assert.assertTrue(events.get(0).getThrowableStrRep().length > 1);
+        assertEvent(events.get(1), Level.WARN, "Hello again");
+        Assert.assertNotNull(events.get(1).getThrowableStrRep());
+        assertEvent(
+            events.get(2),
+            Level.WARN,
+            "Hello summary (Switch to DEBUG for full stack trace): java.util.concurrent.BrokenBarrierException: Uh oh!"
+        );
+        Assert.assertNull(events.get(2).getThrowableStrRep());
+        assertEvent(
+            events.get(3),
+            Level.WARN,
+            "Bogus format string: INFO Foo %d [bar] (java.util.IllegalFormatConversionException: d != java.lang.String) (Switch to DEBUG for full stack trace): java.util.concurrent.BrokenBarrierException: Uh oh!"
+        );
+        assertEvent(
+            events.get(4),
+            Level.ERROR,
+            "Plain (Switch to DEBUG for full stack trace): java.util.concurrent.BrokenBarrierException: Uh oh!"
+        );
+    }
+
+    @Test
+    public void testSuppressedCountWritten() throws Exception
+    {
+        Logger limited = LOG.rateLimited(20, 1);
+
+        BinaryLog.install(file);
+        limited.infof("Attempt %d", 1);
+        limited.infof("Attempt %d", 2);
+        Thread.sleep(100);
+        limited.infof("Attempt %d", 3);
+        BinaryLog.uninstall();
+
+        List<BinaryLogDecoder.Event> events = decode();
+
+        Assert.assertEquals(events.size(), 2);
+        assertEvent(events.get(0), Level.INFO, "Attempt 1");
+        assertEvent(events.get(1), Level.INFO, "Attempt 3 [1 similar messages suppressed]");
+    }
+
+    @Test
+    public void testManyEvents() throws Exception
+    {
+        BinaryLog.install(file);
+
+        // enough to fill the buffer several times over
+        for (int i = 0; i < 50000; ++i) {
+            LOG.infof("Event %d of %s", i, "many");
+        }
+
+        BinaryLog.uninstall();
+
+        List<BinaryLogDecoder.Event> events = decode();
+
+        Assert.assertEquals(events.size(), 50000);
+
+        for (int i = 0; i < events.size(); ++i) {
+            Assert.assertEquals(events.get(i).getMessage(), "Event " + i + " of many");
+        }
+
+        // about half of each event is the time stamp and level
+        Assert.assertTrue(file.length() < 50000 * 30, "length " + file.length());
+    }
+
+    @Test
+    public void testDynamicFormatStringsCapped() throws Exception
+    {
+        BinaryLog binaryLog = BinaryLog.install(file);
+        int count = BinaryLog.MAX_IDS + 100;
+
+        for (int i = 0; i < count; ++i) {
+            LOG.infof("User " + i + " logged in from %s", "localhost");
+        }
+
+        Assert.assertEquals(binaryLog.getTemplateCount(), BinaryLog.MAX_IDS);
+        BinaryLog.uninstall();
+
+        List<BinaryLogDecoder.Event> events = decode();
+
+        Assert.assertEquals(events.size(), count);
+        Assert.assertEquals(appender.count, 0);
+
+        for (int i = 0; i < count; ++i) {
+            assertEvent(events.get(i), Level.INFO, "User " + i + " logged in from localhost");
+        }
+    }
+
+    @Test
+    public void testUninstalledGoesToLog4J() throws Exception
+    {
+        BinaryLog.install(file);
+        BinaryLog.uninstall();
+        LOG.infof("Hello %s", "world");
+
+        Assert.assertEquals(appender.count, 1);
+        Assert.assertTrue(decode().isEmpty());
+    }
+
+    @Test
+    public void testTruncatedAndCorruptFiles() throws Exception
+    {
+        BinaryLog.install(file);
+        LOG.infof("Hello %s", "world");
+        LOG.infof("Hello %s", "again");
+        BinaryLog.uninstall();
+
+        byte[] bytes = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+
+        try {
+            Assert.assertEquals(in.read(bytes), bytes.length);
+        }
+        finally {
+            in.close();
+        }
+
+        // a final event cut off by a crash is just the end of the log
+        BinaryLogDecoder decoder = new BinaryLogDecoder(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 3)));
+
+        Assert.assertEquals(decoder.next().getMessage(), "Hello world");
+        Assert.assertNull(decoder.next());
+
+        try {
+            new BinaryLogDecoder(new ByteArrayInputStream("Not a log".getBytes("US-ASCII")));
+            Assert.fail("Expected IOException");
+        }
+        catch (IOException e) {
+            Assert.assertEquals(e.getMessage(), "Not a binary log");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestCallerLocator
+{
+    private StackTraceElement locateMyCaller(CallerLocator locator)
+    {
+        return locator.locate(TestCallerLocator.class.getName(), "locateMyCaller");
+    }
+
+    private void assertLocatesCaller(CallerLocator locator)
+    {
+        StackTraceElement element = locateMyCaller(locator);
+
+        Assert.assertNotNull(element);
+        Assert.assertEquals(element.getClassName(), TestCallerLocator.class.getName());
+        Assert.assertEquals(element.getMethodName(), "assertLocatesCaller");
+        Assert.assertEquals(element.getFileName(), "TestCallerLocator.java");
+    }
+
+    @Test
+    public void testStackTraceLocator()
+    {
+        assertLocatesCaller(new CallerLocator.StackTraceLocator());
+    }
+
+    @Test
+    public void testJavaLangAccessLocator()
+    {
+        CallerLocator locator = CallerLocator.JavaLangAccessLocator.create();
+
+        // only on JVMs that still have sun.misc.JavaLangAccess (Java 8 and earlier)
+        if (locator != null) {
+            assertLocatesCaller(locator);
+        }
+    }
+
+    @Test
+    public void testStackWalkerLocator()
+    {
+        CallerLocator locator = CallerLocator.StackWalkerLocator.create();
+
+        // only on Java 9 and later
+        if (locator != null) {
+            assertLocatesCaller(locator);
+            // the walk function is shared between calls
+            Assert.assertNull(locator.locate(TestCallerLocator.class.getName(), "noSuchMethod"));
+            assertLocatesCaller(locator);
+        }
+    }
+
+    @Test
+    public void testMissingMethod()
+    {
+        Assert.assertNull(CallerLocator.callerOf(TestCallerLocator.class.getName(), "noSuchMethod"));
+    }
+
+    @Test
+    public void testCanonicalLoggers()
+    {
+        Assert.assertSame(Logger.getLogger(TestCallerLocator.class), Logger.getLogger(TestCallerLocator.class.getName()));
+        Assert.assertSame(Logger.getLogger("some.logger"), Logger.getLogger("some.logger"));
+        Assert.assertNotSame(Logger.getLogger("some.logger"), Logger.getLogger("some.other.logger"));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.concurrent.BrokenBarrierException;
+
+public class TestCauseSummaries
+{
+    @Test
+    public void testSummaries()
+    {
+        Assert.assertEquals(
+            CauseSummaries.summarize("Hello", new BrokenBarrierException("Uh oh!")),
+            "Hello (Switch to DEBUG for full stack trace): java.util.concurrent.BrokenBarrierException: Uh oh!"
+        );
+        Assert.assertEquals(
+            CauseSummaries.summarize("Hello", new IOException("First line\nSecond line")),
+            "Hello (Switch to DEBUG for full stack trace): java.io.IOException: First line"
+        );
+        Assert.assertEquals(
+            CauseSummaries.summarize("Hello", new IOException()),
+            "Hello (Switch to DEBUG for full stack trace): java.io.IOException"
+        );
+        Assert.assertEquals(
+            CauseSummaries.summarize(null, new IOException("")),
+            "null (Switch to DEBUG for full stack trace): java.io.IOException: "
+        );
+    }
+
+    @Test
+    public void testRepeatsUseCache()
+    {
+        String first = CauseSummaries.summarize("Hello", new IOException("Connection refused"));
+        String second = CauseSummaries.summarize("Goodbye", new IOException("Connection refused"));
+
+        Assert.assertEquals(first, "Hello (Switch to DEBUG for full stack trace): java.io.IOException: Connection refused");
+        Assert.assertEquals(second, "Goodbye (Switch to DEBUG for full stack trace): java.io.IOException: Connection refused");
+    }
+
+    @Test
+    public void testCollisionsDontConfuseSummaries()
+    {
+        // far more distinct causes than cache entries
+        for (int i = 0; i < 2000; ++i) {
+            Exception cause = i % 2 == 0 ? new IOException("Failure " + i) : new IllegalStateException("Failure " + i);
+
+            Assert.assertEquals(
+                CauseSummaries.summarize("Hello", cause),
+                "Hello (Switch to DEBUG for full stack trace): " + cause.getClass().getName() + ": Failure " + i
+            );
+            Assert.assertEquals(
+                CauseSummaries.summarize("Hello", cause),
+                "Hello (Switch to DEBUG for full stack trace): " + cause.getClass().getName() + ": Failure " + i
+            );
+        }
+    }
+}
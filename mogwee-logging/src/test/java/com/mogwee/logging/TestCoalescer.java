@@ -0,0 +1,216 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TestCoalescer
+{
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private static class CapturingCoalescer extends Coalescer
+    {
+        private final List<String> summaries = new CopyOnWriteArrayList<String>();
+
+        CapturingCoalescer(long windowMillis)
+        {
+            super(windowMillis);
+        }
+
+        @Override
+        void summarize(Level level, String message)
+        {
+            summaries.add(level + " " + message);
+        }
+    }
+
+    @Test
+    public void testRepeatsCollapsed()
+    {
+        CapturingCoalescer coalescer = new CapturingCoalescer(HOUR);
+        Coalescer.Window window = coalescer.open(Level.WARN, "Connection to %s refused", null);
+
+        Assert.assertNotNull(window);
+        window.setMessage("Connection to db1 refused");
+
+        for (int i = 0; i < 5; ++i) {
+            Assert.assertNull(coalescer.open(Level.WARN, "Connection to %s refused", null));
+        }
+
+        // a different level, template or cause class isn't a repeat
+        Assert.assertNotNull(coalescer.open(Level.ERROR, "Connection to %s refused", null));
+        Assert.assertNotNull(coalescer.open(Level.WARN, "Connection to %s timed out", null));
+        Assert.assertNotNull(coalescer.open(Level.WARN, "Connection to %s refused", new IOException()));
+        Assert.assertNull(coalescer.open(Level.WARN, "Connection to %s refused", new IOException("different message")));
+
+        coalescer.flushExpired(System.currentTimeMillis());
+        Assert.assertTrue(coalescer.summaries.isEmpty());
+
+        coalescer.flushExpired(System.currentTimeMillis() + HOUR);
+        Assert.assertEquals(coalescer.summaries.size(), 2);
+
+        String summary = findSummary(coalescer, "WARN Connection to db1 refused ");
+
+        Assert.assertNotNull(summary);
+        Assert.assertTrue(summary.matches("WARN Connection to db1 refused \\[repeated 5 more times between .* and .*\\]"), summary);
+        // nothing reported the message for the one with a cause, so it falls back to the template
+        Assert.assertNotNull(findSummary(coalescer, "WARN Connection to %s refused [repeated 1 more times"));
+
+        // windows start over once flushed
+        Assert.assertNotNull(coalescer.open(Level.WARN, "Connection to %s refused", null));
+        Assert.assertNull(coalescer.open(Level.WARN, "Connection to %s refused", null));
+    }
+
+    @Test
+    public void testNoSummaryWithoutRepeats()
+    {
+        CapturingCoalescer coalescer = new CapturingCoalescer(HOUR);
+
+        coalescer.open(Level.INFO, "Hello", null).setMessage("Hello");
+        coalescer.flushExpired(System.currentTimeMillis() + HOUR);
+
+        Assert.assertTrue(coalescer.summaries.isEmpty());
+    }
+
+    @Test
+    public void testExpiredWindowClosedByNextMessage() throws Exception
+    {
+        CapturingCoalescer coalescer = new CapturingCoalescer(HOUR);
+
+        coalescer.open(Level.INFO, "Hello", null).setMessage("Hello");
+        coalescer.open(Level.INFO, "Hello", null);
+        Assert.assertTrue(coalescer.summaries.isEmpty());
+
+        CapturingCoalescer shortWindow = new CapturingCoalescer(20);
+
+        shortWindow.open(Level.INFO, "Hello", null).setMessage("Hello");
+        Assert.assertNull(shortWindow.open(Level.INFO, "Hello", null));
+
+        Thread.sleep(100);
+
+        // whichever of the timer and this message got there first, there's exactly one summary
+        Assert.assertNotNull(shortWindow.open(Level.INFO, "Hello", null));
+        Assert.assertEquals(shortWindow.summaries.size(), 1);
+        Assert.assertTrue(shortWindow.summaries.get(0).startsWith("INFO Hello [repeated 1 more times between "));
+    }
+
+    @Test
+    public void testConcurrentRepeatsCounted() throws Exception
+    {
+        final CapturingCoalescer coalescer = new CapturingCoalescer(HOUR);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+
+        coalescer.open(Level.WARN, "Hello", null).setMessage("Hello");
+
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        start.await();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int j = 0; j < 10000; ++j) {
+                        coalescer.open(Level.WARN, "Hello", null);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        start.countDown();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        coalescer.flushExpired(System.currentTimeMillis() + HOUR);
+        Assert.assertEquals(coalescer.summaries.size(), 1);
+        Assert.assertTrue(coalescer.summaries.get(0).startsWith("WARN Hello [repeated 80000 more times between "));
+    }
+
+    @Test
+    public void testFailedSummaryKeepsTimerRunning() throws Exception
+    {
+        Coalescer failing = new Coalescer(10)
+        {
+            @Override
+            void summarize(Level level, String message)
+            {
+                throw new IllegalStateException("Uh oh!");
+            }
+        };
+        CapturingCoalescer coalescer = new CapturingCoalescer(10);
+
+        failing.open(Level.WARN, "Hello", null);
+        failing.open(Level.WARN, "Hello", null);
+        Thread.sleep(50);
+        coalescer.open(Level.WARN, "Hello", null);
+        coalescer.open(Level.WARN, "Hello", null);
+
+        for (int i = 0; i < 500 && coalescer.summaries.isEmpty(); ++i) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(coalescer.summaries.size(), 1);
+    }
+
+    @Test
+    public void testUnusedCoalescerCollected() throws Exception
+    {
+        WeakReference<Coalescer> coalescer = new WeakReference<Coalescer>(new CapturingCoalescer(10));
+
+        for (int i = 0; i < 100 && coalescer.get() != null; ++i) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        Assert.assertNull(coalescer.get());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidWindow()
+    {
+        new CapturingCoalescer(0);
+    }
+
+    private String findSummary(CapturingCoalescer coalescer, String prefix)
+    {
+        for (String summary : coalescer.summaries) {
+            if (summary.startsWith(prefix)) {
+                return summary;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.util.Formattable;
+import java.util.Formatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestCompiledFormat
+{
+    // listed in META-INF/services, as the annotation processor would
+    public static class HandWrittenFormats extends GeneratedFormats
+    {
+        private static final AtomicInteger RENDERED = new AtomicInteger();
+
+        public HandWrittenFormats()
+        {
+            super("Generated %s in %d ms%n", "Never logged %s");
+        }
+
+        @Override
+        protected String render(int index, StringBuilder result, Object[] args)
+        {
+            RENDERED.incrementAndGet();
+
+            if (index != 0 || args.length < 2 || !isPlainString(args[0]) || !isPlainInteger(args[1])) {
+                return null;
+            }
+
+            result.append("Generated ").append(String.valueOf(args[0])).append(" in ");
+            appendInteger(result, args[1]);
+
+            return result.append(" ms").append(LINE_SEPARATOR).toString();
+        }
+    }
+
+    private static class FormattableArgument implements Formattable
+    {
+        @Override
+        public void formatTo(Formatter formatter, int flags, int width, int precision)
+        {
+            formatter.format("formatted");
+        }
+
+        @Override
+        public String toString()
+        {
+            return "toString";
+        }
+    }
+
+    private static class NullToString
+    {
+        @Override
+        public String toString()
+        {
+            return null;
+        }
+    }
+
+    private void assertSameAsStringFormat(String format, Object... args)
+    {
+        String expected;
+
+        try {
+            expected = String.format(format, args);
+        }
+        catch (RuntimeException e) {
+            try {
+                CompiledFormat.format(format, args);
+                Assert.fail(String.format("Expected %s for [%s]", e, format));
+            }
+            catch (RuntimeException actual) {
+                Assert.assertEquals(actual.getClass(), e.getClass());
+                Assert.assertEquals(actual.getMessage(), e.getMessage());
+            }
+
+            return;
+        }
+
+        // twice: once to compile and once from the cache
+        Assert.assertEquals(CompiledFormat.format(format, args), expected);
+        Assert.assertEquals(CompiledFormat.format(format, args), expected);
+    }
+
+    @Test
+    public void testSimpleConversions()
+    {
+        assertSameAsStringFormat("");
+        assertSameAsStringFormat("Hello");
+        assertSameAsStringFormat("Hello %s", "world");
+        assertSameAsStringFormat("%s", 1234);
+        assertSameAsStringFormat("%s%s", "a", "b");
+        assertSameAsStringFormat("took %d ms", 1234L);
+        assertSameAsStringFormat("%d %d %d %d", 1, (short) -2, (byte) 3, Long.MIN_VALUE);
+        assertSameAsStringFormat("100%% of %s%n", "tests");
+        assertSameAsStringFormat("%s and %d", null, null);
+        assertSameAsStringFormat("extra %s", "a", "b", "c");
+        assertSameAsStringFormat("%s", new NullToString());
+        assertSameAsStringFormat("%s", new FormattableArgument());
+    }
+
+    @Test
+    public void testUncompiledConversions()
+    {
+        assertSameAsStringFormat("%5s|%-5s|%.2s", "a", "b", "cdef");
+        assertSameAsStringFormat("%2$s %1$s", "a", "b");
+        assertSameAsStringFormat("%s %<s", "a");
+        assertSameAsStringFormat("%x %08.3f %b %c", 255, 3.14159, true, 'c');
+        assertSameAsStringFormat("%,d", 1234567);
+        assertSameAsStringFormat("%d", BigInteger.TEN);
+        assertSameAsStringFormat("%S", "upper");
+    }
+
+    @Test
+    public void testBogusFormats()
+    {
+        assertSameAsStringFormat("Foo %d", "bar");
+        assertSameAsStringFormat("Foo %d", 1.5);
+        assertSameAsStringFormat("Foo %s %s", "bar");
+        assertSameAsStringFormat("Foo %q", "bar");
+        assertSameAsStringFormat("Foo %", "bar");
+        assertSameAsStringFormat("Foo %s", (Object[]) null);
+    }
+
+    @Test
+    public void testLocalizedDigits()
+    {
+        Locale original = Locale.getDefault();
+
+        try {
+            Locale.setDefault(new Locale("ar", "SA"));
+            assertSameAsStringFormat("took %d ms", 1234L);
+            Locale.setDefault(new Locale("th", "TH", "TH"));
+            assertSameAsStringFormat("took %d ms", 1234L);
+        }
+        finally {
+            Locale.setDefault(original);
+        }
+
+        assertSameAsStringFormat("took %d ms", 1234L);
+    }
+
+    @Test
+    public void testLocalizedFormatDigits() throws Exception
+    {
+        Class<?> categoryClass;
+
+        try {
+            categoryClass = Class.forName("java.util.Locale$Category");
+        }
+        catch (ClassNotFoundException e) {
+            throw new SkipException("No locale categories before Java 7");
+        }
+
+        Object format = categoryClass.getField("FORMAT").get(null);
+        Method getDefault = Locale.class.getMethod("getDefault", categoryClass);
+        Method setDefault = Locale.class.getMethod("setDefault", categoryClass, Locale.class);
+        Locale original = (Locale) getDefault.invoke(null, format);
+
+        assertSameAsStringFormat("took %d ms", 1234L);
+
+        try {
+            // only the locale String.format() uses
+            setDefault.invoke(null, format, new Locale("th", "TH", "TH"));
+            assertSameAsStringFormat("took %d ms", 1234L);
+        }
+        finally {
+            setDefault.invoke(null, format, original);
+        }
+
+        assertSameAsStringFormat("took %d ms", 1234L);
+    }
+
+    @Test
+    public void testGeneratedFormats()
+    {
+        int rendered = HandWrittenFormats.RENDERED.get();
+
+        assertSameAsStringFormat("Generated %s in %d ms%n", "request", 12);
+        assertSameAsStringFormat("Generated %s in %d ms%n", new FormattableArgument(), 12L);
+        assertSameAsStringFormat("Generated %s in %d ms%n", "request", "bogus");
+        assertSameAsStringFormat("Generated %s in %d ms%n", "request");
+        // formats that String.format() rejects are only rendered once
+        Assert.assertEquals(HandWrittenFormats.RENDERED.get() - rendered, 6);
+    }
+
+    @Test
+    public void testUnusedGeneratedFormatsNotCached() throws Exception
+    {
+        Field field = CompiledFormat.class.getDeclaredField("CACHE");
+
+        field.setAccessible(true);
+
+        Map<?, ?> cache = (Map<?, ?>) field.get(null);
+        int rendered = HandWrittenFormats.RENDERED.get();
+
+        CompiledFormat.format("Generated %s in %d ms%n", "request", 12);
+
+        // renderers are generated for calls that only look like logging calls, so they mustn't crowd out used formats
+        Assert.assertEquals(HandWrittenFormats.RENDERED.get() - rendered, 1);
+        Assert.assertFalse(cache.containsKey("Never logged %s"));
+    }
+}
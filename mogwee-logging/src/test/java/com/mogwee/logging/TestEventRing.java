@@ -0,0 +1,280 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TestEventRing
+{
+    private static final Logger LOG = Logger.getLogger();
+    private static final String CONSUMER = "mogwee-logging-event-ring";
+
+    private RecordingAppender appender;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup()
+    {
+        appender = RecordingAppender.attach(TestEventRing.class.getName(), Level.ALL);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        appender.gate.countDown();
+        EventRing.uninstall();
+        LogContext.clear();
+        appender.detach();
+    }
+
+    @Test
+    public void testMessagesLoggedOnConsumerThread() throws Exception
+    {
+        EventRing.install(16, AsyncDispatcher.OverflowPolicy.BLOCK);
+
+        final int threadCount = 4;
+        final int messagesPerThread = 1000;
+        List<Thread> threads = new ArrayList<Thread>();
+        long start = System.currentTimeMillis();
+
+        for (int i = 0; i < threadCount; ++i) {
+            Thread thread = new Thread("producer-" + i)
+            {
+                @Override
+                public void run()
+                {
+                    for (int j = 0; j < messagesPerThread; ++j) {
+                        LOG.infof("message %d", j);
+                    }
+                }
+            };
+
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        EventRing.uninstall();
+
+        Map<String, Integer> nextExpected = new HashMap<String, Integer>();
+
+        for (LoggingEvent event : appender.events) {
+            Integer expected = nextExpected.get(event.getThreadName());
+
+            if (expected == null) {
+                expected = 0;
+            }
+
+            Assert.assertEquals(event.getRenderedMessage(), "message " + expected);
+            Assert.assertEquals(event.getLevel(), Level.INFO);
+            Assert.assertTrue(event.timeStamp >= start);
+            nextExpected.put(event.getThreadName(), expected + 1);
+        }
+
+        Assert.assertEquals(nextExpected.size(), threadCount);
+
+        for (Integer count : nextExpected.values()) {
+            Assert.assertEquals(count.intValue(), messagesPerThread);
+        }
+
+        for (String appendingThread : appender.appendingThreads) {
+            Assert.assertEquals(appendingThread, CONSUMER);
+        }
+    }
+
+    @Test
+    public void testArguments()
+    {
+        String format = "%s %b %c %d %d %d %d %.2f %.3f %s %s";
+        Object[] args = {null, true, 'x', (byte) -1, (short) 1234, Integer.MIN_VALUE, Long.MAX_VALUE, 1.5f, Math.PI, "", "été"};
+
+        EventRing.install(16, AsyncDispatcher.OverflowPolicy.BLOCK);
+        LOG.warnf(format, args);
+        LOG.infof("no arguments %s", (Object[]) null);
+        EventRing.uninstall();
+
+        Assert.assertEquals(appender.appendingThreads.poll(), CONSUMER);
+        Assert.assertEquals(appender.events.poll().getRenderedMessage(), String.format(format, args));
+        Assert.assertEquals(appender.appendingThreads.poll(), CONSUMER);
+        Assert.assertEquals(appender.events.poll().getRenderedMessage(), String.format("no arguments %s", (Object[]) null));
+    }
+
+    @Test
+    public void testBogusFormat()
+    {
+        EventRing.install(16, AsyncDispatcher.OverflowPolicy.BLOCK);
+        LOG.debugf("%d", "not a number");
+        EventRing.uninstall();
+
+        LoggingEvent event = appender.events.poll();
+
+        Assert.assertEquals(appender.appendingThreads.poll(), CONSUMER);
+        Assert.assertEquals(event.getLevel(), Level.WARN);
+        Assert.assertTrue(event.getRenderedMessage().startsWith("Bogus format string: DEBUG %d [not a number]"), event.getRenderedMessage());
+    }
+
+    @Test
+    public void testUnqueuedMessagesLoggedDirectly()
+    {
+        StringBuilder longString = new StringBuilder();
+
+        while (longString.length() < 256) {
+            longString.append("long ");
+        }
+
+        EventRing.install(16, AsyncDispatcher.OverflowPolicy.BLOCK);
+        LOG.infof(new IllegalStateException("Uh oh!"), "cause %d", 1);
+        LOG.infof("object %s", Level.INFO);
+        LOG.infof("string %s", longString);
+        LogContext.put("requestId", 1234);
+        LOG.infof("context %d", 1);
+        LogContext.clear();
+        LOG.infof("queued %d", 1);
+        EventRing.uninstall();
+
+        Assert.assertEquals(appender.events.size(), 5);
+
+        for (int i = 0; i < 4; ++i) {
+            Assert.assertEquals(appender.appendingThreads.poll(), Thread.currentThread().getName());
+        }
+
+        Assert.assertEquals(appender.appendingThreads.poll(), CONSUMER);
+        Assert.assertEquals(appender.events.poll().getThrowableStrRep()[0], "java.lang.IllegalStateException: Uh oh!");
+    }
+
+    @Test
+    public void testDrop() throws Exception
+    {
+        EventRing ring = EventRing.install(4, AsyncDispatcher.OverflowPolicy.DROP);
+
+        appender.gate = new CountDownLatch(1);
+        LOG.warnf("stuck %d", 0);
+        Assert.assertTrue(appender.entered.await(10, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 10; ++i) {
+            LOG.warnf("queued %d", i);
+        }
+
+        Assert.assertEquals(ring.getQueuedCount(), 4);
+        Assert.assertEquals(ring.getDroppedCount(), 6);
+        Assert.assertEquals(ring.getDroppedCount(Level.WARN), 6);
+        Assert.assertEquals(ring.getDroppedCount(Level.ERROR), 0);
+
+        appender.gate.countDown();
+        EventRing.uninstall();
+        Assert.assertEquals(appender.events.size(), 5);
+    }
+
+    @Test
+    public void testSteadyStateAllocatesNothing() throws Exception
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        if (!(threads instanceof com.sun.management.ThreadMXBean) || !((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            throw new SkipException("Per-thread allocation isn't measurable on this JVM");
+        }
+
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        long threadId = Thread.currentThread().getId();
+        // boxed and built once: the caller's varargs array isn't the logging path's to avoid
+        Object[] args = {42, 1234567890123L, 2.5, true, 'x', "ring"};
+        int count = 10000;
+        EventRing ring = EventRing.install(2 * count, AsyncDispatcher.OverflowPolicy.BLOCK);
+
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        // assigns the IDs and loads whatever classes the path needs
+        for (int i = 0; i < count; ++i) {
+            LOG.infof("int %d long %d double %s boolean %b char %c string %s", args);
+        }
+
+        long before = allocations.getThreadAllocatedBytes(threadId);
+
+        for (int i = 0; i < count; ++i) {
+            LOG.infof("int %d long %d double %s boolean %b char %c string %s", args);
+        }
+
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        Assert.assertEquals(ring.getDroppedCount(), 0);
+        EventRing.uninstall();
+
+        // getThreadAllocatedBytes() itself may allocate an array or two
+        Assert.assertTrue(allocated < 1024, String.format("%s bytes allocated logging %s messages", allocated, count));
+        Assert.assertEquals(appender.events.size(), 2 * count);
+        Assert.assertEquals(appender.events.peek().getRenderedMessage(), "int 42 long 1234567890123 double 2.5 boolean true char x string ring");
+
+        for (String appendingThread : appender.appendingThreads) {
+            Assert.assertEquals(appendingThread, CONSUMER);
+        }
+    }
+
+    @Test
+    public void testRenamedThread()
+    {
+        Thread thread = Thread.currentThread();
+        String name = thread.getName();
+
+        EventRing.install(16, AsyncDispatcher.OverflowPolicy.BLOCK);
+        LOG.infof("before %d", 1);
+
+        try {
+            thread.setName("renamed");
+            LOG.infof("after %d", 2);
+        }
+        finally {
+            thread.setName(name);
+        }
+
+        LOG.infof("restored %d", 3);
+        EventRing.uninstall();
+
+        Assert.assertEquals(appender.events.poll().getThreadName(), name);
+        Assert.assertEquals(appender.events.poll().getThreadName(), "renamed");
+        Assert.assertEquals(appender.events.poll().getThreadName(), name);
+    }
+
+    @Test
+    public void testUninstallRestoresDirectLogging()
+    {
+        EventRing.install(16, AsyncDispatcher.OverflowPolicy.BLOCK);
+        EventRing.uninstall();
+        Assert.assertNull(EventRing.installed());
+
+        LOG.infof("direct %d", 1);
+
+        Assert.assertEquals(appender.appendingThreads.poll(), Thread.currentThread().getName());
+        Assert.assertEquals(appender.events.poll().getThreadName(), Thread.currentThread().getName());
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.channels.FileChannel;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestGroupCommitAppender
+{
+    private static final String LOGGER_NAME = TestGroupCommitAppender.class.getName() + ".batched";
+    private static final Logger LOG = Logger.getLogger(LOGGER_NAME);
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private File directory;
+    private GroupCommitAppender appender;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup() throws IOException
+    {
+        directory = File.createTempFile("batched", "");
+        Assert.assertTrue(directory.delete());
+        Assert.assertTrue(directory.mkdir());
+
+        org.apache.log4j.Logger log4j = org.apache.log4j.Logger.getLogger(LOGGER_NAME);
+
+        log4j.setAdditivity(false);
+        log4j.setLevel(Level.INFO);
+        Logger.refreshLevels();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        org.apache.log4j.Logger.getLogger(LOGGER_NAME).removeAllAppenders();
+
+        if (appender != null) {
+            appender.close();
+        }
+
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+
+        directory.delete();
+    }
+
+    private File install(int maxBatchSize, long maxLatencyMillis)
+    {
+        File file = new File(directory, "sub/test.log");
+
+        appender = new GroupCommitAppender();
+        appender.setName("batched");
+        appender.setLayout(new PatternLayout("%p %m%n"));
+        appender.setFile(file.getPath());
+        appender.setMaxBatchSize(maxBatchSize);
+        appender.setMaxLatencyMillis(maxLatencyMillis);
+        appender.activateOptions();
+        org.apache.log4j.Logger.getLogger(LOGGER_NAME).addAppender(appender);
+
+        return file;
+    }
+
+    private String read(File file) throws IOException
+    {
+        byte[] bytes = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+
+        try {
+            Assert.assertEquals(in.read(bytes), bytes.length);
+        }
+        finally {
+            in.close();
+        }
+
+        return new String(bytes, "UTF-8");
+    }
+
+    @Test
+    public void testDurable() throws Exception
+    {
+        File file = install(64 * 1024, 100);
+        Logger durable = LOG.durable();
+
+        for (int i = 0; i < 100; ++i) {
+            LOG.infof("Event %d", i);
+        }
+
+        durable.errorf(new BrokenBarrierException("Uh oh!"), "Failed %s", "transfer");
+
+        // everything logged before the durable message was committed with it
+        String contents = read(file);
+
+        Assert.assertTrue(contents.startsWith("INFO Event 0" + LINE_SEPARATOR), contents);
+        Assert.assertTrue(contents.contains("INFO Event 99" + LINE_SEPARATOR + "ERROR Failed transfer" + LINE_SEPARATOR + "java.util.concurrent.BrokenBarrierException: Uh oh!"), contents);
+        Assert.assertTrue(appender.getCommittedBatches() <= 2, String.valueOf(appender.getCommittedBatches()));
+
+        durable.debug("Not logged");
+        appender.close();
+
+        Assert.assertEquals(read(file), contents);
+    }
+
+    @Test
+    public void testDurableCommitFailure() throws Exception
+    {
+        install(64 * 1024, 1);
+
+        Logger durable = LOG.durable();
+
+        durable.info("Committed");
+
+        // closing the file out from under the appender makes committing the next batch fail
+        Field field = GroupCommitAppender.class.getDeclaredField("channel");
+
+        field.setAccessible(true);
+        ((FileChannel) field.get(appender)).close();
+
+        try {
+            durable.info("Not committed");
+            Assert.fail();
+        }
+        catch (DurableLogException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException, String.valueOf(e.getCause()));
+        }
+
+        // non-durable messages don't wait for the commit, so don't hear about the failure
+        LOG.info("Not committed either");
+    }
+
+    @Test
+    public void testDurableWhileInterrupted() throws Exception
+    {
+        File file = install(64 * 1024, 50);
+
+        Thread.currentThread().interrupt();
+
+        try {
+            LOG.durable().info("Interrupted");
+
+            // still waited for the commit, and left the interrupt for the caller
+            Assert.assertTrue(Thread.currentThread().isInterrupted());
+            Assert.assertEquals(read(file), "INFO Interrupted" + LINE_SEPARATOR);
+        }
+        finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void testMaxLatency() throws Exception
+    {
+        File file = install(64 * 1024, 10);
+
+        LOG.info("Hello");
+        Thread.sleep(200);
+
+        Assert.assertEquals(read(file), "INFO Hello" + LINE_SEPARATOR);
+        Assert.assertEquals(appender.getCommittedBatches(), 1);
+    }
+
+    @Test
+    public void testConcurrentBatches() throws Exception
+    {
+        File file = install(1000, 5);
+        Thread[] threads = new Thread[8];
+
+        for (int i = 0; i < threads.length; ++i) {
+            final int thread = i;
+
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for (int j = 0; j < 1000; ++j) {
+                        LOG.infof("Event %d-%d", thread, j);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        appender.close();
+
+        String[] lines = read(file).split(LINE_SEPARATOR);
+        Set<String> unique = new HashSet<String>();
+
+        for (String line : lines) {
+            Assert.assertTrue(line.startsWith("INFO Event "), line);
+            unique.add(line);
+        }
+
+        Assert.assertEquals(lines.length, 8000);
+        Assert.assertEquals(unique.size(), 8000);
+        Assert.assertTrue(appender.getCommittedBatches() < 8000);
+
+        LOG.info("After close");
+
+        Assert.assertEquals(read(file).split(LINE_SEPARATOR).length, 8000);
+    }
+
+    @Test
+    public void testLayoutNotShared() throws Exception
+    {
+        final AtomicInteger formatting = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+
+        install(64 * 1024, 1);
+        // PatternLayout reuses one buffer, so two threads formatting at once would garble each other's events
+        appender.setLayout(new PatternLayout("%m%n")
+        {
+            @Override
+            public String format(LoggingEvent event)
+            {
+                if (formatting.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+
+                try {
+                    Thread.sleep(1);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                formatting.decrementAndGet();
+
+                return super.format(event);
+            }
+        });
+
+        // Log4J serializes appending per category, so it takes several categories sharing the appender to overlap
+        Thread[] threads = new Thread[4];
+
+        for (int i = 0; i < threads.length; ++i) {
+            final String name = LOGGER_NAME + "." + i;
+            org.apache.log4j.Logger log4j = org.apache.log4j.Logger.getLogger(name);
+
+            log4j.setAdditivity(false);
+            log4j.addAppender(appender);
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    Logger log = Logger.getLogger(name);
+
+                    for (int j = 0; j < 20; ++j) {
+                        log.info("Event");
+                    }
+                }
+            };
+        }
+
+        try {
+            for (Thread thread : threads) {
+                thread.start();
+            }
+
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        finally {
+            for (int i = 0; i < threads.length; ++i) {
+                org.apache.log4j.Logger.getLogger(LOGGER_NAME + "." + i).removeAllAppenders();
+            }
+        }
+
+        Assert.assertEquals(overlaps.get(), 0);
+    }
+}
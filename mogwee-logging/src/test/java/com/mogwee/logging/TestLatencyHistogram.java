@@ -0,0 +1,163 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.varia.NullAppender;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestLatencyHistogram
+{
+    @Test
+    public void testBuckets()
+    {
+        for (long value = 0; value < 64; ++value) {
+            Assert.assertEquals(LatencyHistogram.index(value), value);
+            Assert.assertEquals(LatencyHistogram.highestValue((int) value), value);
+        }
+
+        long previousIndex = LatencyHistogram.index(63);
+
+        for (long value = 64; value < 1L << 40; value = value * 3 / 2) {
+            int index = LatencyHistogram.index(value);
+            long highest = LatencyHistogram.highestValue(index);
+
+            Assert.assertTrue(index >= previousIndex);
+            Assert.assertTrue(highest >= value);
+            // within 1/32 of the value
+            Assert.assertTrue(highest - value <= value / 32, value + " -> " + highest);
+            Assert.assertEquals(LatencyHistogram.index(highest), index);
+            Assert.assertEquals(LatencyHistogram.index(highest + 1), index + 1);
+            previousIndex = index;
+        }
+    }
+
+    @Test
+    public void testPercentiles()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        Assert.assertEquals(histogram.snapshot().getCount(), 0);
+        Assert.assertEquals(histogram.snapshot().getPercentile(99), 0);
+
+        for (int i = 1; i <= 1000; ++i) {
+            histogram.record(i * 1000L);
+        }
+
+        histogram.record(-5);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        Assert.assertEquals(snapshot.getCount(), 1001);
+        Assert.assertEquals(snapshot.getMax(), 1000000);
+        Assert.assertEquals(snapshot.getPercentile(0), 0);
+        assertWithin(snapshot.getPercentile(50), 500000);
+        assertWithin(snapshot.getPercentile(99), 990000);
+        Assert.assertEquals(snapshot.getPercentile(100), 1000000);
+        Assert.assertTrue(snapshot.toString().startsWith("count=1001 p50="), snapshot.toString());
+    }
+
+    @Test
+    public void testSince()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(1000000);
+
+        LatencyHistogram.Snapshot first = histogram.snapshot();
+
+        histogram.record(100);
+        histogram.record(200);
+
+        LatencyHistogram.Snapshot interval = histogram.snapshot().since(first);
+
+        Assert.assertEquals(interval.getCount(), 2);
+        assertWithin(interval.getMax(), 200);
+        assertWithin(interval.getPercentile(50), 100);
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+
+        for (int i = 0; i < threads.length; ++i) {
+            final int offset = i;
+
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for (int j = 0; j < 100000; ++j) {
+                        histogram.record(j % 1000 + offset);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        Assert.assertEquals(snapshot.getCount(), 400000);
+        Assert.assertEquals(snapshot.getMax(), 1002);
+    }
+
+    // latencies are recorded for tests by the surefire configuration
+    @Test
+    public void testLoggingLatency()
+    {
+        String name = TestLatencyHistogram.class.getName() + ".latency";
+        org.apache.log4j.Logger log4j = org.apache.log4j.Logger.getLogger(name);
+
+        log4j.setAdditivity(false);
+        log4j.addAppender(new NullAppender());
+        log4j.setLevel(Level.INFO);
+        Logger.refreshLevels();
+
+        Logger logger = Logger.getLogger(name);
+        LatencyHistogram.Snapshot info = LoggingLatency.snapshot(Level.INFO);
+        LatencyHistogram.Snapshot debug = LoggingLatency.snapshot(Level.DEBUG);
+        LatencyHistogram.Snapshot error = LoggingLatency.snapshot(Level.ERROR);
+
+        Assert.assertTrue(LoggingLatency.isEnabled());
+
+        logger.info("Hello");
+        logger.infof("Hello %s", "world");
+        logger.infof("Hello %d", "bogus");
+        logger.debugf("Hello %s", "world");
+        logger.debug("Hello");
+        logger.errorDebug(new IllegalStateException(), "Uh oh");
+        logger.errorDebugf(new IllegalStateException(), "Uh oh %s", "again");
+
+        Assert.assertEquals(LoggingLatency.snapshot(Level.INFO).since(info).getCount(), 3);
+        Assert.assertEquals(LoggingLatency.snapshot(Level.DEBUG).since(debug).getCount(), 0);
+        Assert.assertEquals(LoggingLatency.snapshot(Level.ERROR).since(error).getCount(), 2);
+        Assert.assertTrue(LoggingLatency.snapshot(Level.ERROR).since(error).getMax() > 0);
+    }
+
+    private static void assertWithin(long actual, long expected)
+    {
+        Assert.assertTrue(actual >= expected && actual - expected <= expected / 32, actual + " vs. " + expected);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class TestLogContext
+{
+    private static final String LOGGER_NAME = TestLogContext.class.getName() + ".context";
+    private static final Logger LOG = Logger.getLogger(LOGGER_NAME);
+
+    private RecordingAppender appender;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup()
+    {
+        appender = RecordingAppender.attach(LOGGER_NAME, Level.INFO);
+        LogContext.clear();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        AsyncDispatcher.uninstall();
+        appender.detach();
+        LogContext.clear();
+    }
+
+    // the MDC's request ID when each event was appended
+    private List<String> requestIds()
+    {
+        List<String> requestIds = new ArrayList<String>();
+
+        for (LoggingEvent event : appender.events) {
+            requestIds.add(String.valueOf(event.getMDC("requestId")));
+        }
+
+        return requestIds;
+    }
+
+    @Test
+    public void testPersistence()
+    {
+        LogContext empty = LogContext.EMPTY;
+        LogContext one = empty.with("requestId", "1234");
+        LogContext two = one.with("tenant", "example");
+        LogContext changed = two.with("requestId", "5678");
+        LogContext removed = changed.without("tenant");
+
+        Assert.assertTrue(empty.isEmpty());
+        Assert.assertEquals(empty.toString(), "{}");
+        Assert.assertEquals(one.toString(), "{requestId=1234}");
+        Assert.assertEquals(two.toString(), "{requestId=1234, tenant=example}");
+        Assert.assertEquals(changed.toString(), "{requestId=5678, tenant=example}");
+        Assert.assertEquals(removed.toString(), "{requestId=5678}");
+        Assert.assertEquals(changed.size(), 2);
+        Assert.assertEquals(changed.get("requestId"), "5678");
+        Assert.assertNull(changed.get("user"));
+
+        // unchanged contexts are reused
+        Assert.assertSame(two.with("tenant", "example"), two);
+        Assert.assertSame(two.without("user"), two);
+        Assert.assertSame(two.with("user", null), two);
+        Assert.assertSame(two.without("tenant"), one);
+
+        LogContext context = LogContext.EMPTY;
+
+        for (int i = 0; i < 1000; ++i) {
+            context = context.with("requestId", i).with("tenant", "example");
+        }
+
+        Assert.assertEquals(context.size(), 2);
+        Assert.assertEquals(context.toString(), "{requestId=999, tenant=example}");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNullKey()
+    {
+        LogContext.EMPTY.with(null, "value");
+    }
+
+    @Test
+    public void testCurrent()
+    {
+        LogContext.put("requestId", "1234");
+        LOG.info("first");
+
+        LogContext captured = LogContext.current();
+
+        LogContext.put("requestId", "5678");
+        LOG.infof("second %s", "message");
+        LogContext.remove("requestId");
+        LOG.info("third");
+
+        LogContext previous = captured.attach();
+
+        LOG.info("fourth");
+        previous.attach();
+
+        Assert.assertEquals(requestIds().toString(), "[1234, 5678, null, 1234]");
+        Assert.assertEquals(captured.get("requestId"), "1234");
+        Assert.assertTrue(LogContext.current().isEmpty());
+    }
+
+    @Test
+    public void testPropagation() throws Exception
+    {
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        try {
+            Executor executor = LogContext.wrap(executorService);
+
+            LogContext.put("requestId", "1234");
+            executor.execute(
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        LOG.info("wrapped executor");
+                    }
+                }
+            );
+
+            LogContext.put("requestId", "5678");
+
+            String requestId = executorService.submit(
+                LogContext.wrap(
+                    new Callable<String>()
+                    {
+                        @Override
+                        public String call()
+                        {
+                            LOG.info("wrapped callable");
+
+                            return String.valueOf(LogContext.current().get("requestId"));
+                        }
+                    }
+                )
+            ).get();
+
+            Assert.assertEquals(requestId, "5678");
+
+            // the executor's thread is left as it was
+            String leftOver = executorService.submit(
+                new Callable<String>()
+                {
+                    @Override
+                    public String call()
+                    {
+                        return LogContext.current().toString();
+                    }
+                }
+            ).get();
+
+            Assert.assertEquals(leftOver, "{}");
+        }
+        finally {
+            executorService.shutdown();
+            Assert.assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        Assert.assertEquals(requestIds().toString(), "[1234, 5678]");
+    }
+
+    @Test
+    public void testAsyncDispatch()
+    {
+        AsyncDispatcher.install(16, AsyncDispatcher.OverflowPolicy.BLOCK);
+
+        for (int i = 0; i < 100; ++i) {
+            LogContext.put("requestId", String.valueOf(i));
+            LOG.info("dispatched");
+        }
+
+        AsyncDispatcher.uninstall();
+
+        Assert.assertEquals(requestIds().size(), 100);
+
+        for (int i = 0; i < 100; ++i) {
+            Assert.assertEquals(requestIds().get(i), String.valueOf(i));
+        }
+    }
+}
@@ -24,10 +24,14 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Queue;
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TestLogger
 {
@@ -330,10 +334,59 @@ public class TestLogger
         assertEvent(
             true,
             Level.WARN,
-            "Logger com.mogwee.logging.TestLogger wasn't allocated in static constructor -- did you forget to make the field static? (TestLogger.java:329)"
+            "Logger com.mogwee.logging.TestLogger wasn't allocated in static constructor -- did you forget to make the field static? (TestLogger.java:333)"
         );
     }
 
+    @Test
+    public void testLevelChangesNoticed() throws Exception
+    {
+        CapturingAppender.setLogLevel(Level.INFO);
+        LOG.debug("Hello");
+        assertEvent(false, Level.DEBUG, null);
+
+        // levels set directly through the Log4J API take effect immediately, without an explicit refresh
+        CapturingAppender.LOG4J_LOGGER.setLevel(Level.DEBUG);
+        LOG.debug("Hello");
+        assertEvent(true, Level.DEBUG, "Hello");
+
+        org.apache.log4j.Logger parent = org.apache.log4j.Logger.getLogger("com.mogwee.logging");
+        Level parentLevel = parent.getLevel();
+
+        try {
+            CapturingAppender.LOG4J_LOGGER.setLevel(null);
+            parent.setLevel(Level.INFO);
+            LOG.debug("Hello");
+            assertEvent(false, Level.DEBUG, null);
+            parent.setLevel(Level.DEBUG);
+            LOG.debug("Hello");
+            assertEvent(true, Level.DEBUG, "Hello");
+        }
+        finally {
+            parent.setLevel(parentLevel);
+            CapturingAppender.LOG4J_LOGGER.setLevel(Level.ALL);
+        }
+
+        // as does a repository-wide threshold
+        CapturingAppender.LOG4J_LOGGER.getLoggerRepository().setThreshold(Level.WARN);
+
+        try {
+            LOG.info("Hello");
+            assertEvent(false, Level.INFO, null);
+            LOG.warn("Hello");
+            assertEvent(true, Level.WARN, "Hello");
+        }
+        finally {
+            CapturingAppender.LOG4J_LOGGER.getLoggerRepository().setThreshold(Level.ALL);
+        }
+
+        // adding an appender (as every configurator does) still works
+        CapturingAppender.LOG4J_LOGGER.removeAppender(CapturingAppender.INSTANCE);
+        CapturingAppender.LOG4J_LOGGER.addAppender(CapturingAppender.INSTANCE);
+        LOG.debug("Hello");
+        assertEvent(true, Level.DEBUG, "Hello");
+    }
+
     @Test
     public void testDebug() throws Exception
     {
@@ -418,6 +471,214 @@ public class TestLogger
         testMessageDebugf(Level.ERROR);
     }
 
+    @Test
+    public void testFixedArityf() throws Exception
+    {
+        Exception e = new BrokenBarrierException("Uh oh!");
+
+        CapturingAppender.setLogLevel(Level.DEBUG);
+
+        LOG.debugf("%s %s %s %s", "a", 2, 3L, null);
+        assertEvent(true, Level.DEBUG, "a 2 3 null");
+        LOG.infof("%s|%s|%s|%s", true, 'c', (byte) 1, (short) 2);
+        assertEvent(true, Level.INFO, "true|c|1|2");
+        LOG.warnf("%d|%d|%s|%s", 3, 4L, 1.5f, 2.5d);
+        assertEvent(true, Level.WARN, "3|4|1.5|2.5");
+        LOG.errorf(e, "%s %s %s", "a", "b", "c");
+        assertEvent(true, Level.ERROR, "java.util.concurrent.BrokenBarrierException: Uh oh!", "a b c");
+
+        // each primitive renders exactly as its boxed form would
+        LOG.infof("%x", (byte) -1);
+        assertEvent(true, Level.INFO, "ff");
+        LOG.infof("%x", (short) -1);
+        assertEvent(true, Level.INFO, "ffff");
+        LOG.infof("%s", 0.1f);
+        assertEvent(true, Level.INFO, "0.1");
+        LOG.infof("%s", 'x');
+        assertEvent(true, Level.INFO, "x");
+
+        LOG.warnDebugf(e, "%s", 1234);
+        assertEvent(true, Level.WARN, "java.util.concurrent.BrokenBarrierException: Uh oh!", "1234");
+
+        LOG.infof("Foo %d", new ExplodingArgument());
+        assertEvent(
+            true,
+            Level.WARN,
+            "Bogus format string: INFO Foo %d [toString():java.lang.IllegalStateException: I was doomed to fail...] (java.util.IllegalFormatConversionException: d != com.mogwee.logging.TestLogger$ExplodingArgument)"
+        );
+
+        CapturingAppender.setLogLevel(Level.INFO);
+        LOG.debugf("%s", 1234);
+        assertEvent(false, Level.DEBUG, null);
+        LOG.debugf("%s %s", new ExplodingArgument(), new ExplodingArgument());
+        assertEvent(false, Level.DEBUG, null);
+        LOG.errorDebugf(e, "%s", 1234L);
+        assertEvent(true, Level.ERROR, "1234 (Switch to DEBUG for full stack trace): java.util.concurrent.BrokenBarrierException: Uh oh!");
+    }
+
+    @Test
+    public void testLazyArguments() throws Exception
+    {
+        final AtomicInteger evaluations = new AtomicInteger();
+        LazyArgument counted = new LazyArgument()
+        {
+            @Override
+            protected Object evaluate()
+            {
+                evaluations.incrementAndGet();
+                return 1234;
+            }
+        };
+
+        CapturingAppender.setLogLevel(Level.INFO);
+        LOG.debugf("Hello %d", counted);
+        assertEvent(false, Level.DEBUG, null);
+        Assert.assertEquals(evaluations.get(), 0);
+
+        LOG.infof("Hello %d and %s", counted, LazyArgument.lazy(
+            new Callable<String>()
+            {
+                @Override
+                public String call()
+                {
+                    return "world";
+                }
+            }
+        ));
+        assertEvent(true, Level.INFO, "Hello 1234 and world");
+        Assert.assertEquals(evaluations.get(), 1);
+
+        LOG.warnDebugf(new BrokenBarrierException("Uh oh!"), "Hello %s", counted);
+        assertEvent(true, Level.WARN, "Hello 1234 (Switch to DEBUG for full stack trace): java.util.concurrent.BrokenBarrierException: Uh oh!");
+        Assert.assertEquals(evaluations.get(), 1);
+
+        LOG.infof("Hello %s", LazyArgument.lazy(
+            new Callable<String>()
+            {
+                @Override
+                public String call() throws Exception
+                {
+                    evaluations.incrementAndGet();
+                    throw new IOException("I was doomed to fail...");
+                }
+            }
+        ));
+        assertEvent(
+            true,
+            Level.WARN,
+            "Bogus format string: INFO Hello %s [toString():java.lang.RuntimeException: java.io.IOException: I was doomed to fail...] (java.lang.RuntimeException: java.io.IOException: I was doomed to fail...)"
+        );
+        Assert.assertEquals(evaluations.get(), 2);
+    }
+
+    @Test
+    public void testRateLimited() throws Exception
+    {
+        // one permit a minute: nothing refills while the test runs
+        Logger limited = LOG.rateLimited(1.0 / 60, 2);
+        Exception e = new BrokenBarrierException("Uh oh!");
+
+        for (int i = 0; i < 5; ++i) {
+            limited.warnf("Request %d failed", i);
+        }
+
+        assertEvent(true, Level.WARN, "Request 0 failed");
+        assertEvent(true, Level.WARN, "Request 1 failed");
+        assertEvent(false, Level.WARN, null);
+
+        // a different format string has its own limit, and the underlying logger isn't limited at all
+        limited.infoDebug(e, "Hello");
+        assertEvent(true, Level.INFO, "java.util.concurrent.BrokenBarrierException: Uh oh!", "Hello");
+        LOG.warnf("Request %d failed", 5);
+        assertEvent(true, Level.WARN, "Request 5 failed");
+
+        // disabled messages don't count against the limit
+        CapturingAppender.setLogLevel(Level.INFO);
+        Logger sampledAndLimited = limited.sampled(1.0);
+
+        sampledAndLimited.debugf("Hello %s", "world");
+        assertEvent(false, Level.DEBUG, null);
+        sampledAndLimited.infof("Hello %s", "world");
+        sampledAndLimited.infof("Hello %s", "world");
+        sampledAndLimited.infof("Hello %s", "world");
+        assertEvent(true, Level.INFO, "Hello world");
+        assertEvent(true, Level.INFO, "Hello world");
+        assertEvent(false, Level.INFO, null);
+    }
+
+    @Test
+    public void testSuppressedCountReported() throws Exception
+    {
+        Logger limited = LOG.rateLimited(20, 1);
+        final AtomicInteger evaluations = new AtomicInteger();
+        LazyArgument counted = new LazyArgument()
+        {
+            @Override
+            protected Object evaluate()
+            {
+                return evaluations.incrementAndGet();
+            }
+        };
+
+        limited.errorf("Attempt %s", counted);
+        limited.errorf("Attempt %s", counted);
+        limited.errorf("Attempt %s", counted);
+        assertEvent(true, Level.ERROR, "Attempt 1");
+        assertEvent(false, Level.ERROR, null);
+
+        Thread.sleep(100);
+
+        // suppressed messages were never rendered
+        limited.errorf("Attempt %s", "again");
+        assertEvent(true, Level.ERROR, "Attempt again [2 similar messages suppressed]");
+        Assert.assertEquals(evaluations.get(), 1);
+    }
+
+    @Test
+    public void testSampled() throws Exception
+    {
+        Logger sampled = LOG.sampled(0.5);
+        int logged = 0;
+
+        for (int i = 0; i < 1000; ++i) {
+            sampled.info("Hello");
+
+            LoggingEvent event = CapturingAppender.pollEvent();
+
+            if (event != null) {
+                ++logged;
+                Assert.assertTrue(event.getRenderedMessage().startsWith("Hello"));
+            }
+        }
+
+        Assert.assertTrue(logged > 350 && logged < 650, "logged " + logged);
+    }
+
+    @Test
+    public void testCoalescing() throws Exception
+    {
+        Logger coalescing = LOG.coalescing(1, TimeUnit.HOURS);
+        Exception e = new BrokenBarrierException("Uh oh!");
+
+        for (int i = 0; i < 5; ++i) {
+            coalescing.warnf(e, "Connection to %s refused", "db" + i);
+        }
+
+        assertEvent(true, Level.WARN, "java.util.concurrent.BrokenBarrierException: Uh oh!", "Connection to db0 refused");
+        assertEvent(false, Level.WARN, null);
+
+        coalescing.warnf("Connection to %s refused", "db5");
+        assertEvent(true, Level.WARN, "Connection to db5 refused");
+        coalescing.infoDebug(e, "Hello");
+        assertEvent(true, Level.INFO, "java.util.concurrent.BrokenBarrierException: Uh oh!", "Hello");
+        coalescing.infoDebug(e, "Hello");
+        assertEvent(false, Level.INFO, null);
+
+        // views of a coalescing view still coalesce
+        coalescing.sampled(1.0).warnf(e, "Connection to %s refused", "db6");
+        assertEvent(false, Level.WARN, null);
+    }
+
     private void testMessage(Level level) throws Exception
     {
         Exception e = new BrokenBarrierException("Uh oh!");
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.varia.NullAppender;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+
+// metrics are enabled for tests by the surefire configuration
+public class TestLoggerMetrics
+{
+    private static final String LOGGER_NAME = TestLoggerMetrics.class.getName() + ".metrics";
+
+    @BeforeClass(alwaysRun = true)
+    public void setup()
+    {
+        org.apache.log4j.Logger log4j = org.apache.log4j.Logger.getLogger(LOGGER_NAME);
+
+        log4j.setAdditivity(false);
+        log4j.addAppender(new NullAppender());
+    }
+
+    private Logger logger(String suffix, Level level)
+    {
+        String name = LOGGER_NAME + "." + suffix;
+
+        org.apache.log4j.Logger.getLogger(name).setLevel(level);
+        Logger.refreshLevels();
+
+        return Logger.getLogger(name);
+    }
+
+    @Test
+    public void testCounts() throws Exception
+    {
+        Logger logger = logger("counts", Level.INFO);
+        LoggerMetrics metrics = LoggerMetrics.get(LOGGER_NAME + ".counts");
+
+        Assert.assertTrue(LoggerMetrics.isEnabled());
+        Assert.assertNotNull(metrics);
+
+        logger.debug("Hello");
+        logger.debugf("Hello %s", "world");
+        logger.debugf("Hello %s %s", "world", 1234);
+        logger.info("Hello");
+        logger.infof("Hello %s", "world");
+        logger.warnf("Hello %d", "bogus");
+        logger.errorDebugf(new BrokenBarrierException("Uh oh!"), "Hello %s", "world");
+
+        Assert.assertEquals(metrics.getSuppressed(Level.DEBUG), 3);
+        Assert.assertEquals(metrics.getSuppressed(Level.INFO), 0);
+        Assert.assertEquals(metrics.getEmitted(Level.DEBUG), 0);
+        Assert.assertEquals(metrics.getEmitted(Level.INFO), 2);
+        Assert.assertEquals(metrics.getEmitted(Level.WARN), 1);
+        Assert.assertEquals(metrics.getEmitted(Level.ERROR), 1);
+        Assert.assertEquals(metrics.getBogusFormats(Level.WARN), 1);
+        Assert.assertEquals(metrics.getBogusFormats(), 1);
+        Assert.assertEquals(
+            metrics.getRenderedChars(),
+            "Hello".length() + "Hello world".length() +
+                "Bogus format string: WARN Hello %d [bogus] (java.util.IllegalFormatConversionException: d != java.lang.String)".length() +
+                "Hello world (Switch to DEBUG for full stack trace): java.util.concurrent.BrokenBarrierException: Uh oh!".length()
+        );
+        Assert.assertTrue(metrics.getFormatNanos() > 0);
+
+        // views count toward the logger
+        logger.rateLimited(1, 1).infof("Hello %s", "again");
+        Assert.assertEquals(metrics.getEmitted(Level.INFO), 3);
+    }
+
+    @Test
+    public void testMBean() throws Exception
+    {
+        Logger logger = logger("mbean", Level.WARN);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.mogwee.logging:type=LoggerMetrics,name=" + ObjectName.quote(LOGGER_NAME + ".mbean"));
+
+        logger.info("Hello");
+        logger.warn("Hello");
+        logger.warn("Hello");
+
+        Assert.assertEquals(server.getAttribute(name, "LoggerName"), LOGGER_NAME + ".mbean");
+        Assert.assertEquals(server.getAttribute(name, "InfoSuppressed"), 1L);
+        Assert.assertEquals(server.getAttribute(name, "WarnEmitted"), 2L);
+        Assert.assertEquals(server.getAttribute(name, "RenderedChars"), 10L);
+        Assert.assertTrue(LoggerMetrics.getAll().containsKey(LOGGER_NAME + ".mbean"));
+    }
+
+    @Test
+    public void testConcurrentCounts() throws Exception
+    {
+        final Logger logger = logger("concurrent", Level.INFO);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        start.await();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int j = 0; j < 10000; ++j) {
+                        logger.debugf("Hello %s", j);
+                        logger.info("Hello");
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        start.countDown();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LoggerMetrics metrics = LoggerMetrics.get(LOGGER_NAME + ".concurrent");
+
+        Assert.assertEquals(metrics.getSuppressed(Level.DEBUG), 80000);
+        Assert.assertEquals(metrics.getEmitted(Level.INFO), 80000);
+    }
+}
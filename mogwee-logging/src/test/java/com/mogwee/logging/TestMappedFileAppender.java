@@ -0,0 +1,244 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.PropertyConfigurator;
+import org.apache.log4j.helpers.OnlyOnceErrorHandler;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.util.Properties;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestMappedFileAppender
+{
+    private static final String LOGGER_NAME = TestMappedFileAppender.class.getName() + ".mapped";
+    private static final Logger LOG = Logger.getLogger(LOGGER_NAME);
+
+    private File directory;
+    private MappedFileAppender appender;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup() throws IOException
+    {
+        directory = File.createTempFile("mapped", "");
+        Assert.assertTrue(directory.delete());
+        Assert.assertTrue(directory.mkdir());
+
+        org.apache.log4j.Logger log4j = org.apache.log4j.Logger.getLogger(LOGGER_NAME);
+
+        log4j.setAdditivity(false);
+        log4j.setLevel(Level.INFO);
+        Logger.refreshLevels();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        org.apache.log4j.Logger.getLogger(LOGGER_NAME).removeAllAppenders();
+
+        if (appender != null) {
+            appender.close();
+        }
+
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+
+        directory.delete();
+    }
+
+    private File install(int regionSize, long maxFileSize, int maxBackupIndex)
+    {
+        File file = new File(directory, "sub/test.log");
+
+        appender = new MappedFileAppender();
+        appender.setName("mapped");
+        appender.setLayout(new PatternLayout("%p %m%n"));
+        appender.setFile(file.getPath());
+        appender.setRegionSize(regionSize);
+        appender.setMaximumFileSize(maxFileSize);
+        appender.setMaxBackupIndex(maxBackupIndex);
+        appender.activateOptions();
+        org.apache.log4j.Logger.getLogger(LOGGER_NAME).addAppender(appender);
+
+        return file;
+    }
+
+    private String read(File file) throws IOException
+    {
+        byte[] bytes = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+
+        try {
+            Assert.assertEquals(in.read(bytes), bytes.length);
+        }
+        finally {
+            in.close();
+        }
+
+        return new String(bytes, "UTF-8");
+    }
+
+    @Test
+    public void testWritesAcrossRegions() throws Exception
+    {
+        File file = install(1024, Long.MAX_VALUE, 1);
+        StringBuilder expected = new StringBuilder();
+
+        for (int i = 0; i < 1000; ++i) {
+            LOG.infof("Event %d: %s", i, "héllo wörld");
+            expected.append("INFO Event ").append(i).append(": héllo wörld").append(System.getProperty("line.separator"));
+        }
+
+        LOG.debugf("Not logged %d", 0);
+        appender.force();
+        appender.close();
+
+        Assert.assertEquals(read(file), expected.toString());
+    }
+
+    @Test
+    public void testThrowablesAndAppending() throws Exception
+    {
+        File file = install(1024, Long.MAX_VALUE, 1);
+
+        LOG.warn(new BrokenBarrierException("Uh oh!"), "Failed");
+        appender.close();
+
+        String contents = read(file);
+
+        Assert.assertTrue(contents.startsWith("WARN Failed" + System.getProperty("line.separator") + "java.util.concurrent.BrokenBarrierException: Uh oh!"));
+        Assert.assertTrue(contents.contains("\tat com.mogwee.logging.TestMappedFileAppender.testThrowablesAndAppending"));
+
+        org.apache.log4j.Logger.getLogger(LOGGER_NAME).removeAllAppenders();
+        install(1024, Long.MAX_VALUE, 1);
+        LOG.info("Again");
+        appender.close();
+
+        Assert.assertEquals(read(file), contents + "INFO Again" + System.getProperty("line.separator"));
+    }
+
+    @Test
+    public void testRollOver() throws Exception
+    {
+        File file = install(1024, 2000, 2);
+
+        for (int i = 0; i < 500; ++i) {
+            LOG.infof("Event %d", i);
+        }
+
+        appender.close();
+
+        File first = new File(file.getPath() + ".1");
+        File second = new File(file.getPath() + ".2");
+
+        Assert.assertTrue(first.exists());
+        Assert.assertTrue(second.exists());
+        Assert.assertFalse(new File(file.getPath() + ".3").exists());
+
+        for (File rolled : new File[]{first, second}) {
+            Assert.assertTrue(rolled.length() >= 2000 && rolled.length() < 2100, rolled + ": " + rolled.length());
+        }
+
+        String[] lines = read(file).split(System.getProperty("line.separator"));
+
+        Assert.assertEquals(lines[lines.length - 1], "INFO Event 499");
+        Assert.assertTrue(read(first).endsWith("INFO Event " + (500 - lines.length - 1) + System.getProperty("line.separator")));
+    }
+
+    @Test
+    public void testConfiguredFileSize() throws Exception
+    {
+        String prefix = "log4j.appender.configured";
+        Properties properties = new Properties();
+
+        properties.setProperty("log4j.logger." + LOGGER_NAME, "INFO, configured");
+        properties.setProperty(prefix, MappedFileAppender.class.getName());
+        properties.setProperty(prefix + ".File", new File(directory, "configured.log").getPath());
+        properties.setProperty(prefix + ".MaxFileSize", "10MB");
+        properties.setProperty(prefix + ".layout", PatternLayout.class.getName());
+        PropertyConfigurator.configure(properties);
+
+        appender = (MappedFileAppender) org.apache.log4j.Logger.getLogger(LOGGER_NAME).getAppender("configured");
+
+        Assert.assertEquals(appender.getMaximumFileSize(), 10L * 1024 * 1024);
+    }
+
+    @Test
+    public void testFailedRemapKeepsRegion() throws Exception
+    {
+        File file = install(1024, Long.MAX_VALUE, 1);
+        final AtomicInteger errors = new AtomicInteger();
+
+        appender.setErrorHandler(new OnlyOnceErrorHandler()
+        {
+            @Override
+            public void error(String message, Exception e, int errorCode)
+            {
+                errors.incrementAndGet();
+            }
+        });
+
+        // closing the file out from under the appender makes mapping the next region fail
+        Field field = MappedFileAppender.class.getDeclaredField("file");
+
+        field.setAccessible(true);
+        ((RandomAccessFile) field.get(appender)).close();
+
+        // past the failed remap, the appender must still hold the old region rather than unmapped memory
+        for (int i = 0; i < 200; ++i) {
+            LOG.infof("Event %d", i);
+        }
+
+        appender.force();
+        appender.close();
+
+        Assert.assertTrue(errors.get() > 0);
+        Assert.assertTrue(read(file).startsWith("INFO Event 0" + System.getProperty("line.separator")));
+    }
+
+    @Test
+    public void testPeriodicForce() throws Exception
+    {
+        File file = new File(directory, "forced.log");
+
+        appender = new MappedFileAppender();
+        appender.setName("forced");
+        appender.setLayout(new PatternLayout("%m%n"));
+        appender.setFile(file.getPath());
+        appender.setForceIntervalMillis(10);
+        appender.activateOptions();
+        org.apache.log4j.Logger.getLogger(LOGGER_NAME).addAppender(appender);
+
+        LOG.info("Hello");
+        Thread.sleep(50);
+        appender.close();
+
+        Assert.assertEquals(read(file), "Hello" + System.getProperty("line.separator"));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+public class TestRenderBuffer
+{
+    @Test
+    public void testReused()
+    {
+        RenderBuffer first = RenderBuffer.acquire();
+        StringBuilder builder = first.builder();
+
+        builder.append("leftovers");
+        first.release();
+
+        RenderBuffer second = RenderBuffer.acquire();
+
+        Assert.assertSame(second, first);
+        Assert.assertSame(second.builder(), builder);
+        Assert.assertEquals(second.builder().length(), 0);
+        second.release();
+    }
+
+    @Test
+    public void testNestedAcquireGetsOwnBuffer()
+    {
+        RenderBuffer outer = RenderBuffer.acquire();
+        RenderBuffer inner = RenderBuffer.acquire();
+
+        Assert.assertNotSame(inner, outer);
+        Assert.assertNotSame(inner.builder(), outer.builder());
+        inner.release();
+        outer.release();
+
+        RenderBuffer next = RenderBuffer.acquire();
+
+        Assert.assertSame(next, outer);
+        next.release();
+    }
+
+    @Test
+    public void testOversizedBufferNotRetained()
+    {
+        RenderBuffer buffer = RenderBuffer.acquire();
+        char[] chars = new char[RenderBuffer.MAX_RETAINED_CHARS + 1];
+
+        Arrays.fill(chars, 'x');
+        buffer.builder().append(chars);
+        buffer.release();
+
+        buffer = RenderBuffer.acquire();
+        Assert.assertTrue(buffer.builder().capacity() <= RenderBuffer.MAX_RETAINED_CHARS);
+        buffer.release();
+    }
+
+    @Test
+    public void testFormatMatchesStringFormat()
+    {
+        Locale original = Locale.getDefault();
+        RenderBuffer buffer = RenderBuffer.acquire();
+
+        try {
+            Assert.assertEquals(buffer.format("%,d %.3f %s", 1234567, 1.5, "a"), String.format("%,d %.3f %s", 1234567, 1.5, "a"));
+            Assert.assertEquals(buffer.format("%08x", 255), "000000ff");
+
+            // the formatter follows changes to the default locale
+            Locale.setDefault(Locale.GERMANY);
+            Assert.assertEquals(buffer.format("%,d %.3f", 1234567, 1.5), String.format("%,d %.3f", 1234567, 1.5));
+            Assert.assertEquals(buffer.format("%,d", 1234567), "1.234.567");
+
+            try {
+                buffer.format("%d", "bogus");
+                Assert.fail("Expected IllegalFormatConversionException");
+            }
+            catch (RuntimeException e) {
+                Assert.assertEquals(e.getClass().getName(), "java.util.IllegalFormatConversionException");
+            }
+
+            // and is still usable after a failure
+            Assert.assertEquals(buffer.format("%s", "ok"), "ok");
+        }
+        finally {
+            buffer.release();
+            Locale.setDefault(original);
+        }
+    }
+
+    @Test
+    public void testReentrantFormatting()
+    {
+        Object reentrant = new Object()
+        {
+            @Override
+            public String toString()
+            {
+                return CompiledFormat.format("inner %s %d", "a", 1);
+            }
+        };
+
+        Assert.assertEquals(CompiledFormat.format("outer %s %s", reentrant, "b"), "outer inner a 1 b");
+        Assert.assertEquals(CompiledFormat.format("outer %5s|%s", "b", reentrant), "outer     b|inner a 1");
+    }
+}
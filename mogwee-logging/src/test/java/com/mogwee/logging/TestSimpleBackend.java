@@ -0,0 +1,239 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.channels.FileChannel;
+import java.util.Properties;
+import java.util.concurrent.BrokenBarrierException;
+
+public class TestSimpleBackend
+{
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private File directory;
+    private File file;
+    private SimpleBackend backend;
+
+    public static class CustomBackend implements LoggingBackend
+    {
+        @Override
+        public BackendLogger getLogger(String name)
+        {
+            return null;
+        }
+    }
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup() throws IOException
+    {
+        directory = File.createTempFile("simple", "");
+        Assert.assertTrue(directory.delete());
+        Assert.assertTrue(directory.mkdir());
+        file = new File(directory, "sub/test.log");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        if (backend != null) {
+            backend.close();
+            backend = null;
+        }
+
+        file.delete();
+        file.getParentFile().delete();
+        directory.delete();
+    }
+
+    private SimpleBackend install(String... keysAndValues)
+    {
+        Properties properties = new Properties();
+
+        properties.setProperty(SimpleBackend.FILE_PROPERTY, file.getPath());
+
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+
+        backend = new SimpleBackend(properties);
+
+        return backend;
+    }
+
+    private String read() throws IOException
+    {
+        byte[] bytes = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+
+        try {
+            Assert.assertEquals(in.read(bytes), bytes.length);
+        }
+        finally {
+            in.close();
+        }
+
+        return new String(bytes, "UTF-8");
+    }
+
+    @Test
+    public void testThresholds()
+    {
+        install(
+            SimpleBackend.LEVEL_PROPERTY, "WARN",
+            SimpleBackend.LEVEL_PROPERTY + ".com.example", "DEBUG",
+            SimpleBackend.LEVEL_PROPERTY + ".com.example.quiet", "ERROR"
+        );
+
+        Assert.assertEquals(backend.getLogger("com.example").getThreshold(), Level.DEBUG);
+        Assert.assertEquals(backend.getLogger("com.example.Foo").getThreshold(), Level.DEBUG);
+        Assert.assertEquals(backend.getLogger("com.example.quiet.Foo").getThreshold(), Level.ERROR);
+        Assert.assertEquals(backend.getLogger("com.examples.Foo").getThreshold(), Level.WARN);
+        Assert.assertEquals(backend.getLogger("Foo").getThreshold(), Level.WARN);
+        Assert.assertSame(backend.getLogger("Foo"), backend.getLogger("Foo"));
+
+        int generation = LevelGeneration.current();
+
+        backend.setLevel("com.example", Level.INFO);
+        backend.setLevel("com.example.quiet", null);
+        backend.setLevel(null, Level.ERROR);
+
+        Assert.assertTrue(LevelGeneration.current() != generation);
+        Assert.assertEquals(backend.getLogger("com.example.Foo").getThreshold(), Level.INFO);
+        Assert.assertEquals(backend.getLogger("com.example.quiet.Foo").getThreshold(), Level.INFO);
+        Assert.assertEquals(backend.getLogger("Foo").getThreshold(), Level.ERROR);
+    }
+
+    @Test
+    public void testOutput() throws IOException
+    {
+        install();
+
+        BackendLogger logger = backend.getLogger("com.example.Foo");
+
+        Assert.assertEquals(logger.getName(), "com.example.Foo");
+        Assert.assertEquals(logger.getThreshold(), Level.INFO);
+
+        logger.log(Level.INFO, "Héllo wörld", null, StackTraceFormat.FULL);
+        logger.log(Level.ERROR, "Failed", new BrokenBarrierException("Uh oh!"), StackTraceFormat.FULL);
+
+        String[] lines = read().split(LINE_SEPARATOR);
+        String prefix = "\\d{4}-\\d\\d-\\d\\d \\d\\d:\\d\\d:\\d\\d,\\d{3} ";
+        String thread = "\\[" + Thread.currentThread().getName() + "\\] ";
+
+        Assert.assertTrue(lines[0].matches(prefix + "INFO  " + thread + "com.example.Foo - Héllo wörld"), lines[0]);
+        Assert.assertTrue(lines[1].matches(prefix + "ERROR " + thread + "com.example.Foo - Failed"), lines[1]);
+        Assert.assertEquals(lines[2], "java.util.concurrent.BrokenBarrierException: Uh oh!");
+        Assert.assertTrue(lines[3].startsWith("\tat com.mogwee.logging.TestSimpleBackend.testOutput"), lines[3]);
+
+        backend.close();
+        logger.log(Level.INFO, "Discarded", null, StackTraceFormat.FULL);
+
+        Assert.assertEquals(read().split(LINE_SEPARATOR).length, lines.length);
+    }
+
+    @Test
+    public void testContext() throws IOException
+    {
+        install();
+
+        LogContext.put("requestId", "1234");
+        LogContext.put("tenant", "example");
+
+        try {
+            backend.getLogger("com.example.Foo").log(Level.WARN, "Hello", null, StackTraceFormat.FULL);
+        }
+        finally {
+            LogContext.clear();
+        }
+
+        Assert.assertTrue(read().endsWith("] com.example.Foo {requestId=1234, tenant=example} - Hello" + LINE_SEPARATOR), read());
+    }
+
+    @Test
+    public void testBuffering() throws IOException
+    {
+        install(SimpleBackend.IMMEDIATE_FLUSH_PROPERTY, "false");
+
+        BackendLogger logger = backend.getLogger("com.example.Foo");
+
+        logger.log(Level.INFO, "Buffered", null, StackTraceFormat.FULL);
+        Assert.assertEquals(file.length(), 0);
+
+        logger.logDurably(Level.ERROR, "Durable", null, StackTraceFormat.FULL);
+        Assert.assertEquals(read().split(LINE_SEPARATOR).length, 2);
+
+        // bigger than the buffer
+        StringBuilder big = new StringBuilder();
+
+        for (int i = 0; i < 100000; ++i) {
+            big.append('x');
+        }
+
+        logger.log(Level.INFO, big.toString(), null, StackTraceFormat.FULL);
+        backend.flush();
+        Assert.assertTrue(read().endsWith(big + LINE_SEPARATOR));
+    }
+
+    @Test
+    public void testDurableFailure() throws Exception
+    {
+        install();
+
+        BackendLogger logger = backend.getLogger("com.example.Foo");
+        // closing the file out from under the backend makes writing to it fail
+        Field field = SimpleBackend.class.getDeclaredField("channel");
+
+        field.setAccessible(true);
+        ((FileChannel) field.get(backend)).close();
+
+        // only reported through LogLog
+        logger.log(Level.INFO, "Not written", null, StackTraceFormat.FULL);
+
+        try {
+            logger.logDurably(Level.ERROR, "Not forced", null, StackTraceFormat.FULL);
+            Assert.fail();
+        }
+        catch (DurableLogException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException, String.valueOf(e.getCause()));
+        }
+    }
+
+    @Test
+    public void testChoosingBackends()
+    {
+        Assert.assertTrue(LoggingBackends.get() instanceof Log4jBackend);
+        Assert.assertTrue(LoggingBackends.create(null) instanceof Log4jBackend);
+        Assert.assertTrue(LoggingBackends.create("log4j") instanceof Log4jBackend);
+        Assert.assertTrue(LoggingBackends.create(CustomBackend.class.getName()) instanceof CustomBackend);
+        Assert.assertTrue(LoggingBackends.create("com.example.NoSuchBackend") instanceof Log4jBackend);
+
+        LoggingBackend simple = LoggingBackends.create("simple");
+
+        Assert.assertTrue(simple instanceof SimpleBackend);
+        ((SimpleBackend) simple).close();
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestStackTraceFormat
+{
+    private static final String LOGGER_NAME = TestStackTraceFormat.class.getName() + ".traces";
+    private static final Logger LOG = Logger.getLogger(LOGGER_NAME);
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private RecordingAppender appender;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup()
+    {
+        appender = RecordingAppender.attach(LOGGER_NAME, Level.INFO);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        appender.detach();
+    }
+
+    private static Exception nested(int depth)
+    {
+        if (depth > 0) {
+            return nested(depth - 1);
+        }
+
+        Exception cause = new IllegalStateException("Inner");
+        Exception exception = new RuntimeException("Outer", cause);
+
+        exception.addSuppressed(new IllegalArgumentException("Suppressed"));
+
+        return exception;
+    }
+
+    private static String render(StackTraceFormat format, Throwable cause)
+    {
+        StringBuilder result = new StringBuilder();
+
+        format.appendTo(result, cause);
+
+        return result.toString();
+    }
+
+    @Test
+    public void testFull()
+    {
+        Exception exception = nested(3);
+        StringWriter expected = new StringWriter();
+
+        exception.printStackTrace(new PrintWriter(expected));
+
+        // newer JDKs prefix frames with their class loaders and modules
+        String printed = expected.toString().replaceAll("\tat [^(]*/", "\tat ");
+
+        Assert.assertEquals(render(StackTraceFormat.FULL, exception), printed);
+        Assert.assertEquals(
+            Arrays.asList(StackTraceFormat.FULL.toLines(exception)),
+            Arrays.asList(printed.split(LINE_SEPARATOR))
+        );
+    }
+
+    @Test
+    public void testTrimmed()
+    {
+        Exception exception = nested(3);
+        int frames = exception.getStackTrace().length;
+        String[] lines = StackTraceFormat.FULL.withMaxDepth(2).toLines(exception);
+
+        Assert.assertEquals(lines[0], "java.lang.RuntimeException: Outer");
+        Assert.assertTrue(lines[1].startsWith("\tat com.mogwee.logging.TestStackTraceFormat.nested("), lines[1]);
+        Assert.assertTrue(lines[2].startsWith("\tat com.mogwee.logging.TestStackTraceFormat.nested("), lines[2]);
+        Assert.assertEquals(lines[3], "\t... " + (frames - 2) + " frames truncated");
+        Assert.assertEquals(lines[4], "\tSuppressed: java.lang.IllegalArgumentException: Suppressed");
+        Assert.assertTrue(lines[5].startsWith("\t\tat com.mogwee.logging.TestStackTraceFormat.nested("), lines[5]);
+        Assert.assertEquals(lines[6], "\t\t... " + (frames - 1) + " more");
+        Assert.assertEquals(lines[7], "Caused by: java.lang.IllegalStateException: Inner");
+        Assert.assertTrue(lines[8].startsWith("\tat com.mogwee.logging.TestStackTraceFormat.nested("), lines[8]);
+        Assert.assertEquals(lines[9], "\t... " + (frames - 1) + " more");
+        Assert.assertEquals(lines.length, 10);
+
+        lines = StackTraceFormat.FULL.withMaxDepth(0).collapsingCommonFrames(false).toLines(exception);
+
+        Assert.assertEquals(lines[1], "\t... " + frames + " frames truncated");
+        Assert.assertEquals(lines[3], "\t\t... " + frames + " frames truncated");
+        Assert.assertEquals(lines[5], "\t... " + frames + " frames truncated");
+    }
+
+    @Test
+    public void testFiltered()
+    {
+        Exception exception = nested(3);
+        StackTraceFormat format = StackTraceFormat.FULL.excludingPackages("com.mogwee.", "org.testng.");
+        String[] lines = format.toLines(exception);
+
+        Assert.assertEquals(lines[0], "java.lang.RuntimeException: Outer");
+        Assert.assertEquals(lines[1], "\t... 5 frames filtered");
+
+        for (String line : lines) {
+            Assert.assertFalse(line.contains("at com.mogwee.") || line.contains("at org.testng."), line);
+        }
+
+        // filtered frames don't count toward the limit
+        lines = format.withMaxDepth(1).toLines(exception);
+
+        Assert.assertEquals(lines[1], "\t... 5 frames filtered");
+        Assert.assertTrue(lines[2].startsWith("\tat "), lines[2]);
+        Assert.assertTrue(lines[3].matches("\t\\.\\.\\. \\d+ frames truncated"), lines[3]);
+    }
+
+    @Test
+    public void testCircular()
+    {
+        Exception first = new Exception("First");
+        Exception second = new Exception("Second", first);
+
+        first.initCause(second);
+
+        String[] lines = StackTraceFormat.FULL.withMaxDepth(0).toLines(first);
+
+        Assert.assertEquals(lines[lines.length - 1], "Caused by: [CIRCULAR REFERENCE: java.lang.Exception: First]");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeDepth()
+    {
+        StackTraceFormat.FULL.withMaxDepth(-1);
+    }
+
+    @Test
+    public void testLogging() throws Exception
+    {
+        Exception exception = nested(3);
+        Logger logger = LOG.trimmingTraces(StackTraceFormat.FULL.withMaxDepth(1));
+
+        logger.errorf(exception, "Failed %s", "transfer");
+        LOG.error(exception, "Failed");
+
+        List<LoggingEvent> events = new ArrayList<LoggingEvent>(appender.events);
+        LoggingEvent trimmed = events.get(0);
+
+        Assert.assertEquals(trimmed.getMessage(), "Failed transfer");
+        Assert.assertSame(trimmed.getThrowableInformation().getThrowable(), exception);
+        Assert.assertEquals(trimmed.getThrowableStrRep()[2], "\t... " + (exception.getStackTrace().length - 1) + " frames truncated");
+        Assert.assertEquals(
+            Arrays.asList(trimmed.getThrowableInformation().getThrowableStrRep()),
+            Arrays.asList(trimmed.getThrowableStrRep())
+        );
+
+        // the trimmed trace survives serialization
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+
+        out.writeObject(trimmed);
+        out.close();
+
+        LoggingEvent copy = (LoggingEvent) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+        Assert.assertEquals(Arrays.asList(copy.getThrowableStrRep()), Arrays.asList(trimmed.getThrowableStrRep()));
+
+        // Log4J renders untrimmed traces itself
+        Assert.assertEquals(events.get(1).getThrowableStrRep().length, StackTraceFormat.FULL.toLines(exception).length);
+    }
+}
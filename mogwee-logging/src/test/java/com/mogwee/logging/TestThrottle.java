@@ -0,0 +1,168 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TestThrottle
+{
+    @Test
+    public void testBurstThenSuppressed()
+    {
+        // one permit a minute: nothing refills while the test runs
+        Throttle throttle = Throttle.NONE.withRateLimit(1.0 / 60, 3);
+
+        for (int i = 0; i < 3; ++i) {
+            Assert.assertEquals(throttle.admit("Hello %s"), 0);
+        }
+
+        for (int i = 0; i < 5; ++i) {
+            Assert.assertEquals(throttle.admit("Hello %s"), -1);
+        }
+
+        // other templates have their own buckets
+        Assert.assertEquals(throttle.admit("Goodbye %s"), 0);
+        Assert.assertEquals(throttle.admit(null), 0);
+    }
+
+    @Test
+    public void testRefillReportsSuppressed() throws Exception
+    {
+        Throttle throttle = Throttle.NONE.withRateLimit(20, 1);
+
+        Assert.assertEquals(throttle.admit("Hello %s"), 0);
+        Assert.assertEquals(throttle.admit("Hello %s"), -1);
+        Assert.assertEquals(throttle.admit("Hello %s"), -1);
+
+        Thread.sleep(100);
+
+        Assert.assertEquals(throttle.admit("Hello %s"), 2);
+        Assert.assertEquals(throttle.admit("Hello %s"), -1);
+    }
+
+    @Test
+    public void testSampling()
+    {
+        Throttle throttle = Throttle.NONE.withSampling(0.25);
+        int admitted = 0;
+        long suppressed = 0;
+
+        for (int i = 0; i < 100000; ++i) {
+            long result = throttle.admit("Hello %s");
+
+            if (result >= 0) {
+                ++admitted;
+                suppressed += result;
+            }
+        }
+
+        Assert.assertTrue(admitted > 23000 && admitted < 27000, "admitted " + admitted);
+        // everything not admitted is reported, except for whatever followed the last admitted message
+        Assert.assertTrue(admitted + suppressed <= 100000 && admitted + suppressed > 99900, "total " + (admitted + suppressed));
+
+        Assert.assertEquals(Throttle.NONE.withSampling(1.0).admit("Hello %s"), 0);
+    }
+
+    @Test
+    public void testSamplingAndRateLimit()
+    {
+        Throttle throttle = Throttle.NONE.withSampling(0.5).withRateLimit(1.0 / 60, 10);
+        int admitted = 0;
+
+        for (int i = 0; i < 1000; ++i) {
+            if (throttle.admit("Hello %s") >= 0) {
+                ++admitted;
+            }
+        }
+
+        Assert.assertEquals(admitted, 10);
+    }
+
+    @Test
+    public void testInvalidArguments()
+    {
+        for (double probability : new double[]{0, -0.5, 1.5, Double.NaN}) {
+            try {
+                Throttle.NONE.withSampling(probability);
+                Assert.fail("Expected IllegalArgumentException for " + probability);
+            }
+            catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+
+        try {
+            Throttle.NONE.withRateLimit(0, 1);
+            Assert.fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            Throttle.NONE.withRateLimit(10, 0);
+            Assert.fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testConcurrentBurst() throws Exception
+    {
+        final Throttle throttle = Throttle.NONE.withRateLimit(1.0 / 60, 100);
+        final AtomicLong admitted = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        start.await();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int j = 0; j < 10000; ++j) {
+                        if (throttle.admit("Hello %s") >= 0) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        start.countDown();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(admitted.get(), 100);
+    }
+}
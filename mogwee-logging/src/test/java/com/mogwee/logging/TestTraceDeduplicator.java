@@ -0,0 +1,228 @@
+/*
+ * Copyright 2011 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mogwee.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+public class TestTraceDeduplicator
+{
+    private static final String LOGGER_NAME = TestTraceDeduplicator.class.getName() + ".traces";
+    private static final Logger LOG = Logger.getLogger(LOGGER_NAME);
+
+    private RecordingAppender appender;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup()
+    {
+        appender = RecordingAppender.attach(LOGGER_NAME, Level.INFO);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+    {
+        appender.detach();
+    }
+
+    private static Throwable fail(String message)
+    {
+        return new IllegalStateException(message);
+    }
+
+    private static Throwable failElsewhere(String message)
+    {
+        return new IllegalStateException(message);
+    }
+
+    @Test
+    public void testFingerprint()
+    {
+        List<Throwable> sameLine = new ArrayList<Throwable>();
+
+        for (int i = 0; i < 2; ++i) {
+            sameLine.add(fail("Request " + i + " failed"));
+        }
+
+        long fingerprint = TraceDeduplicator.fingerprint(sameLine.get(0));
+
+        // messages don't matter
+        Assert.assertEquals(TraceDeduplicator.fingerprint(sameLine.get(1)), fingerprint);
+        Assert.assertEquals(TraceDeduplicator.fingerprint(sameLine.get(0)), fingerprint);
+        // frames, exception classes and causes do
+        Assert.assertFalse(TraceDeduplicator.fingerprint(failElsewhere("Request 0 failed")) == fingerprint);
+        Assert.assertFalse(TraceDeduplicator.fingerprint(new IllegalArgumentException("Request 0 failed")) == fingerprint);
+        Assert.assertFalse(TraceDeduplicator.fingerprint(sameLine.get(1).initCause(new RuntimeException())) == fingerprint);
+
+        Assert.assertEquals(TraceDeduplicator.format(0x1234L), "0000000000001234");
+        Assert.assertEquals(TraceDeduplicator.format(-1L), "ffffffffffffffff");
+    }
+
+    @Test
+    public void testFingerprintCycle()
+    {
+        Exception first = new Exception();
+        Exception second = new Exception(first);
+
+        first.initCause(second);
+
+        Assert.assertEquals(TraceDeduplicator.fingerprint(first), TraceDeduplicator.fingerprint(first));
+    }
+
+    @Test
+    public void testAdmit()
+    {
+        TraceDeduplicator traces = new TraceDeduplicator(1000);
+
+        Assert.assertEquals(traces.admit(42, 10000), 0);
+        Assert.assertEquals(traces.admit(42, 10001), -1);
+        Assert.assertEquals(traces.admit(42, 10999), -2);
+        Assert.assertEquals(traces.admit(43, 10999), 0);
+        Assert.assertEquals(traces.admit(42, 11000), 2);
+        Assert.assertEquals(traces.admit(42, 11001), -1);
+        Assert.assertEquals(traces.admit(42, 12000), 1);
+        Assert.assertEquals(traces.admit(42, 13000), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadInterval()
+    {
+        LOG.deduplicatingTraces(100, TimeUnit.MICROSECONDS);
+    }
+
+    @Test
+    public void testBounded()
+    {
+        TraceDeduplicator traces = new TraceDeduplicator(1000);
+        Set<Long> fingerprints = new HashSet<Long>();
+
+        for (long i = 0; i < 100000; ++i) {
+            long fingerprint = i * 0x9E3779B97F4A7C15L;
+
+            fingerprints.add(fingerprint);
+            Assert.assertEquals(traces.admit(fingerprint, 0), 0);
+        }
+
+        // a trace whose entry was evicted is written in full again, but the repeats of one that wasn't are counted
+        Assert.assertEquals(traces.admit(99999 * 0x9E3779B97F4A7C15L, 1), -1);
+        Assert.assertEquals(fingerprints.size(), 100000);
+    }
+
+    @Test
+    public void testLogging()
+    {
+        Logger logger = LOG.deduplicatingTraces(1, TimeUnit.HOURS);
+        List<Throwable> causes = new ArrayList<Throwable>();
+
+        for (int i = 0; i < 3; ++i) {
+            causes.add(fail("Request " + i + " failed"));
+        }
+
+        for (Throwable cause : causes) {
+            logger.warn(cause, "Uh oh");
+        }
+
+        logger.warnf(failElsewhere("Request 3 failed"), "Uh oh %s", "again");
+        LOG.warn(causes.get(0), "Not deduplicated");
+
+        String fingerprint = TraceDeduplicator.format(TraceDeduplicator.fingerprint(causes.get(0)));
+        List<LoggingEvent> events = new ArrayList<LoggingEvent>(appender.events);
+
+        Assert.assertEquals(events.size(), 5);
+        Assert.assertEquals(events.get(0).getMessage(), "Uh oh [stack trace " + fingerprint + "]");
+        Assert.assertNotNull(events.get(0).getThrowableInformation());
+        Assert.assertEquals(
+            events.get(1).getMessage(),
+            "Uh oh [stack trace " + fingerprint + " repeated 1 times: java.lang.IllegalStateException: Request 1 failed]"
+        );
+        Assert.assertNull(events.get(1).getThrowableInformation());
+        Assert.assertEquals(
+            events.get(2).getMessage(),
+            "Uh oh [stack trace " + fingerprint + " repeated 2 times: java.lang.IllegalStateException: Request 2 failed]"
+        );
+        Assert.assertNull(events.get(2).getThrowableInformation());
+        Assert.assertTrue(String.valueOf(events.get(3).getMessage()).startsWith("Uh oh again [stack trace "));
+        Assert.assertFalse(String.valueOf(events.get(3).getMessage()).contains(fingerprint));
+        Assert.assertNotNull(events.get(3).getThrowableInformation());
+        Assert.assertEquals(events.get(4).getMessage(), "Not deduplicated");
+        Assert.assertNotNull(events.get(4).getThrowableInformation());
+    }
+
+    @Test
+    public void testBinaryLogFallback() throws Exception
+    {
+        Logger logger = LOG.deduplicatingTraces(1, TimeUnit.HOURS);
+        File file = File.createTempFile("traces", ".log");
+        List<Throwable> causes = new ArrayList<Throwable>();
+        List<BinaryLogDecoder.Event> events = new ArrayList<BinaryLogDecoder.Event>();
+
+        for (int i = 0; i < 2; ++i) {
+            causes.add(fail("Request " + i + " failed"));
+        }
+
+        try {
+            BinaryLog.install(file);
+
+            // a UUID can't be written as an argument, so the message falls back to being formatted
+            for (Throwable cause : causes) {
+                logger.errorf(cause, "Failed %s", UUID.randomUUID());
+            }
+
+            BinaryLog.uninstall();
+
+            BinaryLogDecoder decoder = new BinaryLogDecoder(new FileInputStream(file));
+
+            try {
+                BinaryLogDecoder.Event event;
+
+                while ((event = decoder.next()) != null) {
+                    events.add(event);
+                }
+            }
+            finally {
+                decoder.close();
+            }
+        }
+        finally {
+            BinaryLog.uninstall();
+            file.delete();
+        }
+
+        String fingerprint = TraceDeduplicator.format(TraceDeduplicator.fingerprint(causes.get(0)));
+
+        Assert.assertEquals(events.size(), 2);
+        Assert.assertTrue(events.get(0).getMessage().endsWith(" [stack trace " + fingerprint + "]"), events.get(0).getMessage());
+        Assert.assertNotNull(events.get(0).getThrowableStrRep());
+        Assert.assertTrue(
+            events.get(1).getMessage().endsWith(" [stack trace " + fingerprint + " repeated 1 times: java.lang.IllegalStateException: Request 1 failed]"),
+            events.get(1).getMessage()
+        );
+        Assert.assertNull(events.get(1).getThrowableStrRep());
+    }
+}